@@ -0,0 +1,66 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.ThreadAffinity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池借还和线程亲和连接的吞吐对比, 默认32线程, 用 -t 64 / -t 256 测更高的并发
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 11:30
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class AffinityBenchmark {
+
+    private static final int POOL_SIZE = 64;
+
+    @Param({"pool", "perThread", "striped"})
+    private String mode;
+
+    private RedisTarget target;
+    private Redis redis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(POOL_SIZE);
+        redis = target.getRedis();
+        redis.set("bench:affinity", "value");
+        if ("perThread".equals(mode)) {
+            redis.useThreadAffinity(ThreadAffinity.perThread(1024));
+        } else if ("striped".equals(mode)) {
+            redis.useThreadAffinity(ThreadAffinity.striped(POOL_SIZE / 4));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    public String get() {
+        return redis.get("bench:affinity");
+    }
+}
@@ -0,0 +1,50 @@
+package com.hpl.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口, 参数与 JMH 命令行相同, 默认把结果以 JSON 格式写到 jmh-result.json, 便于做回归对比
+ * <p>
+ * 用法:
+ * <pre>
+ *   mvn -pl benchmarks -am package
+ *   java -jar benchmarks/target/benchmarks.jar                      # 全部
+ *   java -jar benchmarks/target/benchmarks.jar CommandBenchmark     # 按正则选择
+ *   java -jar benchmarks/target/benchmarks.jar NearCache -prof gc   # 同时输出分配速率和 GC 时间
+ * </pre>
+ * 访问 redis 的基准测试默认连接进程内的 RESP 服务端, 换成真实 redis 的方法见 {@link RedisTarget}.
+ * 当前 JDK 不支持虚拟线程且没有用 -jvm 指定别的 JVM 时, 跳过 {@link VirtualThreadBenchmark}
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 10:00
+ */
+public class BenchmarkMain {
+
+    private static final String DEFAULT_RESULT = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cli.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT);
+        }
+        if (!cli.getJvm().hasValue() && !VirtualThreadBenchmark.isSupported()) {
+            System.out.println("# Skipping VirtualThreadBenchmark: JDK " + System.getProperty("java.version")
+                    + " has no virtual threads, run on JDK 21 or later to include it");
+            builder.exclude(VirtualThreadBenchmark.class.getName());
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package com.hpl.bench;
+
+import com.hpl.bulk.BulkLoader;
+import com.hpl.bulk.BulkResult;
+import com.hpl.redis.Redis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量导入 100000 条 SET 的吞吐(每秒命令数): BulkLoader 对比每1000条一次 pipeline 和逐条 set
+ * <p>
+ * 压测进程内的 stub 时服务端是单线程的瓶颈, 结果以真实 redis (-Dbench.redis.host) 为准
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/24 14:00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkLoadBenchmark {
+
+    private static final int RECORDS = 100_000;
+    private static final int PIPELINE_SIZE = 1000;
+
+    @Param({"1", "4"})
+    private int writers;
+
+    private RedisTarget target;
+    private Redis redis;
+    private String[] keys;
+    private String value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(16);
+        redis = target.getRedis();
+        keys = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            keys[i] = "bench:bulk:" + i;
+        }
+        StringBuilder builder = new StringBuilder(64);
+        while (builder.length() < 64) {
+            builder.append('v');
+        }
+        value = builder.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public BulkResult bulk() throws InterruptedException {
+        return BulkLoader.of(redis, writers, 10_000, 1024 * 1024, 100).load(commands());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void pipelined() {
+        for (int start = 0; start < RECORDS; start += PIPELINE_SIZE) {
+            int from = start;
+            redis.pipelined(pipeline -> {
+                for (int i = from; i < from + PIPELINE_SIZE; i++) {
+                    pipeline.set(keys[i], value);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void oneByOne() {
+        for (String key : keys) {
+            redis.set(key, value);
+        }
+    }
+
+    private Iterator<String[]> commands() {
+        return new Iterator<String[]>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < RECORDS;
+            }
+
+            @Override
+            public String[] next() {
+                return new String[]{"SET", keys[next++], value};
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条命令的延迟分布, 走 {@link Redis} 门面的完整路径(借连接、执行、归还)
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 10:30
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+
+    private static final RedisScript ECHO_SCRIPT = RedisScript.of("return ARGV[1]");
+
+    private RedisTarget target;
+    private Redis redis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(16);
+        redis = target.getRedis();
+        redis.set("bench:string", "value");
+        redis.hset("bench:hash", "field", "value");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    public String get() {
+        return redis.get("bench:string");
+    }
+
+    @Benchmark
+    public String set() {
+        return redis.set("bench:string", "value");
+    }
+
+    @Benchmark
+    public String hget() {
+        return redis.hget("bench:hash", "field");
+    }
+
+    @Benchmark
+    public Long incr() {
+        return redis.incr("bench:counter");
+    }
+
+    @Benchmark
+    public Object evalsha(Scripting scripting) {
+        return redis.eval(ECHO_SCRIPT, Collections.<String>emptyList(), Collections.singletonList("value"));
+    }
+
+    /** 只有 evalsha 需要脚本, 单独检查, 不影响其他命令在 stub 上运行 **/
+    @State(Scope.Benchmark)
+    public static class Scripting {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RedisTarget.requireScripting("CommandBenchmark.evalsha");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.hpl.bench;
+
+import com.hpl.compress.CompressionCodec;
+import com.hpl.compress.Lz4Codec;
+import com.hpl.compress.ValueCompressor;
+import com.hpl.compress.ZstdCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各压缩算法的 CPU 开销和压缩率, 不访问 redis
+ * <p>
+ * encode/decode 的结果是每个 value 的耗时; encode 的 rawBytes / storedBytes 两个计数器之比就是压缩率
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 11:40
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"lz4", "zstd", "zstdDict"})
+    private String codec;
+
+    @Param({"512", "4096"})
+    private int valueSize;
+
+    private ValueCompressor compressor;
+    private byte[][] raw;
+    private byte[][] stored;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        raw = new byte[SAMPLES][];
+        for (int i = 0; i < SAMPLES; i++) {
+            raw[i] = sampleJson(random, valueSize);
+        }
+        compressor = ValueCompressor.of(codec(), 0);
+        stored = new byte[SAMPLES][];
+        for (int i = 0; i < SAMPLES; i++) {
+            stored[i] = compressor.encode(raw[i]);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(Sizes sizes) {
+        byte[] value = raw[nextIndex()];
+        byte[] encoded = compressor.encode(value);
+        sizes.rawBytes += value.length;
+        sizes.storedBytes += encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return compressor.decode(stored[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+    private CompressionCodec codec() {
+        if ("lz4".equals(codec)) {
+            return Lz4Codec.create();
+        }
+        if ("zstd".equals(codec)) {
+            return ZstdCodec.create();
+        }
+        Random random = new Random(7L);
+        List<byte[]> samples = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            samples.add(sampleJson(random, valueSize));
+        }
+        return ZstdCodec.withDictionary((byte) 3, 3, ZstdCodec.trainDictionary(samples, 16 * 1024));
+    }
+
+    /* 结构相同、字段值不同的 json, 接近业务里的缓存对象 */
+    private static byte[] sampleJson(Random random, int size) {
+        StringBuilder builder = new StringBuilder(size + 128).append('[');
+        while (builder.length() < size) {
+            builder.append("{\"userId\":").append(random.nextInt(1_000_000))
+                    .append(",\"nickname\":\"user").append(random.nextInt(10_000))
+                    .append("\",\"level\":").append(random.nextInt(100))
+                    .append(",\"vip\":").append(random.nextBoolean())
+                    .append(",\"tags\":[\"tag").append(random.nextInt(20)).append("\"]},");
+        }
+        builder.setCharAt(builder.length() - 1, ']');
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+        public long rawBytes;
+        public long storedBytes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.hpl.bench;
+
+import com.hpl.queue.DelayQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 延迟队列端到端吞吐: 每次调用投递 BATCH 个到期任务, 等拉取线程全部领取、执行并确认后结束
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 11:20
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DelayQueueBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"100", "500"})
+    private int claimBatch;
+
+    private RedisTarget target;
+    private DelayQueue queue;
+    private ExecutorService workers;
+    private final AtomicLong handled = new AtomicLong();
+    private long expected;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RedisTarget.requireScripting("DelayQueueBenchmark");
+        target = RedisTarget.start(32);
+        queue = DelayQueue.of(target.getRedis(), "bench:delay");
+        workers = Executors.newFixedThreadPool(8);
+        queue.start(job -> handled.incrementAndGet(), workers, claimBatch, claimBatch * 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        queue.stop();
+        workers.shutdown();
+        target.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void offerAndHandle() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            queue.offer("payload", 0L, TimeUnit.MILLISECONDS);
+        }
+        expected += BATCH;
+        while (handled.get() < expected) {
+            Thread.sleep(0L, 100_000);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.hpl.bench;
+
+import com.hpl.lock.SetnxLock;
+import com.hpl.redis.Redis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁在竞争下的获取/释放: lockKeys 为1时所有线程抢同一把锁, 越大竞争越小
+ * <p>
+ * acquired 是成功拿到锁的吞吐, attempt 是包括失败在内的 tryLock 吞吐
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 10:50
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LockBenchmark {
+
+    @Param({"1", "8", "64"})
+    private int lockKeys;
+
+    private RedisTarget target;
+    private Redis redis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(64);
+        redis = target.getRedis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    public void attempt(Blackhole blackhole) {
+        SetnxLock lock = SetnxLock.defaultLock(redis, "bench:lock:" + ThreadLocalRandom.current().nextInt(lockKeys));
+        boolean locked = lock.tryLock();
+        if (locked) {
+            lock.unLock();
+        }
+        blackhole.consume(locked);
+    }
+
+    @Benchmark
+    public void acquired() {
+        SetnxLock lock = SetnxLock.defaultLock(redis, "bench:lock:" + ThreadLocalRandom.current().nextInt(lockKeys));
+        while (!lock.tryLock()) {
+            Thread.yield();
+        }
+        lock.unLock();
+    }
+}
@@ -0,0 +1,105 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Redis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多 key 操作: 原生多 key 命令、pipeline 和逐条命令的对比
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 10:40
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultiKeyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int keyCount;
+
+    private RedisTarget target;
+    private Redis redis;
+    private String[] keys;
+    private String[] keysValues;
+    private Map<String, String> hash;
+    private String[] fields;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(16);
+        redis = target.getRedis();
+        keys = new String[keyCount];
+        keysValues = new String[keyCount * 2];
+        hash = new HashMap<>(keyCount * 2);
+        fields = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "bench:multi:" + i;
+            keysValues[i * 2] = keys[i];
+            keysValues[i * 2 + 1] = "value" + i;
+            fields[i] = "field" + i;
+            hash.put(fields[i], "value" + i);
+        }
+        redis.mset(keysValues);
+        redis.hmset("bench:multi:hash", hash);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    public List<String> mget() {
+        return redis.mget(keys);
+    }
+
+    @Benchmark
+    public String mset() {
+        return redis.mset(keysValues);
+    }
+
+    @Benchmark
+    public List<String> hmget() {
+        return redis.hmget("bench:multi:hash", fields);
+    }
+
+    @Benchmark
+    public List<Object> pipelinedGet() {
+        return redis.pipelined(pipeline -> {
+            for (String key : keys) {
+                pipeline.get(key);
+            }
+        });
+    }
+
+    @Benchmark
+    public int sequentialGet() {
+        int found = 0;
+        for (String key : keys) {
+            if (redis.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,97 @@
+package com.hpl.bench;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hpl.cache.OffHeapCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 百万级 entry 时堆外缓存和堆内缓存(guava cache)的对比, 不访问 redis
+ * <p>
+ * 需要加 -prof gc 运行, 结果里的 gc.alloc.rate 和 gc.time 才是这里要比较的指标
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 11:50
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class NearCacheBenchmark {
+
+    private static final int VALUE_SIZE = 128;
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Param({"offHeap", "onHeap"})
+    private String cache;
+
+    @Param({"1000000"})
+    private int entries;
+
+    private OffHeapCache offHeap;
+    private Cache<String, byte[]> onHeap;
+    private String[] keys;
+    private byte[][] rawKeys;
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[entries];
+        rawKeys = new byte[entries][];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "bench:near:" + i;
+            rawKeys[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+        }
+        value = new byte[VALUE_SIZE];
+        ThreadLocalRandom.current().nextBytes(value);
+
+        if ("offHeap".equals(cache)) {
+            offHeap = OffHeapCache.create(entries, 192, 64);
+        } else {
+            onHeap = CacheBuilder.newBuilder().maximumSize(entries).concurrencyLevel(64)
+                    .expireAfterWrite(TTL_MILLIS, TimeUnit.MILLISECONDS).build();
+        }
+        for (int i = 0; i < entries; i++) {
+            put(i);
+        }
+    }
+
+    /* 90% 读 10% 写 */
+    @Benchmark
+    public Object readMostly() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(entries);
+        if (random.nextInt(10) == 0) {
+            put(index);
+            return null;
+        }
+        return offHeap != null ? offHeap.get(rawKeys[index]) : onHeap.getIfPresent(keys[index]);
+    }
+
+    private void put(int index) {
+        if (offHeap != null) {
+            offHeap.put(rawKeys[index], value, TTL_MILLIS);
+        } else {
+            onHeap.put(keys[index], value.clone());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Publisher;
+import com.hpl.redis.Redis;
+import com.hpl.redis.Subscriber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Jedis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * pub/sub 扇出吞吐: 每次调用发布 BATCH 条消息, 等所有订阅者都处理完才结束,
+ * 结果是每秒发布的消息数, 每秒投递的消息数还要乘以 subscribers
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 11:00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PubSubBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final String CHANNEL = "bench:channel";
+
+    @Param({"1", "4", "16"})
+    private int subscribers;
+
+    private RedisTarget target;
+    private Publisher publisher;
+    private ExecutorService handlerPool;
+    private final List<Subscriber> subscriberList = new ArrayList<>();
+    private final AtomicLong received = new AtomicLong();
+    private long expected;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(16);
+        Redis redis = target.getRedis();
+        publisher = Publisher.of(CHANNEL, redis);
+        handlerPool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < subscribers; i++) {
+            Subscriber subscriber = new Subscriber(redis, handlerPool);
+            subscriber.addMessageHandler(CHANNEL, message -> received.incrementAndGet());
+            subscriber.start();
+            subscriberList.add(subscriber);
+        }
+        awaitSubscribed(redis);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (Subscriber subscriber : subscriberList) {
+            subscriber.unSubscribe();
+        }
+        handlerPool.shutdown();
+        target.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void fanOut() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            publisher.publish("message");
+        }
+        expected += (long) BATCH * subscribers;
+        while (received.get() < expected) {
+            Thread.sleep(0L, 100_000);
+        }
+    }
+
+    private void awaitSubscribed(Redis redis) throws InterruptedException {
+        try (Jedis jedis = redis.newDedicatedJedis()) {
+            while (true) {
+                Map<String, String> numSub = jedis.pubsubNumSub(CHANNEL);
+                if (Integer.parseInt(numSub.get(CHANNEL)) >= subscribers) {
+                    return;
+                }
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+        }
+    }
+}
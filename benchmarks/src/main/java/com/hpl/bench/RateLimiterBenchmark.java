@@ -0,0 +1,65 @@
+package com.hpl.bench;
+
+import com.hpl.ratelimit.PreAllocatingRateLimiter;
+import com.hpl.ratelimit.RateLimiter;
+import com.hpl.ratelimit.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单节点每秒能发放的许可数. 限流速率设得足够大, 测的是限流器本身的开销而不是限流效果;
+ * preAllocated 模式下大部分 tryAcquire 只是本地 CAS
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 11:10
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final long PERMITS_PER_SECOND = 100_000_000L;
+
+    @Param({"tokenBucket", "preAllocated"})
+    private String mode;
+
+    private RedisTarget target;
+    private RateLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RedisTarget.requireScripting("RateLimiterBenchmark");
+        target = RedisTarget.start(16);
+        RateLimiter tokenBucket = TokenBucketRateLimiter.perSecond(target.getRedis(), "bench:limiter",
+                PERMITS_PER_SECOND);
+        limiter = "preAllocated".equals(mode) ? PreAllocatingRateLimiter.of(tokenBucket, 1000, 1000L) : tokenBucket;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        return limiter.tryAcquire();
+    }
+}
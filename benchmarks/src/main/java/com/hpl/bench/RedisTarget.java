@@ -0,0 +1,118 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Redis;
+import com.hpl.stub.RespServer;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.Jedis;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基准测试连接的 redis 服务端, 通过系统属性选择(fork 出的 JVM 用 -jvmArgsAppend 传入):
+ * <ul>
+ *     <li>bench.redis.server: redis-server 可执行文件的路径, 设置后在随机端口上启动一个不落盘的实例, 测试结束时关闭</li>
+ *     <li>bench.redis.host / bench.redis.port / bench.redis.auth: 连接已有的实例</li>
+ *     <li>都不设置时使用进程内的 {@link RespServer}, bench.redis.stub.latency 可以给每个回复加上固定延迟(毫秒).
+ *     RespServer 不支持 lua 脚本, 限流器、延迟队列等依赖脚本的基准测试需要真实的 redis,
+ *     它们在 @Setup 里调用 {@link #requireScripting(String)}, 没有配置真实 redis 时直接失败并提示</li>
+ * </ul>
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 10:10
+ */
+public final class RedisTarget {
+
+    private static final int TIMEOUT = 2000;
+
+    private final Process process;
+    private final RespServer stub;
+    private final Redis redis;
+
+    private RedisTarget(Process process, RespServer stub, Redis redis) {
+        this.process = process;
+        this.stub = stub;
+        this.redis = redis;
+    }
+
+    /** 连接池最多 maxTotal 个连接 **/
+    public static final RedisTarget start(int maxTotal) throws IOException, InterruptedException {
+        GenericObjectPoolConfig<Jedis> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+
+        String server = System.getProperty("bench.redis.server");
+        if (server != null) {
+            int port = freePort();
+            Process process = new ProcessBuilder(server, "--port", String.valueOf(port), "--save", "",
+                    "--appendonly", "no").redirectOutput(new File(System.getProperty("java.io.tmpdir"),
+                    "bench-redis-" + port + ".log")).redirectErrorStream(true).start();
+            Redis redis = new Redis(config, "127.0.0.1", port, null, TIMEOUT);
+            awaitReady(redis, process);
+            return new RedisTarget(process, null, redis);
+        }
+
+        String host = System.getProperty("bench.redis.host");
+        if (host != null) {
+            int port = Integer.getInteger("bench.redis.port", 6379);
+            Redis redis = new Redis(config, host, port, System.getProperty("bench.redis.auth"), TIMEOUT);
+            awaitReady(redis, null);
+            return new RedisTarget(null, null, redis);
+        }
+
+        RespServer stub = RespServer.start();
+        stub.setLatency(Long.getLong("bench.redis.stub.latency", 0L), 0L);
+        Redis redis = new Redis(config, "127.0.0.1", stub.getPort(), null, TIMEOUT);
+        awaitReady(redis, null);
+        return new RedisTarget(null, stub, redis);
+    }
+
+    /**
+     * 依赖 lua 脚本的基准测试在启动前调用: 没有配置真实的 redis 时抛出异常, 说明原因和配置方法,
+     * 而不是在测量过程中因为 stub 不认识 EVALSHA 报错
+     */
+    public static void requireScripting(String benchmark) {
+        if (System.getProperty("bench.redis.server") == null && System.getProperty("bench.redis.host") == null) {
+            throw new IllegalStateException(benchmark + " needs lua scripting, which the in-process RespServer does "
+                    + "not support. Run it against a real redis with -jvmArgsAppend \"-Dbench.redis.host=<host>\" or "
+                    + "\"-Dbench.redis.server=<path to redis-server>\", or exclude it with -e " + benchmark);
+        }
+    }
+
+    public Redis getRedis() {
+        return redis;
+    }
+
+    public void stop() throws InterruptedException, IOException {
+        if (stub != null) {
+            stub.close();
+        }
+        if (process != null) {
+            process.destroy();
+            process.waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void awaitReady(Redis redis, Process process) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (true) {
+            try (Jedis jedis = redis.newDedicatedJedis()) {
+                jedis.flushAll();
+                return;
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline || (process != null && !process.isAlive())) {
+                    throw new IllegalStateException("redis for benchmark is not available", e);
+                }
+                TimeUnit.MILLISECONDS.sleep(50L);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
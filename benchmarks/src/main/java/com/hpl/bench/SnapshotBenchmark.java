@@ -0,0 +1,97 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Redis;
+import com.hpl.snapshot.RestoreResult;
+import com.hpl.snapshot.SnapshotExporter;
+import com.hpl.snapshot.SnapshotImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 快照导出和导入 100000 个 key 的吞吐(每秒 key 数), 导出按 SCAN 的 COUNT 分组, 导入按并行线程数分组
+ * <p>
+ * 压测进程内的 stub 时服务端是单线程的瓶颈, 结果以真实 redis (-Dbench.redis.host) 为准
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 11:00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private static final int RECORDS = 100_000;
+    private static final String PATTERN = "bench:snapshot:*";
+
+    @Param({"100", "1000"})
+    private int count;
+
+    @Param({"1", "4"})
+    private int writers;
+
+    private RedisTarget target;
+    private Redis redis;
+    private Path exportFile;
+    private Path restoreFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(16);
+        redis = target.getRedis();
+        StringBuilder builder = new StringBuilder(64);
+        while (builder.length() < 64) {
+            builder.append('v');
+        }
+        String value = builder.toString();
+        for (int start = 0; start < RECORDS; start += 1000) {
+            int from = start;
+            redis.pipelined(pipeline -> {
+                for (int i = from; i < from + 1000; i++) {
+                    pipeline.set("bench:snapshot:" + i, value);
+                }
+            });
+        }
+        exportFile = Files.createTempFile("bench-export", ".snapshot");
+        restoreFile = Files.createTempFile("bench-restore", ".snapshot");
+        SnapshotExporter.of(redis).export(PATTERN, restoreFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(exportFile);
+        Files.deleteIfExists(restoreFile);
+        target.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long export() throws IOException {
+        return SnapshotExporter.of(redis, count, 1024 * 1024).export(PATTERN, exportFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public RestoreResult restore() throws IOException, InterruptedException {
+        return SnapshotImporter.of(redis, writers, count, 100).restore(restoreFile, true);
+    }
+}
@@ -0,0 +1,85 @@
+package com.hpl.bench;
+
+import com.hpl.lock.SetnxLock;
+import com.hpl.redis.Redis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 竞争下的读-改-写: hget 后 hset 加一, 对比 WATCH/MULTI/EXEC 乐观事务和 SetnxLock 加锁两种方式
+ * <p>
+ * counters 为1时所有线程更新同一个 key, 越大冲突越少. 两种方式的结果都不丢失更新
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/23 15:00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    @Param({"1", "8", "64"})
+    private int counters;
+
+    private RedisTarget target;
+    private Redis redis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        target = RedisTarget.start(64);
+        redis = target.getRedis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    public void optimistic() {
+        String key = "bench:cas:" + ThreadLocalRandom.current().nextInt(counters);
+        redis.transaction(Collections.singletonList(key), jedis -> {
+            long next = parse(jedis.hget(key, "n")) + 1;
+            return pipeline -> pipeline.hset(key, "n", String.valueOf(next));
+        }, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void locked() {
+        String key = "bench:cas:" + ThreadLocalRandom.current().nextInt(counters);
+        SetnxLock lock = SetnxLock.defaultLock(redis, key + ":lock");
+        while (!lock.tryLock()) {
+            Thread.yield();
+        }
+        try {
+            long next = parse(redis.hget(key, "n")) + 1;
+            redis.hset(key, "n", String.valueOf(next));
+        } finally {
+            lock.unLock();
+        }
+    }
+
+    private static long parse(String value) {
+        return value == null ? 0L : Long.parseLong(value);
+    }
+}
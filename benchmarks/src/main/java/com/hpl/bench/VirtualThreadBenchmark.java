@@ -0,0 +1,128 @@
+package com.hpl.bench;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.ThreadAffinity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 100000 个虚拟线程同时调用 redis 门面的吞吐(每秒命令数): 每次调用先创建全部虚拟线程,
+ * 等它们都就绪后一起放行, 各执行一次 get, 全部完成才结束
+ * <p>
+ * 1. pool: 走 jedispool, 虚拟线程在池的 ReentrantLock 条件上排队等连接
+ * 2. striped: {@link ThreadAffinity#striped(int)}, 虚拟线程按 id 分到固定的几个长连接上
+ * <p>
+ * 构建目标是 Java 8, 虚拟线程通过反射调用 Thread.ofVirtual() 创建, 需要在 JDK 21 及以上运行.
+ * 更低版本的 JDK 上 {@link BenchmarkMain} 会跳过它; 直接用 JMH 的入口运行时在 @Setup 里失败并提示
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 10:30
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    private static final int CALLERS = 100_000;
+    private static final int POOL_SIZE = 64;
+    private static final String KEY = "bench:virtual";
+
+    @Param({"pool", "striped"})
+    private String mode;
+
+    private RedisTarget target;
+    private Redis redis;
+    private ThreadFactory factory;
+
+    /** 当前 JVM 是否支持虚拟线程 **/
+    static boolean isSupported() {
+        return virtualThreadFactory() != null;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        factory = virtualThreadFactory();
+        if (factory == null) {
+            throw new IllegalStateException("VirtualThreadBenchmark needs virtual threads, which this JVM ("
+                    + System.getProperty("java.version") + ") does not provide. Run it on JDK 21 or later, "
+                    + "or exclude it with -e VirtualThreadBenchmark");
+        }
+        target = RedisTarget.start(POOL_SIZE);
+        redis = target.getRedis();
+        redis.set(KEY, "value");
+        if ("striped".equals(mode)) {
+            redis.useThreadAffinity(ThreadAffinity.striped(POOL_SIZE / 4));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        target.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLERS)
+    public void get() throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(CALLERS);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(CALLERS);
+        AtomicInteger failed = new AtomicInteger();
+        Runnable caller = () -> {
+            try {
+                ready.countDown();
+                go.await();
+                if (redis.get(KEY) == null) {
+                    failed.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            } finally {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < CALLERS; i++) {
+            factory.newThread(caller).start();
+        }
+        ready.await();
+        go.countDown();
+        done.await();
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " of " + CALLERS + " virtual-thread callers failed");
+        }
+    }
+
+    /* Thread.ofVirtual().factory(), JDK 21 以下(或 19/20 未开启预览)返回null */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,1580 @@
+package com.hpl.stub;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 单个 db 的数据和数据命令的执行, 只在服务端的 selector 线程上访问, 不需要加锁
+ * <p>
+ * 过期采用惰性删除: 访问到已过期的 key 时才删除
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 14:30
+ */
+final class Keyspace {
+
+    private static final String STRING = "string";
+    private static final String HASH = "hash";
+    private static final String LIST = "list";
+    private static final String SET = "set";
+    private static final String ZSET = "zset";
+    private static final String DUMP_PREFIX = "STUB1";
+    private static final String SCAN_END = "0";
+
+    /* 按 key 排序, SCAN 用上一页最后一个 key 定位下一页, 不需要每次排序全部 key */
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    private final Random random = new Random();
+
+    /** 执行一条数据命令, args 的第一个元素是大写的命令名; 不认识的命令返回null **/
+    byte[] execute(List<String> args) {
+        try {
+            return dispatch(args.get(0), args);
+        } catch (WrongTypeException e) {
+            return Reply.WRONG_TYPE;
+        } catch (NumberFormatException e) {
+            return Reply.NOT_INTEGER;
+        } catch (IndexOutOfBoundsException e) {
+            return Reply.error("ERR wrong number of arguments for '" + args.get(0).toLowerCase() + "' command");
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private byte[] dispatch(String command, List<String> args) {
+        switch (command) {
+            // key
+            case "DEL":
+            case "UNLINK":
+                return del(args);
+            case "EXISTS":
+                return exists(args);
+            case "EXPIRE":
+                return expireAt(args.get(1), now() + Long.parseLong(args.get(2)) * 1000L);
+            case "PEXPIRE":
+                return expireAt(args.get(1), now() + Long.parseLong(args.get(2)));
+            case "EXPIREAT":
+                return expireAt(args.get(1), Long.parseLong(args.get(2)) * 1000L);
+            case "PEXPIREAT":
+                return expireAt(args.get(1), Long.parseLong(args.get(2)));
+            case "TTL":
+                return ttl(args.get(1), 1000L);
+            case "PTTL":
+                return ttl(args.get(1), 1L);
+            case "PERSIST":
+                return persist(args.get(1));
+            case "TYPE":
+                return type(args.get(1));
+            case "RENAME":
+                return rename(args.get(1), args.get(2));
+            case "DUMP":
+                return dump(args.get(1));
+            case "RESTORE":
+                return restore(args);
+            case "KEYS":
+                return keys(args.get(1));
+            case "SCAN":
+                return scan(args);
+            case "DBSIZE":
+                return Reply.integer(liveKeys().size());
+            case "FLUSHALL":
+            case "FLUSHDB":
+                entries.clear();
+                return Reply.OK;
+            // string
+            case "GET":
+                return Reply.bulk(getString(args.get(1)));
+            case "SET":
+                return set(args);
+            case "SETNX":
+                return Reply.bool(setIfAbsent(args.get(1), args.get(2)));
+            case "SETEX":
+                return setWithTtl(args.get(1), Long.parseLong(args.get(2)) * 1000L, args.get(3));
+            case "PSETEX":
+                return setWithTtl(args.get(1), Long.parseLong(args.get(2)), args.get(3));
+            case "GETSET":
+                return getSet(args.get(1), args.get(2));
+            case "GETDEL":
+                return getDel(args.get(1));
+            case "MGET":
+                return mget(args);
+            case "MSET":
+                return mset(args);
+            case "MSETNX":
+                return msetnx(args);
+            case "INCR":
+                return incrBy(args.get(1), 1L);
+            case "DECR":
+                return incrBy(args.get(1), -1L);
+            case "INCRBY":
+                return incrBy(args.get(1), Long.parseLong(args.get(2)));
+            case "DECRBY":
+                return incrBy(args.get(1), -Long.parseLong(args.get(2)));
+            case "INCRBYFLOAT":
+                return incrByFloat(args.get(1), args.get(2));
+            case "APPEND":
+                return append(args.get(1), args.get(2));
+            case "STRLEN":
+                return strlen(args.get(1));
+            case "GETRANGE":
+            case "SUBSTR":
+                return getRange(args.get(1), Long.parseLong(args.get(2)), Long.parseLong(args.get(3)));
+            case "SETRANGE":
+                return setRange(args.get(1), Integer.parseInt(args.get(2)), args.get(3));
+            // bitmap
+            case "SETBIT":
+                return setBit(args.get(1), Long.parseLong(args.get(2)), args.get(3));
+            case "GETBIT":
+                return getBit(args.get(1), Long.parseLong(args.get(2)));
+            case "BITCOUNT":
+                return bitCount(args);
+            // hash
+            case "HSET":
+            case "HMSET":
+                return hset(command, args);
+            case "HSETNX":
+                return hsetnx(args.get(1), args.get(2), args.get(3));
+            case "HGET":
+                return hget(args.get(1), args.get(2));
+            case "HMGET":
+                return hmget(args);
+            case "HGETALL":
+                return hgetAll(args.get(1));
+            case "HDEL":
+                return hdel(args);
+            case "HEXISTS":
+                return hexists(args.get(1), args.get(2));
+            case "HLEN":
+                return hlen(args.get(1));
+            case "HKEYS":
+                return hkeys(args.get(1), true);
+            case "HVALS":
+                return hkeys(args.get(1), false);
+            case "HINCRBY":
+                return hincrBy(args.get(1), args.get(2), Long.parseLong(args.get(3)));
+            case "HINCRBYFLOAT":
+                return hincrByFloat(args.get(1), args.get(2), args.get(3));
+            case "HSCAN":
+                return hscan(args);
+            // list
+            case "LPUSH":
+                return push(args, true, false);
+            case "RPUSH":
+                return push(args, false, false);
+            case "LPUSHX":
+                return push(args, true, true);
+            case "RPUSHX":
+                return push(args, false, true);
+            case "LPOP":
+                return pop(args, true);
+            case "RPOP":
+                return pop(args, false);
+            case "LLEN":
+                return llen(args.get(1));
+            case "LRANGE":
+                return lrange(args.get(1), Long.parseLong(args.get(2)), Long.parseLong(args.get(3)));
+            case "LINDEX":
+                return lindex(args.get(1), Long.parseLong(args.get(2)));
+            case "LSET":
+                return lset(args.get(1), Long.parseLong(args.get(2)), args.get(3));
+            case "LREM":
+                return lrem(args.get(1), Long.parseLong(args.get(2)), args.get(3));
+            case "LTRIM":
+                return ltrim(args.get(1), Long.parseLong(args.get(2)), Long.parseLong(args.get(3)));
+            case "RPOPLPUSH":
+                return lmove(args.get(1), args.get(2), false, true);
+            case "LMOVE":
+                return lmove(args.get(1), args.get(2), "LEFT".equalsIgnoreCase(args.get(3)),
+                        "LEFT".equalsIgnoreCase(args.get(4)));
+            // set
+            case "SADD":
+                return sadd(args);
+            case "SREM":
+                return srem(args);
+            case "SMEMBERS":
+                return smembers(args.get(1));
+            case "SISMEMBER":
+                return sismember(args.get(1), args.get(2));
+            case "SCARD":
+                return scard(args.get(1));
+            case "SPOP":
+                return spop(args.get(1));
+            case "SRANDMEMBER":
+                return srandmember(args.get(1));
+            case "SINTER":
+                return sinter(args);
+            case "SUNION":
+                return sunion(args);
+            case "SSCAN":
+                return sscan(args);
+            // zset
+            case "ZADD":
+                return zadd(args);
+            case "ZINCRBY":
+                return zincrBy(args.get(1), parseDouble(args.get(2)), args.get(3));
+            case "ZREM":
+                return zrem(args);
+            case "ZSCORE":
+                return zscore(args.get(1), args.get(2));
+            case "ZCARD":
+                return zcard(args.get(1));
+            case "ZRANK":
+                return zrank(args.get(1), args.get(2), false);
+            case "ZREVRANK":
+                return zrank(args.get(1), args.get(2), true);
+            case "ZRANGE":
+                return zrange(args, false);
+            case "ZREVRANGE":
+                return zrange(args, true);
+            case "ZRANGEBYSCORE":
+                return zrangeByScore(args, false);
+            case "ZREVRANGEBYSCORE":
+                return zrangeByScore(args, true);
+            case "ZCOUNT":
+                return zcount(args.get(1), args.get(2), args.get(3));
+            case "ZREMRANGEBYSCORE":
+                return zremRangeByScore(args.get(1), args.get(2), args.get(3));
+            case "ZREMRANGEBYRANK":
+                return zremRangeByRank(args.get(1), Long.parseLong(args.get(2)), Long.parseLong(args.get(3)));
+            case "ZSCAN":
+                return zscan(args);
+            default:
+                return null;
+        }
+    }
+
+    /* ---------------- key ---------------- */
+
+    private byte[] del(List<String> args) {
+        long removed = 0L;
+        for (int i = 1; i < args.size(); i++) {
+            if (lookup(args.get(i)) != null) {
+                entries.remove(args.get(i));
+                removed++;
+            }
+        }
+        return Reply.integer(removed);
+    }
+
+    private byte[] exists(List<String> args) {
+        long count = 0L;
+        for (int i = 1; i < args.size(); i++) {
+            if (lookup(args.get(i)) != null) {
+                count++;
+            }
+        }
+        return Reply.integer(count);
+    }
+
+    private byte[] expireAt(String key, long expireAt) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            return Reply.ZERO;
+        }
+        if (expireAt <= now()) {
+            entries.remove(key);
+        } else {
+            entry.expireAt = expireAt;
+        }
+        return Reply.ONE;
+    }
+
+    private byte[] ttl(String key, long unit) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            return Reply.integer(-2L);
+        }
+        if (entry.expireAt == 0L) {
+            return Reply.integer(-1L);
+        }
+        return Reply.integer((entry.expireAt - now() + unit - 1) / unit);
+    }
+
+    private byte[] persist(String key) {
+        Entry entry = lookup(key);
+        if (entry == null || entry.expireAt == 0L) {
+            return Reply.ZERO;
+        }
+        entry.expireAt = 0L;
+        return Reply.ONE;
+    }
+
+    private byte[] type(String key) {
+        Entry entry = lookup(key);
+        return Reply.simple(entry == null ? "none" : entry.type);
+    }
+
+    private byte[] rename(String key, String newKey) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            return Reply.error("ERR no such key");
+        }
+        entries.remove(key);
+        entries.put(newKey, entry);
+        return Reply.OK;
+    }
+
+    /*
+     * DUMP 的结果不是 RDB 格式, 只保证本服务端自己能 RESTORE:
+     * 前缀之后每个元素都是 "长度:内容", 第一个元素是类型名, zset 的分数按字符串存放
+     */
+    private byte[] dump(String key) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            return Reply.NULL_BULK;
+        }
+        StringBuilder payload = new StringBuilder(DUMP_PREFIX);
+        appendDumpElement(payload, entry.type);
+        switch (entry.type) {
+            case STRING:
+                appendDumpElement(payload, (String) entry.value);
+                break;
+            case HASH:
+                for (Map.Entry<String, String> field : hash(key).entrySet()) {
+                    appendDumpElement(payload, field.getKey());
+                    appendDumpElement(payload, field.getValue());
+                }
+                break;
+            case LIST:
+                for (String item : list(key)) {
+                    appendDumpElement(payload, item);
+                }
+                break;
+            case SET:
+                for (String member : set(key)) {
+                    appendDumpElement(payload, member);
+                }
+                break;
+            default:
+                SortedSet zset = zset(key);
+                for (String member : zset.members()) {
+                    appendDumpElement(payload, member);
+                    appendDumpElement(payload, Double.toString(zset.score(member)));
+                }
+                break;
+        }
+        return Reply.bulk(payload.toString());
+    }
+
+    private static void appendDumpElement(StringBuilder payload, String element) {
+        payload.append(element.length()).append(':').append(element);
+    }
+
+    /* RESTORE key ttl payload [REPLACE] */
+    private byte[] restore(List<String> args) {
+        String key = args.get(1);
+        long ttl = Long.parseLong(args.get(2));
+        String payload = args.get(3);
+        boolean replace = false;
+        for (int i = 4; i < args.size(); i++) {
+            if (!"REPLACE".equalsIgnoreCase(args.get(i))) {
+                return Reply.SYNTAX_ERROR;
+            }
+            replace = true;
+        }
+        if (ttl < 0L) {
+            return Reply.error("ERR Invalid TTL value, must be >= 0");
+        }
+        if (!replace && lookup(key) != null) {
+            return Reply.error("BUSYKEY Target key name already exists.");
+        }
+        if (!payload.startsWith(DUMP_PREFIX)) {
+            return Reply.error("ERR DUMP payload version or checksum are wrong");
+        }
+        List<String> elements = new ArrayList<>();
+        int position = DUMP_PREFIX.length();
+        while (position < payload.length()) {
+            int colon = payload.indexOf(':', position);
+            if (colon < 0) {
+                return Reply.error("ERR Bad data format");
+            }
+            int end = colon + 1 + Integer.parseInt(payload.substring(position, colon));
+            if (end > payload.length()) {
+                return Reply.error("ERR Bad data format");
+            }
+            elements.add(payload.substring(colon + 1, end));
+            position = end;
+        }
+        if (elements.isEmpty()) {
+            return Reply.error("ERR Bad data format");
+        }
+        String type = elements.remove(0);
+        Entry entry;
+        switch (type) {
+            case STRING:
+                if (elements.size() != 1) {
+                    return Reply.error("ERR Bad data format");
+                }
+                entry = new Entry(STRING, elements.get(0));
+                break;
+            case SET:
+                entry = new Entry(SET, new LinkedHashSet<>(elements));
+                break;
+            case HASH:
+                Map<String, String> hash = new LinkedHashMap<>();
+                for (int i = 0; i + 1 < elements.size(); i += 2) {
+                    hash.put(elements.get(i), elements.get(i + 1));
+                }
+                entry = new Entry(HASH, hash);
+                break;
+            case LIST:
+                entry = new Entry(LIST, new ArrayList<>(elements));
+                break;
+            case ZSET:
+                SortedSet zset = new SortedSet();
+                for (int i = 0; i + 1 < elements.size(); i += 2) {
+                    zset.put(elements.get(i), Double.parseDouble(elements.get(i + 1)));
+                }
+                entry = new Entry(ZSET, zset);
+                break;
+            default:
+                return Reply.error("ERR Bad data format");
+        }
+        entry.expireAt = ttl == 0L ? 0L : now() + ttl;
+        entries.put(key, entry);
+        return Reply.OK;
+    }
+
+    private byte[] keys(String pattern) {
+        Pattern regex = globToRegex(pattern);
+        List<String> result = new ArrayList<>();
+        for (String key : liveKeys()) {
+            if (regex.matcher(key).matches()) {
+                result.add(key);
+            }
+        }
+        return Reply.array(result);
+    }
+
+    /* 游标编码了上一页检查过的最后一个 key, 每页只访问 COUNT 个 key */
+    private byte[] scan(List<String> args) {
+        String after = decodeCursor(args.get(1));
+        int count = 10;
+        Pattern match = null;
+        String type = null;
+        for (int i = 2; i < args.size(); i++) {
+            String option = args.get(i).toUpperCase();
+            if ("COUNT".equals(option)) {
+                count = Integer.parseInt(args.get(++i));
+            } else if ("MATCH".equals(option)) {
+                match = globToRegex(args.get(++i));
+            } else if ("TYPE".equals(option)) {
+                type = args.get(++i).toLowerCase();
+            } else {
+                return Reply.SYNTAX_ERROR;
+            }
+        }
+        long now = now();
+        Iterator<Map.Entry<String, Entry>> iterator = (after == null ? entries : entries.tailMap(after, false))
+                .entrySet().iterator();
+        List<String> page = new ArrayList<>();
+        String last = null;
+        for (int examined = 0; examined < Math.max(count, 1) && iterator.hasNext(); examined++) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            last = entry.getKey();
+            if (entry.getValue().expired(now)) {
+                iterator.remove();
+                continue;
+            }
+            if ((match == null || match.matcher(last).matches()) && (type == null || type.equals(entry.getValue().type))) {
+                page.add(last);
+            }
+        }
+        List<byte[]> reply = new ArrayList<>(2);
+        reply.add(Reply.bulk(iterator.hasNext() ? encodeCursor(last) : SCAN_END));
+        reply.add(Reply.array(page));
+        return Reply.nested(reply);
+    }
+
+    /* 游标必须是数字: 把 0x01 和 key 的字节拼起来当作一个大整数, 开头的 0x01 保证不会是0且能还原出前导的0字节 */
+    private static String encodeCursor(String key) {
+        byte[] bytes = new byte[key.length() + 1];
+        bytes[0] = 1;
+        byte[] raw = key.getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(raw, 0, bytes, 1, raw.length);
+        return new BigInteger(1, bytes).toString();
+    }
+
+    /* 返回上一页的最后一个 key, 起始游标返回null */
+    private static String decodeCursor(String cursor) {
+        if (SCAN_END.equals(cursor)) {
+            return null;
+        }
+        byte[] bytes = new BigInteger(cursor).toByteArray();
+        return new String(bytes, 1, bytes.length - 1, StandardCharsets.ISO_8859_1);
+    }
+
+    /* ---------------- string ---------------- */
+
+    private byte[] set(List<String> args) {
+        String key = args.get(1);
+        String value = args.get(2);
+        boolean nx = false;
+        boolean xx = false;
+        boolean keepTtl = false;
+        boolean get = false;
+        long expireAt = 0L;
+        for (int i = 3; i < args.size(); i++) {
+            String option = args.get(i).toUpperCase();
+            switch (option) {
+                case "NX":
+                    nx = true;
+                    break;
+                case "XX":
+                    xx = true;
+                    break;
+                case "KEEPTTL":
+                    keepTtl = true;
+                    break;
+                case "GET":
+                    get = true;
+                    break;
+                case "EX":
+                    expireAt = now() + Long.parseLong(args.get(++i)) * 1000L;
+                    break;
+                case "PX":
+                    expireAt = now() + Long.parseLong(args.get(++i));
+                    break;
+                case "EXAT":
+                    expireAt = Long.parseLong(args.get(++i)) * 1000L;
+                    break;
+                case "PXAT":
+                    expireAt = Long.parseLong(args.get(++i));
+                    break;
+                default:
+                    return Reply.SYNTAX_ERROR;
+            }
+        }
+        Entry old = lookup(key);
+        String oldValue = get ? getString(key) : null;
+        if ((nx && old != null) || (xx && old == null)) {
+            return get ? Reply.bulk(oldValue) : Reply.NULL_BULK;
+        }
+        Entry entry = new Entry(STRING, value);
+        entry.expireAt = keepTtl && old != null ? old.expireAt : expireAt;
+        entries.put(key, entry);
+        return get ? Reply.bulk(oldValue) : Reply.OK;
+    }
+
+    private boolean setIfAbsent(String key, String value) {
+        if (lookup(key) != null) {
+            return false;
+        }
+        entries.put(key, new Entry(STRING, value));
+        return true;
+    }
+
+    private byte[] setWithTtl(String key, long ttlMillis, String value) {
+        if (ttlMillis <= 0) {
+            return Reply.error("ERR invalid expire time in 'setex' command");
+        }
+        Entry entry = new Entry(STRING, value);
+        entry.expireAt = now() + ttlMillis;
+        entries.put(key, entry);
+        return Reply.OK;
+    }
+
+    private byte[] getSet(String key, String value) {
+        String old = getString(key);
+        entries.put(key, new Entry(STRING, value));
+        return Reply.bulk(old);
+    }
+
+    private byte[] getDel(String key) {
+        String old = getString(key);
+        entries.remove(key);
+        return Reply.bulk(old);
+    }
+
+    private byte[] mget(List<String> args) {
+        List<String> values = new ArrayList<>(args.size() - 1);
+        for (int i = 1; i < args.size(); i++) {
+            Entry entry = lookup(args.get(i));
+            values.add(entry != null && entry.type.equals(STRING) ? (String) entry.value : null);
+        }
+        return Reply.array(values);
+    }
+
+    private byte[] mset(List<String> args) {
+        if (args.size() < 3 || args.size() % 2 == 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int i = 1; i < args.size(); i += 2) {
+            entries.put(args.get(i), new Entry(STRING, args.get(i + 1)));
+        }
+        return Reply.OK;
+    }
+
+    private byte[] msetnx(List<String> args) {
+        for (int i = 1; i < args.size(); i += 2) {
+            if (lookup(args.get(i)) != null) {
+                return Reply.ZERO;
+            }
+        }
+        mset(args);
+        return Reply.ONE;
+    }
+
+    private byte[] incrBy(String key, long delta) {
+        String old = getString(key);
+        long value;
+        try {
+            value = old == null ? 0L : Long.parseLong(old);
+        } catch (NumberFormatException e) {
+            return Reply.NOT_INTEGER;
+        }
+        value += delta;
+        putString(key, Long.toString(value));
+        return Reply.integer(value);
+    }
+
+    private byte[] incrByFloat(String key, String delta) {
+        String old = getString(key);
+        double value;
+        try {
+            value = (old == null ? 0D : Double.parseDouble(old)) + Double.parseDouble(delta);
+        } catch (NumberFormatException e) {
+            return Reply.NOT_FLOAT;
+        }
+        String formatted = Reply.formatDouble(value);
+        putString(key, formatted);
+        return Reply.bulk(formatted);
+    }
+
+    private byte[] append(String key, String suffix) {
+        String old = getString(key);
+        String value = old == null ? suffix : old + suffix;
+        putString(key, value);
+        return Reply.integer(value.length());
+    }
+
+    private byte[] strlen(String key) {
+        String value = getString(key);
+        return Reply.integer(value == null ? 0L : value.length());
+    }
+
+    private byte[] getRange(String key, long from, long to) {
+        String value = getString(key);
+        if (value == null) {
+            return Reply.bulk("");
+        }
+        long[] range = normalize(from, to, value.length());
+        return Reply.bulk(range == null ? "" : value.substring((int) range[0], (int) range[1] + 1));
+    }
+
+    private byte[] setRange(String key, int offset, String patch) {
+        String old = getString(key);
+        StringBuilder builder = new StringBuilder(old == null ? "" : old);
+        while (builder.length() < offset + patch.length()) {
+            builder.append('\0');
+        }
+        builder.replace(offset, offset + patch.length(), patch);
+        putString(key, builder.toString());
+        return Reply.integer(builder.length());
+    }
+
+    /* ---------------- bitmap ---------------- */
+
+    private byte[] setBit(String key, long offset, String bit) {
+        String old = getString(key);
+        byte[] bytes = old == null ? new byte[0] : old.getBytes(StandardCharsets.ISO_8859_1);
+        int index = (int) (offset >>> 3);
+        if (index >= bytes.length) {
+            byte[] grown = new byte[index + 1];
+            System.arraycopy(bytes, 0, grown, 0, bytes.length);
+            bytes = grown;
+        }
+        int mask = 0x80 >>> (int) (offset & 7);
+        boolean previous = (bytes[index] & mask) != 0;
+        if ("1".equals(bit)) {
+            bytes[index] |= mask;
+        } else if ("0".equals(bit)) {
+            bytes[index] &= ~mask;
+        } else {
+            return Reply.error("ERR bit is not an integer or out of range");
+        }
+        putString(key, new String(bytes, StandardCharsets.ISO_8859_1));
+        return Reply.bool(previous);
+    }
+
+    private byte[] getBit(String key, long offset) {
+        String value = getString(key);
+        int index = (int) (offset >>> 3);
+        if (value == null || index >= value.length()) {
+            return Reply.ZERO;
+        }
+        return Reply.bool((value.charAt(index) & (0x80 >>> (int) (offset & 7))) != 0);
+    }
+
+    private byte[] bitCount(List<String> args) {
+        String value = getString(args.get(1));
+        if (value == null) {
+            return Reply.ZERO;
+        }
+        long from = 0L;
+        long to = -1L;
+        if (args.size() >= 4) {
+            from = Long.parseLong(args.get(2));
+            to = Long.parseLong(args.get(3));
+        }
+        long[] range = normalize(from, to, value.length());
+        long count = 0L;
+        if (range != null) {
+            for (int i = (int) range[0]; i <= range[1]; i++) {
+                count += Integer.bitCount(value.charAt(i) & 0xFF);
+            }
+        }
+        return Reply.integer(count);
+    }
+
+    /* ---------------- hash ---------------- */
+
+    private byte[] hset(String command, List<String> args) {
+        if (args.size() < 4 || args.size() % 2 != 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        Map<String, String> hash = hashForWrite(args.get(1));
+        long added = 0L;
+        for (int i = 2; i < args.size(); i += 2) {
+            if (hash.put(args.get(i), args.get(i + 1)) == null) {
+                added++;
+            }
+        }
+        return "HMSET".equals(command) ? Reply.OK : Reply.integer(added);
+    }
+
+    private byte[] hsetnx(String key, String field, String value) {
+        Map<String, String> hash = hashForWrite(key);
+        if (hash.containsKey(field)) {
+            return Reply.ZERO;
+        }
+        hash.put(field, value);
+        return Reply.ONE;
+    }
+
+    private byte[] hget(String key, String field) {
+        Map<String, String> hash = hash(key);
+        return Reply.bulk(hash == null ? null : hash.get(field));
+    }
+
+    private byte[] hmget(List<String> args) {
+        Map<String, String> hash = hash(args.get(1));
+        List<String> values = new ArrayList<>(args.size() - 2);
+        for (int i = 2; i < args.size(); i++) {
+            values.add(hash == null ? null : hash.get(args.get(i)));
+        }
+        return Reply.array(values);
+    }
+
+    private byte[] hgetAll(String key) {
+        Map<String, String> hash = hash(key);
+        if (hash == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        List<String> values = new ArrayList<>(hash.size() * 2);
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            values.add(entry.getKey());
+            values.add(entry.getValue());
+        }
+        return Reply.array(values);
+    }
+
+    private byte[] hdel(List<String> args) {
+        Map<String, String> hash = hash(args.get(1));
+        if (hash == null) {
+            return Reply.ZERO;
+        }
+        long removed = 0L;
+        for (int i = 2; i < args.size(); i++) {
+            if (hash.remove(args.get(i)) != null) {
+                removed++;
+            }
+        }
+        removeIfEmpty(args.get(1), hash.isEmpty());
+        return Reply.integer(removed);
+    }
+
+    private byte[] hexists(String key, String field) {
+        Map<String, String> hash = hash(key);
+        return Reply.bool(hash != null && hash.containsKey(field));
+    }
+
+    private byte[] hlen(String key) {
+        Map<String, String> hash = hash(key);
+        return Reply.integer(hash == null ? 0L : hash.size());
+    }
+
+    private byte[] hkeys(String key, boolean keys) {
+        Map<String, String> hash = hash(key);
+        if (hash == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        return Reply.array(keys ? hash.keySet() : hash.values());
+    }
+
+    private byte[] hincrBy(String key, String field, long delta) {
+        Map<String, String> hash = hashForWrite(key);
+        String old = hash.get(field);
+        long value;
+        try {
+            value = (old == null ? 0L : Long.parseLong(old)) + delta;
+        } catch (NumberFormatException e) {
+            return Reply.error("ERR hash value is not an integer");
+        }
+        hash.put(field, Long.toString(value));
+        return Reply.integer(value);
+    }
+
+    private byte[] hincrByFloat(String key, String field, String delta) {
+        Map<String, String> hash = hashForWrite(key);
+        String old = hash.get(field);
+        double value;
+        try {
+            value = (old == null ? 0D : Double.parseDouble(old)) + Double.parseDouble(delta);
+        } catch (NumberFormatException e) {
+            return Reply.NOT_FLOAT;
+        }
+        String formatted = Reply.formatDouble(value);
+        hash.put(field, formatted);
+        return Reply.bulk(formatted);
+    }
+
+    private byte[] hscan(List<String> args) {
+        Map<String, String> hash = hash(args.get(1));
+        List<String> fields = hash == null ? Collections.<String>emptyList() : new ArrayList<>(new TreeSet<>(hash.keySet()));
+        return scanReply(fields, args, 2, hash == null ? null : hash::get);
+    }
+
+    /* ---------------- list ---------------- */
+
+    private byte[] push(List<String> args, boolean left, boolean onlyIfExists) {
+        String key = args.get(1);
+        if (args.size() < 3) {
+            throw new IndexOutOfBoundsException();
+        }
+        List<String> list = list(key);
+        if (list == null) {
+            if (onlyIfExists) {
+                return Reply.ZERO;
+            }
+            list = new ArrayList<>();
+            entries.put(key, new Entry(LIST, list));
+        }
+        for (int i = 2; i < args.size(); i++) {
+            if (left) {
+                list.add(0, args.get(i));
+            } else {
+                list.add(args.get(i));
+            }
+        }
+        return Reply.integer(list.size());
+    }
+
+    private byte[] pop(List<String> args, boolean left) {
+        String key = args.get(1);
+        List<String> list = list(key);
+        if (args.size() > 2) {
+            int count = Integer.parseInt(args.get(2));
+            if (list == null) {
+                return Reply.NULL_ARRAY;
+            }
+            List<String> popped = new ArrayList<>();
+            while (popped.size() < count && !list.isEmpty()) {
+                popped.add(list.remove(left ? 0 : list.size() - 1));
+            }
+            removeIfEmpty(key, list.isEmpty());
+            return Reply.array(popped);
+        }
+        if (list == null) {
+            return Reply.NULL_BULK;
+        }
+        String value = list.remove(left ? 0 : list.size() - 1);
+        removeIfEmpty(key, list.isEmpty());
+        return Reply.bulk(value);
+    }
+
+    private byte[] llen(String key) {
+        List<String> list = list(key);
+        return Reply.integer(list == null ? 0L : list.size());
+    }
+
+    private byte[] lrange(String key, long from, long to) {
+        List<String> list = list(key);
+        if (list == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        long[] range = normalize(from, to, list.size());
+        if (range == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        return Reply.array(list.subList((int) range[0], (int) range[1] + 1));
+    }
+
+    private byte[] lindex(String key, long index) {
+        List<String> list = list(key);
+        if (list == null) {
+            return Reply.NULL_BULK;
+        }
+        long position = index < 0 ? list.size() + index : index;
+        return position < 0 || position >= list.size() ? Reply.NULL_BULK : Reply.bulk(list.get((int) position));
+    }
+
+    private byte[] lset(String key, long index, String value) {
+        List<String> list = list(key);
+        if (list == null) {
+            return Reply.error("ERR no such key");
+        }
+        long position = index < 0 ? list.size() + index : index;
+        if (position < 0 || position >= list.size()) {
+            return Reply.error("ERR index out of range");
+        }
+        list.set((int) position, value);
+        return Reply.OK;
+    }
+
+    private byte[] lrem(String key, long count, String value) {
+        List<String> list = list(key);
+        if (list == null) {
+            return Reply.ZERO;
+        }
+        long removed = 0L;
+        long limit = count == 0 ? Long.MAX_VALUE : Math.abs(count);
+        if (count >= 0) {
+            for (Iterator<String> iterator = list.iterator(); iterator.hasNext() && removed < limit; ) {
+                if (iterator.next().equals(value)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        } else {
+            for (int i = list.size() - 1; i >= 0 && removed < limit; i--) {
+                if (list.get(i).equals(value)) {
+                    list.remove(i);
+                    removed++;
+                }
+            }
+        }
+        removeIfEmpty(key, list.isEmpty());
+        return Reply.integer(removed);
+    }
+
+    private byte[] ltrim(String key, long from, long to) {
+        List<String> list = list(key);
+        if (list == null) {
+            return Reply.OK;
+        }
+        long[] range = normalize(from, to, list.size());
+        if (range == null) {
+            entries.remove(key);
+            return Reply.OK;
+        }
+        List<String> kept = new ArrayList<>(list.subList((int) range[0], (int) range[1] + 1));
+        list.clear();
+        list.addAll(kept);
+        return Reply.OK;
+    }
+
+    private byte[] lmove(String source, String destination, boolean fromLeft, boolean toLeft) {
+        List<String> from = list(source);
+        if (from == null) {
+            return Reply.NULL_BULK;
+        }
+        List<String> to = list(destination);
+        String value = from.remove(fromLeft ? 0 : from.size() - 1);
+        removeIfEmpty(source, from.isEmpty());
+        if (to == null) {
+            to = new ArrayList<>();
+            entries.put(destination, new Entry(LIST, to));
+        }
+        if (toLeft) {
+            to.add(0, value);
+        } else {
+            to.add(value);
+        }
+        return Reply.bulk(value);
+    }
+
+    /* ---------------- set ---------------- */
+
+    private byte[] sadd(List<String> args) {
+        if (args.size() < 3) {
+            throw new IndexOutOfBoundsException();
+        }
+        Set<String> set = set(args.get(1));
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            entries.put(args.get(1), new Entry(SET, set));
+        }
+        long added = 0L;
+        for (int i = 2; i < args.size(); i++) {
+            if (set.add(args.get(i))) {
+                added++;
+            }
+        }
+        return Reply.integer(added);
+    }
+
+    private byte[] srem(List<String> args) {
+        Set<String> set = set(args.get(1));
+        if (set == null) {
+            return Reply.ZERO;
+        }
+        long removed = 0L;
+        for (int i = 2; i < args.size(); i++) {
+            if (set.remove(args.get(i))) {
+                removed++;
+            }
+        }
+        removeIfEmpty(args.get(1), set.isEmpty());
+        return Reply.integer(removed);
+    }
+
+    private byte[] smembers(String key) {
+        Set<String> set = set(key);
+        return set == null ? Reply.EMPTY_ARRAY : Reply.array(set);
+    }
+
+    private byte[] sismember(String key, String member) {
+        Set<String> set = set(key);
+        return Reply.bool(set != null && set.contains(member));
+    }
+
+    private byte[] scard(String key) {
+        Set<String> set = set(key);
+        return Reply.integer(set == null ? 0L : set.size());
+    }
+
+    private byte[] spop(String key) {
+        Set<String> set = set(key);
+        if (set == null) {
+            return Reply.NULL_BULK;
+        }
+        String member = randomMember(set);
+        set.remove(member);
+        removeIfEmpty(key, set.isEmpty());
+        return Reply.bulk(member);
+    }
+
+    private byte[] srandmember(String key) {
+        Set<String> set = set(key);
+        return set == null ? Reply.NULL_BULK : Reply.bulk(randomMember(set));
+    }
+
+    private byte[] sinter(List<String> args) {
+        Set<String> result = null;
+        for (int i = 1; i < args.size(); i++) {
+            Set<String> set = set(args.get(i));
+            if (set == null) {
+                return Reply.EMPTY_ARRAY;
+            }
+            if (result == null) {
+                result = new LinkedHashSet<>(set);
+            } else {
+                result.retainAll(set);
+            }
+        }
+        return result == null ? Reply.EMPTY_ARRAY : Reply.array(result);
+    }
+
+    private byte[] sunion(List<String> args) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 1; i < args.size(); i++) {
+            Set<String> set = set(args.get(i));
+            if (set != null) {
+                result.addAll(set);
+            }
+        }
+        return Reply.array(result);
+    }
+
+    private byte[] sscan(List<String> args) {
+        Set<String> set = set(args.get(1));
+        List<String> members = set == null ? Collections.<String>emptyList() : new ArrayList<>(new TreeSet<>(set));
+        return scanReply(members, args, 2, null);
+    }
+
+    /* ---------------- zset ---------------- */
+
+    private byte[] zadd(List<String> args) {
+        String key = args.get(1);
+        boolean nx = false;
+        boolean xx = false;
+        boolean ch = false;
+        boolean incr = false;
+        int i = 2;
+        for (; i < args.size(); i++) {
+            String option = args.get(i).toUpperCase();
+            if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else if ("CH".equals(option)) {
+                ch = true;
+            } else if ("INCR".equals(option)) {
+                incr = true;
+            } else {
+                break;
+            }
+        }
+        if (i >= args.size() || (args.size() - i) % 2 != 0) {
+            return Reply.SYNTAX_ERROR;
+        }
+        SortedSet zset = zsetForWrite(key);
+        long changed = 0L;
+        Double last = null;
+        for (; i < args.size(); i += 2) {
+            double score = parseDouble(args.get(i));
+            String member = args.get(i + 1);
+            Double old = zset.score(member);
+            if ((nx && old != null) || (xx && old == null)) {
+                last = null;
+                continue;
+            }
+            if (incr) {
+                score += old == null ? 0D : old;
+            }
+            boolean added = zset.put(member, score);
+            if (added || (ch && old != null && old != score)) {
+                changed++;
+            }
+            last = score;
+        }
+        removeIfEmpty(key, zset.size() == 0);
+        if (incr) {
+            return last == null ? Reply.NULL_BULK : Reply.bulk(Reply.formatDouble(last));
+        }
+        return Reply.integer(changed);
+    }
+
+    private byte[] zincrBy(String key, double delta, String member) {
+        SortedSet zset = zsetForWrite(key);
+        Double old = zset.score(member);
+        double score = (old == null ? 0D : old) + delta;
+        zset.put(member, score);
+        return Reply.bulk(Reply.formatDouble(score));
+    }
+
+    private byte[] zrem(List<String> args) {
+        SortedSet zset = zset(args.get(1));
+        if (zset == null) {
+            return Reply.ZERO;
+        }
+        long removed = 0L;
+        for (int i = 2; i < args.size(); i++) {
+            if (zset.remove(args.get(i))) {
+                removed++;
+            }
+        }
+        removeIfEmpty(args.get(1), zset.size() == 0);
+        return Reply.integer(removed);
+    }
+
+    private byte[] zscore(String key, String member) {
+        SortedSet zset = zset(key);
+        Double score = zset == null ? null : zset.score(member);
+        return score == null ? Reply.NULL_BULK : Reply.bulk(Reply.formatDouble(score));
+    }
+
+    private byte[] zcard(String key) {
+        SortedSet zset = zset(key);
+        return Reply.integer(zset == null ? 0L : zset.size());
+    }
+
+    private byte[] zrank(String key, String member, boolean reverse) {
+        SortedSet zset = zset(key);
+        int rank = zset == null ? -1 : zset.rank(member);
+        if (rank < 0) {
+            return Reply.NULL_BULK;
+        }
+        return Reply.integer(reverse ? zset.size() - 1 - rank : rank);
+    }
+
+    private byte[] zrange(List<String> args, boolean reverse) {
+        SortedSet zset = zset(args.get(1));
+        long from = Long.parseLong(args.get(2));
+        long to = Long.parseLong(args.get(3));
+        boolean withScores = args.size() > 4 && "WITHSCORES".equalsIgnoreCase(args.get(4));
+        if (zset == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        long[] range = normalize(from, to, zset.size());
+        if (range == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        return zsetReply(zset, rankRange(zset, (int) range[0], (int) range[1], reverse), withScores);
+    }
+
+    /* 按名次取 [from, to], reverse 时名次按分数从大到小计算 */
+    private static List<String> rankRange(SortedSet zset, int from, int to, boolean reverse) {
+        if (!reverse) {
+            return zset.range(from, to);
+        }
+        int size = zset.size();
+        List<String> members = zset.range(size - 1 - to, size - 1 - from);
+        Collections.reverse(members);
+        return members;
+    }
+
+    /* 分数在 [min, max] 之内的成员的名次区间 [start, end) */
+    private static int[] scoreRange(SortedSet zset, ScoreBound min, ScoreBound max) {
+        int start = zset.countBelow(min.value, min.exclusive);
+        int end = zset.countBelow(max.value, !max.exclusive);
+        return new int[]{start, Math.max(start, end)};
+    }
+
+    private byte[] zrangeByScore(List<String> args, boolean reverse) {
+        SortedSet zset = zset(args.get(1));
+        ScoreBound min = ScoreBound.parse(args.get(reverse ? 3 : 2));
+        ScoreBound max = ScoreBound.parse(args.get(reverse ? 2 : 3));
+        boolean withScores = false;
+        long offset = 0L;
+        long count = -1L;
+        for (int i = 4; i < args.size(); i++) {
+            String option = args.get(i).toUpperCase();
+            if ("WITHSCORES".equals(option)) {
+                withScores = true;
+            } else if ("LIMIT".equals(option)) {
+                offset = Long.parseLong(args.get(++i));
+                count = Long.parseLong(args.get(++i));
+            } else {
+                return Reply.SYNTAX_ERROR;
+            }
+        }
+        if (zset == null) {
+            return Reply.EMPTY_ARRAY;
+        }
+        int[] range = scoreRange(zset, min, max);
+        long matched = range[1] - range[0];
+        if (offset < 0 || offset >= matched) {
+            return Reply.EMPTY_ARRAY;
+        }
+        long limit = count < 0 ? matched - offset : Math.min(count, matched - offset);
+        if (limit == 0) {
+            return Reply.EMPTY_ARRAY;
+        }
+        // 在匹配的区间里按方向跳过 offset 个, 换算成名次区间
+        int from = (int) (reverse ? range[1] - offset - limit : range[0] + offset);
+        List<String> members = zset.range(from, (int) (from + limit - 1));
+        if (reverse) {
+            Collections.reverse(members);
+        }
+        return zsetReply(zset, members, withScores);
+    }
+
+    private byte[] zcount(String key, String minArg, String maxArg) {
+        SortedSet zset = zset(key);
+        if (zset == null) {
+            return Reply.ZERO;
+        }
+        int[] range = scoreRange(zset, ScoreBound.parse(minArg), ScoreBound.parse(maxArg));
+        return Reply.integer(range[1] - range[0]);
+    }
+
+    private byte[] zremRangeByScore(String key, String minArg, String maxArg) {
+        SortedSet zset = zset(key);
+        if (zset == null) {
+            return Reply.ZERO;
+        }
+        int[] range = scoreRange(zset, ScoreBound.parse(minArg), ScoreBound.parse(maxArg));
+        for (String member : zset.range(range[0], range[1] - 1)) {
+            zset.remove(member);
+        }
+        removeIfEmpty(key, zset.size() == 0);
+        return Reply.integer(range[1] - range[0]);
+    }
+
+    private byte[] zremRangeByRank(String key, long from, long to) {
+        SortedSet zset = zset(key);
+        if (zset == null) {
+            return Reply.ZERO;
+        }
+        long[] range = normalize(from, to, zset.size());
+        if (range == null) {
+            return Reply.ZERO;
+        }
+        for (String member : zset.range((int) range[0], (int) range[1])) {
+            zset.remove(member);
+        }
+        removeIfEmpty(key, zset.size() == 0);
+        return Reply.integer(range[1] - range[0] + 1);
+    }
+
+    private byte[] zscan(List<String> args) {
+        SortedSet zset = zset(args.get(1));
+        if (zset == null) {
+            return scanReply(Collections.<String>emptyList(), args, 2, null);
+        }
+        // 游标是名次, 按名次的视图取一页只需要 O(COUNT * log N)
+        return scanReply(zset.ranked(), args, 2, member -> Reply.formatDouble(zset.score(member)));
+    }
+
+    private static byte[] zsetReply(SortedSet zset, List<String> members, boolean withScores) {
+        if (!withScores) {
+            return Reply.array(members);
+        }
+        List<String> values = new ArrayList<>(members.size() * 2);
+        for (String member : members) {
+            values.add(member);
+            values.add(Reply.formatDouble(zset.score(member)));
+        }
+        return Reply.array(values);
+    }
+
+    /* ---------------- helpers ---------------- */
+
+    /**
+     * SCAN 系列命令的回复, 游标就是 items 里的下标, 所以 items 的顺序在两次调用之间必须稳定
+     *
+     * @param values 不为null时每个元素后面跟上它的值(HSCAN/ZSCAN)
+     */
+    private static byte[] scanReply(List<String> items, List<String> args, int cursorIndex,
+                                    Function<String, String> values) {
+        int cursor = Integer.parseInt(args.get(cursorIndex));
+        int count = 10;
+        Pattern match = null;
+        for (int i = cursorIndex + 1; i < args.size(); i++) {
+            String option = args.get(i).toUpperCase();
+            if ("COUNT".equals(option)) {
+                count = Integer.parseInt(args.get(++i));
+            } else if ("MATCH".equals(option)) {
+                match = globToRegex(args.get(++i));
+            } else if ("TYPE".equals(option)) {
+                i++;
+            } else {
+                return Reply.SYNTAX_ERROR;
+            }
+        }
+        int end = Math.min(items.size(), cursor + Math.max(count, 1));
+        List<String> page = new ArrayList<>();
+        for (int i = cursor; i < end; i++) {
+            String item = items.get(i);
+            if (match == null || match.matcher(item).matches()) {
+                page.add(item);
+                if (values != null) {
+                    page.add(values.apply(item));
+                }
+            }
+        }
+        List<byte[]> reply = new ArrayList<>(2);
+        reply.add(Reply.bulk(Integer.toString(end >= items.size() ? 0 : end)));
+        reply.add(Reply.array(page));
+        return Reply.nested(reply);
+    }
+
+    /* 把 [from, to] 换算成 [0, size) 之内的闭区间, 为空时返回null */
+    private static long[] normalize(long from, long to, int size) {
+        if (from < 0) {
+            from = Math.max(size + from, 0);
+        }
+        if (to < 0) {
+            to = size + to;
+        }
+        if (to >= size) {
+            to = size - 1;
+        }
+        if (from > to || from >= size) {
+            return null;
+        }
+        return new long[]{from, to};
+    }
+
+    static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                case '[':
+                    int close = glob.indexOf(']', i + 1);
+                    if (close < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, close).replace("\\", "\\\\").replace("[", "\\[");
+                        regex.append('[').append(set).append(']');
+                        i = close;
+                    }
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static double parseDouble(String value) {
+        String lower = value.toLowerCase();
+        if ("inf".equals(lower) || "+inf".equals(lower)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-inf".equals(lower)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private String randomMember(Set<String> set) {
+        int index = random.nextInt(set.size());
+        Iterator<String> iterator = set.iterator();
+        for (int i = 0; i < index; i++) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    private Set<String> liveKeys() {
+        long now = now();
+        entries.values().removeIf(entry -> entry.expired(now));
+        return entries.keySet();
+    }
+
+    private Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expired(now())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private Object typed(String key, String type) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.type.equals(type)) {
+            throw new WrongTypeException();
+        }
+        return entry.value;
+    }
+
+    private String getString(String key) {
+        return (String) typed(key, STRING);
+    }
+
+    /* 修改字符串的值, 保留原有的过期时间 */
+    private void putString(String key, String value) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            entries.put(key, new Entry(STRING, value));
+        } else {
+            entry.value = value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> hash(String key) {
+        return (Map<String, String>) typed(key, HASH);
+    }
+
+    private Map<String, String> hashForWrite(String key) {
+        Map<String, String> hash = hash(key);
+        if (hash == null) {
+            hash = new LinkedHashMap<>();
+            entries.put(key, new Entry(HASH, hash));
+        }
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> list(String key) {
+        return (List<String>) typed(key, LIST);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> set(String key) {
+        return (Set<String>) typed(key, SET);
+    }
+
+    private SortedSet zset(String key) {
+        return (SortedSet) typed(key, ZSET);
+    }
+
+    private SortedSet zsetForWrite(String key) {
+        SortedSet zset = zset(key);
+        if (zset == null) {
+            zset = new SortedSet();
+            entries.put(key, new Entry(ZSET, zset));
+        }
+        return zset;
+    }
+
+    /* 集合类型的最后一个元素被删除时 key 随之删除, 与 redis 一致 */
+    private void removeIfEmpty(String key, boolean empty) {
+        if (empty) {
+            entries.remove(key);
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+
+    private static final class Entry {
+
+        final String type;
+        Object value;
+        /* 过期的时间戳(毫秒), 0 表示不过期 */
+        long expireAt;
+
+        Entry(String type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        boolean expired(long now) {
+            return expireAt != 0L && expireAt <= now;
+        }
+    }
+
+    /* ZRANGEBYSCORE 等命令的分数边界, 支持 -inf / +inf 和 "(" 开区间 */
+    private static final class ScoreBound {
+
+        final double value;
+        final boolean exclusive;
+
+        private ScoreBound(double value, boolean exclusive) {
+            this.value = value;
+            this.exclusive = exclusive;
+        }
+
+        static ScoreBound parse(String arg) {
+            if (arg.startsWith("(")) {
+                return new ScoreBound(parseDouble(arg.substring(1)), true);
+            }
+            return new ScoreBound(parseDouble(arg), false);
+        }
+    }
+
+    private static final class WrongTypeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        WrongTypeException() {
+            super(null, null, false, false);
+        }
+    }
+}
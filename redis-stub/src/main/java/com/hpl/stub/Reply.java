@@ -0,0 +1,129 @@
+package com.hpl.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * RESP2 回复的编码. 字符串一律按 ISO-8859-1 和字节一一对应, 二进制的 key / value 原样往返
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 14:00
+ */
+final class Reply {
+
+    static final byte[] OK = simple("OK");
+    static final byte[] PONG = simple("PONG");
+    static final byte[] QUEUED = simple("QUEUED");
+    static final byte[] NULL_BULK = "$-1\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    static final byte[] NULL_ARRAY = "*-1\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    static final byte[] ZERO = integer(0L);
+    static final byte[] ONE = integer(1L);
+    static final byte[] EMPTY_ARRAY = "*0\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    static final byte[] WRONG_TYPE = error("WRONGTYPE Operation against a key holding the wrong kind of value");
+    static final byte[] SYNTAX_ERROR = error("ERR syntax error");
+    static final byte[] NOT_INTEGER = error("ERR value is not an integer or out of range");
+    static final byte[] NOT_FLOAT = error("ERR value is not a valid float");
+
+    private Reply() {
+    }
+
+    static byte[] simple(String value) {
+        return ("+" + value + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] error(String message) {
+        return ("-" + message + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] integer(long value) {
+        return (":" + value + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] bool(boolean value) {
+        return value ? ONE : ZERO;
+    }
+
+    static byte[] bulk(String value) {
+        if (value == null) {
+            return NULL_BULK;
+        }
+        Builder builder = new Builder();
+        builder.bulk(value);
+        return builder.toByteArray();
+    }
+
+    /** 元素可以为null **/
+    static byte[] array(Collection<String> values) {
+        Builder builder = new Builder();
+        builder.arrayHeader(values.size());
+        for (String value : values) {
+            builder.bulk(value);
+        }
+        return builder.toByteArray();
+    }
+
+    /** 由已经编码好的回复组成的数组 **/
+    static byte[] nested(List<byte[]> replies) {
+        Builder builder = new Builder();
+        builder.arrayHeader(replies.size());
+        for (byte[] reply : replies) {
+            builder.raw(reply);
+        }
+        return builder.toByteArray();
+    }
+
+    static String formatDouble(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e17) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    static final class Builder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        Builder arrayHeader(int size) {
+            return line('*', Integer.toString(size));
+        }
+
+        Builder bulk(String value) {
+            if (value == null) {
+                return raw(NULL_BULK);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+            line('$', Integer.toString(bytes.length));
+            out.write(bytes, 0, bytes.length);
+            out.write('\r');
+            out.write('\n');
+            return this;
+        }
+
+        Builder integer(long value) {
+            return line(':', Long.toString(value));
+        }
+
+        Builder raw(byte[] reply) {
+            out.write(reply, 0, reply.length);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private Builder line(char type, String value) {
+            out.write(type);
+            byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+            out.write(bytes, 0, bytes.length);
+            out.write('\r');
+            out.write('\n');
+            return this;
+        }
+    }
+}
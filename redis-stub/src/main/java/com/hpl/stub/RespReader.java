@@ -0,0 +1,140 @@
+package com.hpl.stub;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 增量解析客户端发来的命令, 一次读到的数据里可以有多条命令(pipeline), 也可以只有半条
+ * <p>
+ * 支持 RESP 数组格式和 telnet 用的 inline 格式
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 14:10
+ */
+final class RespReader {
+
+    private static final int MAX_BULK = 512 * 1024 * 1024;
+
+    private byte[] data = new byte[16 * 1024];
+    private int start;
+    private int end;
+
+    /** 追加 buffer 里的全部数据 **/
+    void feed(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (end + length > data.length) {
+            int live = end - start;
+            if (live + length > data.length) {
+                data = Arrays.copyOfRange(data, start, start + Math.max(data.length * 2, live + length));
+            } else {
+                System.arraycopy(data, start, data, 0, live);
+            }
+            start = 0;
+            end = live;
+        }
+        buffer.get(data, end, length);
+        end += length;
+    }
+
+    /**
+     * 取出下一条完整的命令, 数据还不完整时返回null
+     *
+     * @throws ProtocolException 格式错误, 连接应当关闭
+     */
+    List<String> next() throws ProtocolException {
+        if (start == end) {
+            return null;
+        }
+        return data[start] == '*' ? nextMultiBulk() : nextInline();
+    }
+
+    private List<String> nextMultiBulk() throws ProtocolException {
+        int position = start + 1;
+        int lineEnd = findCrlf(position);
+        if (lineEnd < 0) {
+            return null;
+        }
+        int count = parseInt(position, lineEnd);
+        position = lineEnd + 2;
+        List<String> args = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            if (position >= end) {
+                return null;
+            }
+            if (data[position] != '$') {
+                throw new ProtocolException("expected '$', got '" + (char) data[position] + "'");
+            }
+            lineEnd = findCrlf(position + 1);
+            if (lineEnd < 0) {
+                return null;
+            }
+            int length = parseInt(position + 1, lineEnd);
+            if (length < 0 || length > MAX_BULK) {
+                throw new ProtocolException("invalid bulk length");
+            }
+            position = lineEnd + 2;
+            if (position + length + 2 > end) {
+                return null;
+            }
+            args.add(new String(data, position, length, StandardCharsets.ISO_8859_1));
+            position += length + 2;
+        }
+        start = position;
+        return args;
+    }
+
+    private List<String> nextInline() {
+        int lineEnd = findLf(start);
+        if (lineEnd < 0) {
+            return null;
+        }
+        int contentEnd = lineEnd > start && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+        String line = new String(data, start, contentEnd - start, StandardCharsets.ISO_8859_1).trim();
+        start = lineEnd + 1;
+        List<String> args = new ArrayList<>();
+        for (String arg : line.split("\\s+")) {
+            if (!arg.isEmpty()) {
+                args.add(arg);
+            }
+        }
+        return args;
+    }
+
+    private int findCrlf(int from) {
+        for (int i = from; i < end - 1; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int findLf(int from) {
+        for (int i = from; i < end; i++) {
+            if (data[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int parseInt(int from, int to) throws ProtocolException {
+        try {
+            return Integer.parseInt(new String(data, from, to - from, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("invalid length");
+        }
+    }
+
+    static final class ProtocolException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        ProtocolException(String message) {
+            super(message);
+        }
+    }
+}
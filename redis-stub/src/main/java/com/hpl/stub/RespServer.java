@@ -0,0 +1,845 @@
+package com.hpl.stub;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的 redis 协议服务端, 用于在没有真实 redis 的环境里测试和压测基于 {@code com.hpl.redis.Redis} 的代码
+ * <p>
+ * 与 redis 一样是单线程的: 一个 selector 线程负责全部连接的读写和命令执行. 支持 pipeline, 实现了门面用到的
+ * 字符串、hash、list、set、zset、bitmap、过期时间、pub/sub、WATCH / MULTI / EXEC 事务命令,
+ * 以及 RESP2 下带 REDIRECT 的 CLIENT TRACKING (默认模式和 BCAST 模式); 不支持 lua 脚本, EVAL / EVALSHA 返回错误
+ * <p>
+ * WATCH 和 CLIENT TRACKING 的判断比 redis 保守: 写命令的任意参数都被当作被修改的 key,
+ * 读命令的任意参数都被当作读过的 key; 过期删除不会让事务失败, 也不会发出失效通知
+ * <p>
+ * 故障注入(运行中随时可以修改):
+ * <ul>
+ *     <li>{@link #setLatency(long, long)}: 每个回复延迟固定时间加随机抖动, 同一连接上的回复保持顺序</li>
+ *     <li>{@link #setDropProbability(double)}: 每条命令按概率不执行、直接断开连接</li>
+ *     <li>{@link #disconnectAll()}: 立刻断开所有客户端连接</li>
+ * </ul>
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 15:00
+ */
+public class RespServer implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+
+    /* 会修改 key 的命令, 执行后让 watch 了参数里的 key 的事务失败 */
+    private static final Set<String> WRITE_COMMANDS = new HashSet<>(Arrays.asList(
+            "DEL", "UNLINK", "EXPIRE", "PEXPIRE", "EXPIREAT", "PEXPIREAT", "PERSIST", "RENAME", "RESTORE",
+            "FLUSHALL", "FLUSHDB",
+            "SET", "SETNX", "SETEX", "PSETEX", "GETSET", "GETDEL", "MSET", "MSETNX", "INCR", "DECR", "INCRBY",
+            "DECRBY", "INCRBYFLOAT", "APPEND", "SETRANGE", "SETBIT",
+            "HSET", "HMSET", "HSETNX", "HDEL", "HINCRBY", "HINCRBYFLOAT",
+            "LPUSH", "RPUSH", "LPUSHX", "RPUSHX", "LPOP", "RPOP", "LSET", "LREM", "LTRIM", "RPOPLPUSH", "LMOVE",
+            "SADD", "SREM", "SPOP",
+            "ZADD", "ZINCRBY", "ZREM", "ZREMRANGEBYSCORE", "ZREMRANGEBYRANK"));
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread thread;
+    private final Keyspace keyspace = new Keyspace();
+
+    /* 其他线程提交给 selector 线程执行的任务 */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final Set<Connection> connections = new HashSet<>();
+    /* 有延迟回复等待发送的连接 */
+    private final Set<Connection> delayed = new HashSet<>();
+    private final Map<String, Set<Connection>> channels = new HashMap<>();
+    private final Map<String, Set<Connection>> patterns = new HashMap<>();
+    /* 被 watch 的 key 对应的连接 */
+    private final Map<String, Set<Connection>> watchers = new HashMap<>();
+    /* CLIENT TRACKING 默认模式下 key 对应读过它的连接 */
+    private final Map<String, Set<Connection>> tracked = new HashMap<>();
+    /* CLIENT TRACKING BCAST 模式的连接 */
+    private final Set<Connection> broadcasters = new HashSet<>();
+    private long nextConnectionId;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private volatile long latencyNanos;
+    private volatile long jitterNanos;
+    private volatile double dropProbability;
+    private volatile boolean running = true;
+
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private RespServer(ServerSocketChannel serverChannel, Selector selector) {
+        this.serverChannel = serverChannel;
+        this.selector = selector;
+        this.thread = new Thread(this::loop, "resp-server-" + serverChannel.socket().getLocalPort());
+        this.thread.setDaemon(true);
+    }
+
+    /** 在随机空闲端口上启动 **/
+    public static final RespServer start() throws IOException {
+        return start(0);
+    }
+
+    /** 在指定端口上启动, port 为0时使用随机空闲端口 **/
+    public static final RespServer start(int port) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        Selector selector = null;
+        try {
+            serverChannel.bind(new InetSocketAddress("127.0.0.1", port));
+            serverChannel.configureBlocking(false);
+            selector = Selector.open();
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            if (selector != null) {
+                selector.close();
+            }
+            throw e;
+        }
+        RespServer server = new RespServer(serverChannel, selector);
+        server.thread.start();
+        return server;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * 每个回复延迟 latencyMillis 加上 [0, jitterMillis) 的随机时间后发送
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyNanos = latencyMillis * 1_000_000L;
+        this.jitterNanos = jitterMillis * 1_000_000L;
+    }
+
+    /** 每条命令有 probability 的概率不执行而是直接断开连接, 0 表示关闭 **/
+    public void setDropProbability(double probability) {
+        if (probability < 0D || probability > 1D) {
+            throw new IllegalArgumentException("probability must be in [0, 1]");
+        }
+        this.dropProbability = probability;
+    }
+
+    /** 断开所有客户端连接, 返回时已经全部断开 **/
+    public void disconnectAll() {
+        runOnLoop(() -> {
+            for (Connection connection : new ArrayList<>(connections)) {
+                close(connection);
+            }
+        });
+    }
+
+    /** 清空全部数据 **/
+    public void flushAll() {
+        runOnLoop(() -> {
+            keyspace.clear();
+            touchAll();
+            invalidate(Collections.singletonList("FLUSHALL"));
+        });
+    }
+
+    /** 当前的客户端连接数 **/
+    public int getConnectionCount() {
+        final int[] count = new int[1];
+        runOnLoop(() -> count[0] = connections.size());
+        return count[0];
+    }
+
+    /** 已处理的命令数 **/
+    public long getCommandCount() {
+        return commands.get();
+    }
+
+    /** 因故障注入而断开的连接数 **/
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* 在 selector 线程上执行 task 并等待完成 */
+    private void runOnLoop(Runnable task) {
+        if (Thread.currentThread() == thread) {
+            task.run();
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        tasks.add(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        selector.wakeup();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                selector.select(selectTimeoutMillis());
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(connection);
+                    }
+                }
+                releaseDelayed();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) {
+                close(connection);
+            }
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            try {
+                selector.close();
+                serverChannel.close();
+            } catch (IOException ignored) {
+                // 退出时忽略
+            }
+        }
+    }
+
+    private long selectTimeoutMillis() {
+        if (delayed.isEmpty()) {
+            return 0L;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (Connection connection : delayed) {
+            earliest = Math.min(earliest, connection.pending.peekFirst().dueNanos);
+        }
+        return Math.max(1L, (earliest - System.nanoTime() + 999_999L) / 1_000_000L);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel, ++nextConnectionId);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+    }
+
+    private void read(Connection connection) {
+        int read;
+        try {
+            readBuffer.clear();
+            read = connection.channel.read(readBuffer);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+        readBuffer.flip();
+        connection.reader.feed(readBuffer);
+        try {
+            List<String> args;
+            while (connection.open && (args = connection.reader.next()) != null) {
+                if (!args.isEmpty()) {
+                    handle(connection, args);
+                }
+            }
+        } catch (RespReader.ProtocolException e) {
+            reply(connection, Reply.error("ERR Protocol error: " + e.getMessage()));
+            connection.closeAfterFlush = true;
+        }
+    }
+
+    private void handle(Connection connection, List<String> args) {
+        commands.incrementAndGet();
+        double probability = dropProbability;
+        if (probability > 0D && ThreadLocalRandom.current().nextDouble() < probability) {
+            dropped.incrementAndGet();
+            close(connection);
+            return;
+        }
+        String command = args.get(0).toUpperCase();
+        args.set(0, command);
+
+        if (connection.subscriptionCount() > 0 && !isSubscribeCommand(command)) {
+            reply(connection, Reply.error("ERR only (P)SUBSCRIBE / (P)UNSUBSCRIBE / PING / QUIT are allowed in this context"));
+            return;
+        }
+        if (connection.queued != null && !isTransactionCommand(command)) {
+            connection.queued.add(args);
+            reply(connection, Reply.QUEUED);
+            return;
+        }
+        switch (command) {
+            case "PING":
+                if (connection.subscriptionCount() > 0) {
+                    reply(connection, Reply.array(Arrays.asList("pong", args.size() > 1 ? args.get(1) : "")));
+                } else {
+                    reply(connection, args.size() > 1 ? Reply.bulk(args.get(1)) : Reply.PONG);
+                }
+                return;
+            case "ECHO":
+                reply(connection, Reply.bulk(args.get(1)));
+                return;
+            case "QUIT":
+                reply(connection, Reply.OK);
+                connection.closeAfterFlush = true;
+                return;
+            case "CLIENT":
+                reply(connection, client(connection, args));
+                return;
+            case "AUTH":
+            case "SELECT":
+            case "READONLY":
+                reply(connection, Reply.OK);
+                return;
+            case "TIME":
+                long micros = System.currentTimeMillis() * 1000L;
+                reply(connection, Reply.array(Arrays.asList(Long.toString(micros / 1_000_000L),
+                        Long.toString(micros % 1_000_000L))));
+                return;
+            case "INFO":
+                reply(connection, Reply.bulk("# Server\r\nredis_version:6.2.0\r\nredis_mode:standalone\r\n"));
+                return;
+            case "EVAL":
+            case "EVALSHA":
+            case "SCRIPT":
+                reply(connection, Reply.error("ERR scripting is not supported by the stub server"));
+                return;
+            case "SUBSCRIBE":
+                subscribe(connection, args, channels, connection.channels, "subscribe");
+                return;
+            case "PSUBSCRIBE":
+                subscribe(connection, args, patterns, connection.patterns, "psubscribe");
+                return;
+            case "UNSUBSCRIBE":
+                unsubscribe(connection, args, channels, connection.channels, "unsubscribe");
+                return;
+            case "PUNSUBSCRIBE":
+                unsubscribe(connection, args, patterns, connection.patterns, "punsubscribe");
+                return;
+            case "PUBLISH":
+                reply(connection, Reply.integer(publish(args.get(1), args.get(2))));
+                return;
+            case "PUBSUB":
+                reply(connection, pubsub(args));
+                return;
+            case "MULTI":
+                if (connection.queued != null) {
+                    reply(connection, Reply.error("ERR MULTI calls can not be nested"));
+                    return;
+                }
+                connection.queued = new ArrayList<>();
+                reply(connection, Reply.OK);
+                return;
+            case "EXEC":
+                reply(connection, exec(connection));
+                return;
+            case "DISCARD":
+                if (connection.queued == null) {
+                    reply(connection, Reply.error("ERR DISCARD without MULTI"));
+                    return;
+                }
+                connection.queued = null;
+                unwatch(connection);
+                reply(connection, Reply.OK);
+                return;
+            case "WATCH":
+                if (connection.queued != null) {
+                    reply(connection, Reply.error("ERR WATCH inside MULTI is not allowed"));
+                    return;
+                }
+                for (int i = 1; i < args.size(); i++) {
+                    if (connection.watched.add(args.get(i))) {
+                        watchers.computeIfAbsent(args.get(i), k -> new HashSet<>()).add(connection);
+                    }
+                }
+                reply(connection, Reply.OK);
+                return;
+            case "UNWATCH":
+                unwatch(connection);
+                reply(connection, Reply.OK);
+                return;
+            default:
+                reply(connection, execute(connection, args));
+        }
+    }
+
+    private static boolean isTransactionCommand(String command) {
+        return "MULTI".equals(command) || "EXEC".equals(command) || "DISCARD".equals(command)
+                || "WATCH".equals(command) || "QUIT".equals(command);
+    }
+
+    /* ---------------- transaction ---------------- */
+
+    private byte[] execute(Connection connection, List<String> args) {
+        byte[] reply = keyspace.execute(args);
+        if (reply == null) {
+            return Reply.error("ERR unknown command '" + args.get(0).toLowerCase() + "'");
+        }
+        if (isWriteCommand(args.get(0))) {
+            invalidate(args);
+        } else if (connection.redirect != 0L && connection.prefixes == null) {
+            for (int i = 1; i < args.size(); i++) {
+                tracked.computeIfAbsent(args.get(i), k -> new HashSet<>()).add(connection);
+            }
+        }
+        if (!watchers.isEmpty() && isWriteCommand(args.get(0))) {
+            if ("FLUSHALL".equals(args.get(0)) || "FLUSHDB".equals(args.get(0))) {
+                touchAll();
+            } else {
+                for (int i = 1; i < args.size(); i++) {
+                    touch(args.get(i));
+                }
+            }
+        }
+        return reply;
+    }
+
+    /* ---------------- client tracking ---------------- */
+
+    private byte[] client(Connection connection, List<String> args) {
+        String sub = args.size() > 1 ? args.get(1).toUpperCase() : "";
+        if ("ID".equals(sub)) {
+            return Reply.integer(connection.id);
+        }
+        if (!"TRACKING".equals(sub)) {
+            return Reply.OK;
+        }
+        untrack(connection);
+        if (args.size() < 3 || !"ON".equalsIgnoreCase(args.get(2))) {
+            return Reply.OK;
+        }
+        long redirect = -1L;
+        List<String> prefixes = null;
+        for (int i = 3; i < args.size(); i++) {
+            String option = args.get(i).toUpperCase();
+            if ("REDIRECT".equals(option)) {
+                redirect = Long.parseLong(args.get(++i));
+            } else if ("BCAST".equals(option)) {
+                prefixes = prefixes == null ? new ArrayList<>() : prefixes;
+            } else if ("PREFIX".equals(option)) {
+                prefixes = prefixes == null ? new ArrayList<>() : prefixes;
+                prefixes.add(args.get(++i));
+            }
+        }
+        if (redirect <= 0L) {
+            return Reply.error("ERR the stub only supports tracking with REDIRECT");
+        }
+        connection.redirect = redirect;
+        if (prefixes != null) {
+            connection.prefixes = prefixes.isEmpty() ? Collections.singletonList("") : prefixes;
+            broadcasters.add(connection);
+        }
+        return Reply.OK;
+    }
+
+    /* 写命令的参数都当作被修改的 key, 通知跟踪了它们的客户端 */
+    private void invalidate(List<String> args) {
+        if (tracked.isEmpty() && broadcasters.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<String>> messages = new HashMap<>();
+        boolean flush = "FLUSHALL".equals(args.get(0)) || "FLUSHDB".equals(args.get(0));
+        if (flush) {
+            for (Set<Connection> readers : tracked.values()) {
+                for (Connection reader : readers) {
+                    messages.put(reader.redirect, null);
+                }
+            }
+            for (Connection broadcaster : broadcasters) {
+                messages.put(broadcaster.redirect, null);
+            }
+            tracked.clear();
+        }
+        for (int i = 1; i < args.size() && !flush; i++) {
+            String key = args.get(i);
+            Set<Connection> readers = tracked.remove(key);
+            if (readers != null) {
+                for (Connection reader : readers) {
+                    messages.computeIfAbsent(reader.redirect, k -> new LinkedHashSet<>()).add(key);
+                }
+            }
+            for (Connection broadcaster : broadcasters) {
+                for (String prefix : broadcaster.prefixes) {
+                    if (key.startsWith(prefix)) {
+                        messages.computeIfAbsent(broadcaster.redirect, k -> new LinkedHashSet<>()).add(key);
+                        break;
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Long, Set<String>> entry : messages.entrySet()) {
+            Connection target = byId(entry.getKey());
+            if (target == null) {
+                continue;
+            }
+            byte[] keys = entry.getValue() == null ? Reply.NULL_ARRAY : Reply.array(entry.getValue());
+            reply(target, new Reply.Builder().arrayHeader(3).bulk("message").bulk(INVALIDATE_CHANNEL).raw(keys)
+                    .toByteArray());
+        }
+    }
+
+    private void untrack(Connection connection) {
+        if (connection.redirect == 0L) {
+            return;
+        }
+        connection.redirect = 0L;
+        connection.prefixes = null;
+        broadcasters.remove(connection);
+        tracked.values().removeIf(readers -> readers.remove(connection) && readers.isEmpty());
+    }
+
+    private Connection byId(long id) {
+        for (Connection connection : connections) {
+            if (connection.id == id) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    private byte[] exec(Connection connection) {
+        List<List<String>> queued = connection.queued;
+        if (queued == null) {
+            return Reply.error("ERR EXEC without MULTI");
+        }
+        connection.queued = null;
+        boolean dirty = connection.dirty;
+        unwatch(connection);
+        if (dirty) {
+            return Reply.NULL_ARRAY;
+        }
+        List<byte[]> replies = new ArrayList<>(queued.size());
+        for (List<String> args : queued) {
+            replies.add(execute(connection, args));
+        }
+        return Reply.nested(replies);
+    }
+
+    private void touch(String key) {
+        Set<Connection> watching = watchers.get(key);
+        if (watching != null) {
+            for (Connection connection : watching) {
+                connection.dirty = true;
+            }
+        }
+    }
+
+    private void touchAll() {
+        for (Set<Connection> watching : watchers.values()) {
+            for (Connection connection : watching) {
+                connection.dirty = true;
+            }
+        }
+    }
+
+    private void unwatch(Connection connection) {
+        for (String key : connection.watched) {
+            removeSubscriber(watchers, key, connection);
+        }
+        connection.watched.clear();
+        connection.dirty = false;
+    }
+
+    private static boolean isWriteCommand(String command) {
+        return WRITE_COMMANDS.contains(command);
+    }
+
+    private static boolean isSubscribeCommand(String command) {
+        return "SUBSCRIBE".equals(command) || "PSUBSCRIBE".equals(command) || "UNSUBSCRIBE".equals(command)
+                || "PUNSUBSCRIBE".equals(command) || "PING".equals(command) || "QUIT".equals(command);
+    }
+
+    /* ---------------- pub/sub ---------------- */
+
+    private void subscribe(Connection connection, List<String> args, Map<String, Set<Connection>> registry,
+                           Set<String> own, String kind) {
+        for (int i = 1; i < args.size(); i++) {
+            String name = args.get(i);
+            if (own.add(name)) {
+                registry.computeIfAbsent(name, k -> new LinkedHashSet<>()).add(connection);
+            }
+            reply(connection, subscriptionReply(kind, name, connection.subscriptionCount()));
+        }
+    }
+
+    private void unsubscribe(Connection connection, List<String> args, Map<String, Set<Connection>> registry,
+                             Set<String> own, String kind) {
+        List<String> names = args.size() > 1 ? args.subList(1, args.size()) : new ArrayList<>(own);
+        if (names.isEmpty()) {
+            reply(connection, subscriptionReply(kind, null, connection.subscriptionCount()));
+            return;
+        }
+        for (String name : names) {
+            if (own.remove(name)) {
+                removeSubscriber(registry, name, connection);
+            }
+            reply(connection, subscriptionReply(kind, name, connection.subscriptionCount()));
+        }
+    }
+
+    private static byte[] subscriptionReply(String kind, String name, int count) {
+        return new Reply.Builder().arrayHeader(3).bulk(kind).bulk(name).integer(count).toByteArray();
+    }
+
+    private long publish(String channel, String message) {
+        long receivers = 0L;
+        Set<Connection> subscribers = channels.get(channel);
+        if (subscribers != null) {
+            byte[] reply = new Reply.Builder().arrayHeader(3).bulk("message").bulk(channel).bulk(message)
+                    .toByteArray();
+            for (Connection subscriber : subscribers) {
+                reply(subscriber, reply);
+                receivers++;
+            }
+        }
+        for (Map.Entry<String, Set<Connection>> entry : patterns.entrySet()) {
+            if (!Keyspace.globToRegex(entry.getKey()).matcher(channel).matches()) {
+                continue;
+            }
+            byte[] reply = new Reply.Builder().arrayHeader(4).bulk("pmessage").bulk(entry.getKey()).bulk(channel)
+                    .bulk(message).toByteArray();
+            for (Connection subscriber : entry.getValue()) {
+                reply(subscriber, reply);
+                receivers++;
+            }
+        }
+        return receivers;
+    }
+
+    private byte[] pubsub(List<String> args) {
+        String subcommand = args.get(1).toUpperCase();
+        if ("NUMSUB".equals(subcommand)) {
+            Reply.Builder builder = new Reply.Builder().arrayHeader((args.size() - 2) * 2);
+            for (int i = 2; i < args.size(); i++) {
+                Set<Connection> subscribers = channels.get(args.get(i));
+                builder.bulk(args.get(i)).integer(subscribers == null ? 0 : subscribers.size());
+            }
+            return builder.toByteArray();
+        }
+        if ("NUMPAT".equals(subcommand)) {
+            return Reply.integer(patterns.size());
+        }
+        if ("CHANNELS".equals(subcommand)) {
+            Pattern match = args.size() > 2 ? Keyspace.globToRegex(args.get(2)) : null;
+            List<String> names = new ArrayList<>();
+            for (String name : channels.keySet()) {
+                if (match == null || match.matcher(name).matches()) {
+                    names.add(name);
+                }
+            }
+            return Reply.array(names);
+        }
+        return Reply.error("ERR Unknown PUBSUB subcommand '" + args.get(1) + "'");
+    }
+
+    private static void removeSubscriber(Map<String, Set<Connection>> registry, String name, Connection connection) {
+        Set<Connection> subscribers = registry.get(name);
+        if (subscribers != null) {
+            subscribers.remove(connection);
+            if (subscribers.isEmpty()) {
+                registry.remove(name);
+            }
+        }
+    }
+
+    /* ---------------- 写回复 ---------------- */
+
+    private void reply(Connection connection, byte[] reply) {
+        if (!connection.open) {
+            return;
+        }
+        long latency = latencyNanos;
+        long jitter = jitterNanos;
+        if (latency <= 0L && jitter <= 0L && connection.pending.isEmpty()) {
+            connection.outbound.add(ByteBuffer.wrap(reply));
+            flush(connection);
+            return;
+        }
+        long delay = latency + (jitter > 0L ? ThreadLocalRandom.current().nextLong(jitter) : 0L);
+        // 回复不能超过前一个回复, 否则同一连接上的回复会乱序
+        long due = Math.max(System.nanoTime() + delay, connection.lastDueNanos);
+        connection.lastDueNanos = due;
+        connection.pending.addLast(new PendingReply(due, reply));
+        delayed.add(connection);
+    }
+
+    private void releaseDelayed() {
+        if (delayed.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Iterator<Connection> iterator = delayed.iterator(); iterator.hasNext(); ) {
+            Connection connection = iterator.next();
+            boolean released = false;
+            while (!connection.pending.isEmpty() && connection.pending.peekFirst().dueNanos <= now) {
+                connection.outbound.add(ByteBuffer.wrap(connection.pending.pollFirst().reply));
+                released = true;
+            }
+            if (connection.pending.isEmpty()) {
+                iterator.remove();
+            }
+            if (released) {
+                flush(connection);
+            }
+        }
+    }
+
+    private void flush(Connection connection) {
+        if (!connection.open) {
+            return;
+        }
+        try {
+            while (!connection.outbound.isEmpty()) {
+                ByteBuffer buffer = connection.outbound.peekFirst();
+                connection.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                connection.outbound.pollFirst();
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (connection.outbound.isEmpty()) {
+            if (connection.closeAfterFlush && connection.pending.isEmpty()) {
+                close(connection);
+                return;
+            }
+            connection.key.interestOps(SelectionKey.OP_READ);
+        } else {
+            connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (!connection.open) {
+            return;
+        }
+        connection.open = false;
+        connections.remove(connection);
+        delayed.remove(connection);
+        for (String channel : connection.channels) {
+            removeSubscriber(channels, channel, connection);
+        }
+        for (String pattern : connection.patterns) {
+            removeSubscriber(patterns, pattern, connection);
+        }
+        unwatch(connection);
+        untrack(connection);
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // 已经断开
+        }
+    }
+
+    private static final class Connection {
+
+        final SocketChannel channel;
+        final long id;
+        final RespReader reader = new RespReader();
+        final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        final ArrayDeque<PendingReply> pending = new ArrayDeque<>();
+        final Set<String> channels = new HashSet<>();
+        final Set<String> patterns = new HashSet<>();
+        final Set<String> watched = new HashSet<>();
+        /* MULTI 之后排队的命令, 不在事务中时为null */
+        List<List<String>> queued;
+        /* watch 的 key 被修改过 */
+        boolean dirty;
+        /* CLIENT TRACKING 的 REDIRECT 目标, 0 表示没有开启 */
+        long redirect;
+        /* BCAST 模式的前缀, 默认模式为null */
+        List<String> prefixes;
+        SelectionKey key;
+        long lastDueNanos;
+        boolean open = true;
+        boolean closeAfterFlush;
+
+        Connection(SocketChannel channel, long id) {
+            this.channel = channel;
+            this.id = id;
+        }
+
+        int subscriptionCount() {
+            return channels.size() + patterns.size();
+        }
+    }
+
+    private static final class PendingReply {
+
+        final long dueNanos;
+        final byte[] reply;
+
+        PendingReply(long dueNanos, byte[] reply) {
+            this.dueNanos = dueNanos;
+            this.reply = reply;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.hpl.stub;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * zset 的内存实现: 成员到分数的哈希表 + 按 (分数, 成员) 排序、记录子树大小的 treap
+ * <p>
+ * 子树大小让按名次取成员、求名次、按分数计数都是 O(log N), 范围查询是 O(log N + M), 不需要复制整个 zset
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/21 14:20
+ */
+final class SortedSet {
+
+    private final Map<String, Double> scores = new HashMap<>();
+    private Node root;
+
+    /** 按名次访问的只读视图, get(i) 是 O(log N) **/
+    private final List<String> ranked = new AbstractList<String>() {
+
+        @Override
+        public String get(int index) {
+            return byRank(index);
+        }
+
+        @Override
+        public int size() {
+            return scores.size();
+        }
+    };
+
+    /** @return 是否新增了成员 **/
+    boolean put(String member, double score) {
+        Double old = scores.get(member);
+        if (old != null) {
+            if (old == score) {
+                return false;
+            }
+            root = delete(root, old, member);
+        }
+        scores.put(member, score);
+        root = insert(root, new Node(member, score));
+        return old == null;
+    }
+
+    boolean remove(String member) {
+        Double score = scores.remove(member);
+        if (score == null) {
+            return false;
+        }
+        root = delete(root, score, member);
+        return true;
+    }
+
+    Double score(String member) {
+        return scores.get(member);
+    }
+
+    int size() {
+        return scores.size();
+    }
+
+    /** 按分数从小到大的全部成员 **/
+    List<String> members() {
+        return range(0, scores.size() - 1);
+    }
+
+    /** 按名次访问的只读视图, 修改 zset 后视图随之变化 **/
+    List<String> ranked() {
+        return ranked;
+    }
+
+    int rank(String member) {
+        Double score = scores.get(member);
+        if (score == null) {
+            return -1;
+        }
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int result = compare(score, member, node);
+            if (result == 0) {
+                return rank + size(node.left);
+            }
+            if (result < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /** 名次在 [from, to] 之间的成员, 按分数从小到大 **/
+    List<String> range(int from, int to) {
+        List<String> result = new ArrayList<>(Math.max(0, to - from + 1));
+        collect(root, 0, from, to, result);
+        return result;
+    }
+
+    /** 分数小于 value 的成员数, includeEqual 为true时包括等于 **/
+    int countBelow(double value, boolean includeEqual) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            int result = Double.compare(node.score, value);
+            if (result < 0 || (includeEqual && result == 0)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private String byRank(int index) {
+        if (index < 0 || index >= scores.size()) {
+            throw new IndexOutOfBoundsException("index " + index);
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.member;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /* 中序遍历时只进入与 [from, to] 有交集的子树, offset 是 node 子树之前的成员数 */
+    private static void collect(Node node, int offset, int from, int to, List<String> result) {
+        if (node == null || offset > to || offset + node.size - 1 < from) {
+            return;
+        }
+        int rank = offset + size(node.left);
+        collect(node.left, offset, from, to, result);
+        if (rank >= from && rank <= to) {
+            result.add(node.member);
+        }
+        collect(node.right, rank + 1, from, to, result);
+    }
+
+    private static int compare(double score, String member, Node node) {
+        int result = Double.compare(score, node.score);
+        return result != 0 ? result : member.compareTo(node.member);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.score, added.member, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, double score, String member) {
+        if (node == null) {
+            return null;
+        }
+        int result = compare(score, member, node);
+        if (result == 0) {
+            return merge(node.left, node.right);
+        }
+        if (result < 0) {
+            node.left = delete(node.left, score, member);
+        } else {
+            node.right = delete(node.right, score, member);
+        }
+        update(node);
+        return node;
+    }
+
+    /* left 里的成员都排在 right 之前 */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        update(node);
+        left.right = node;
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        update(node);
+        right.left = node;
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+
+        final String member;
+        final double score;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(String member, double score) {
+            this.member = member;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hpl.bigkey;
+
+import com.hpl.redis.Redis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 分桶的 hash: 一个逻辑 hash 按 field 的哈希拆到 n 个物理 hash 里, 避免单个大 key 压在一个槽上,
+ * 以及 HGETALL 一次返回几百万个 field 阻塞服务端
+ * <p>
+ * 单 field 的操作直接路由到所在的桶; 多 field 的写按桶分组后在一次 pipeline 里发出;
+ * hgetAll 逐个桶读取后合并, 有 executor 时各个桶并行读取
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 14:20
+ */
+public class BucketedHash extends Buckets {
+
+    private BucketedHash(Redis redis, String key, int buckets, Executor executor) {
+        super(redis, key, buckets, executor);
+    }
+
+    /** 读取全部桶时顺序执行 **/
+    public static final BucketedHash of(Redis redis, String key, int buckets){
+        return new BucketedHash(redis, key, buckets, null);
+    }
+
+    /** 读取全部桶时在 executor 上并行执行 **/
+    public static final BucketedHash of(Redis redis, String key, int buckets, Executor executor){
+        return new BucketedHash(redis, key, buckets, executor);
+    }
+
+    public String hget(final String field) {
+        return redis.hget(bucketKey(field), field);
+    }
+
+    public Long hset(final String field, final String value) {
+        return redis.hset(bucketKey(field), field, value);
+    }
+
+    public Long hincrBy(final String field, final long value) {
+        return redis.hincrBy(bucketKey(field), field, value);
+    }
+
+    /** 按桶分组, 一次 pipeline 写入 **/
+    public void hmset(final Map<String, String> hash) {
+        Map<String, Map<String, String>> grouped = new HashMap<>();
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            grouped.computeIfAbsent(bucketKey(entry.getKey()), k -> new HashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+        redis.pipelined(pipeline -> grouped.forEach(pipeline::hmset));
+    }
+
+    /** 返回值与 fields 的顺序一致 **/
+    public List<String> hmget(final String... fields) {
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (String field : fields) {
+                pipeline.hget(bucketKey(field), field);
+            }
+        });
+        List<String> values = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            values.add((String) checked(reply));
+        }
+        return values;
+    }
+
+    /** @return 删除的 field 个数 **/
+    public Long hdel(final String... fields) {
+        Map<String, List<String>> grouped = new HashMap<>();
+        for (String field : fields) {
+            grouped.computeIfAbsent(bucketKey(field), k -> new ArrayList<>()).add(field);
+        }
+        return sum(redis.pipelined(pipeline -> grouped.forEach(
+                (bucketKey, bucketFields) -> pipeline.hdel(bucketKey, bucketFields.toArray(new String[0])))));
+    }
+
+    public Boolean hexists(final String field) {
+        return redis.hexists(bucketKey(field), field);
+    }
+
+    /** 各个桶的 HLEN 之和, 一次 pipeline **/
+    public Long hlen() {
+        return sum(redis.pipelined(pipeline -> {
+            for (String bucketKey : bucketKeys) {
+                pipeline.hlen(bucketKey);
+            }
+        }));
+    }
+
+    /** 读取全部桶并合并, 结果仍然要整个放在堆上, 大 hash 请优先用 {@link com.hpl.collection.RedisMap} 逐桶遍历 **/
+    public Map<String, String> hgetAll() {
+        List<Map<String, String>> parts = fanOut(redis::hgetAll);
+        int size = 0;
+        for (Map<String, String> part : parts) {
+            size += part.size();
+        }
+        Map<String, String> result = new LinkedHashMap<>(size * 4 / 3 + 1);
+        for (Map<String, String> part : parts) {
+            result.putAll(part);
+        }
+        return result;
+    }
+
+    /** 每个桶的物理 key, 可以配合 {@link com.hpl.collection.RedisMap} 逐桶遍历 **/
+    public List<String> bucketKeys() {
+        List<String> keys = new ArrayList<>(bucketKeys.length);
+        for (String bucketKey : bucketKeys) {
+            keys.add(bucketKey);
+        }
+        return keys;
+    }
+}
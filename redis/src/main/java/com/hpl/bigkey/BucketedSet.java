@@ -0,0 +1,82 @@
+package com.hpl.bigkey;
+
+import com.hpl.redis.Redis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 分桶的 set: 一个逻辑 set 按成员的哈希拆到 n 个物理 set 里, 桶之间没有交集
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 14:40
+ */
+public class BucketedSet extends Buckets {
+
+    private BucketedSet(Redis redis, String key, int buckets, Executor executor) {
+        super(redis, key, buckets, executor);
+    }
+
+    /** 读取全部桶时顺序执行 **/
+    public static final BucketedSet of(Redis redis, String key, int buckets){
+        return new BucketedSet(redis, key, buckets, null);
+    }
+
+    /** 读取全部桶时在 executor 上并行执行 **/
+    public static final BucketedSet of(Redis redis, String key, int buckets, Executor executor){
+        return new BucketedSet(redis, key, buckets, executor);
+    }
+
+    /** 按桶分组, 一次 pipeline 写入 **/
+    public Long sadd(final String... members) {
+        Map<String, List<String>> grouped = group(members);
+        return sum(redis.pipelined(pipeline -> grouped.forEach(
+                (bucketKey, bucketMembers) -> pipeline.sadd(bucketKey, bucketMembers.toArray(new String[0])))));
+    }
+
+    public Long srem(final String... members) {
+        Map<String, List<String>> grouped = group(members);
+        return sum(redis.pipelined(pipeline -> grouped.forEach(
+                (bucketKey, bucketMembers) -> pipeline.srem(bucketKey, bucketMembers.toArray(new String[0])))));
+    }
+
+    public Boolean sismember(final String member) {
+        return redis.sismember(bucketKey(member), member);
+    }
+
+    /** 各个桶的 SCARD 之和, 一次 pipeline **/
+    public Long scard() {
+        return sum(redis.pipelined(pipeline -> {
+            for (String bucketKey : bucketKeys) {
+                pipeline.scard(bucketKey);
+            }
+        }));
+    }
+
+    /** 读取全部桶并合并 **/
+    public Set<String> smembers() {
+        List<Set<String>> parts = fanOut(redis::smembers);
+        int size = 0;
+        for (Set<String> part : parts) {
+            size += part.size();
+        }
+        Set<String> result = new HashSet<>(size * 4 / 3 + 1);
+        for (Set<String> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    private Map<String, List<String>> group(String[] members) {
+        Map<String, List<String>> grouped = new HashMap<>();
+        for (String member : members) {
+            grouped.computeIfAbsent(bucketKey(member), k -> new ArrayList<>()).add(member);
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,197 @@
+package com.hpl.bigkey;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 分桶的 zset: 一个逻辑 zset 按成员的哈希拆到 n 个物理 zset 里
+ * <p>
+ * 单成员的操作直接路由到所在的桶; 按排名或分数的范围读取从每个桶取出各自的候选, 再按 (分数, 成员) 做 k 路归并.
+ * 按排名读取 [start, stop] 时每个桶都要取前 stop + 1 个, 所以分桶的 zset 适合取头部排名, 不适合深分页
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 15:00
+ */
+public class BucketedSortedSet extends Buckets {
+
+    private BucketedSortedSet(Redis redis, String key, int buckets, Executor executor) {
+        super(redis, key, buckets, executor);
+    }
+
+    /** 读取全部桶时顺序执行 **/
+    public static final BucketedSortedSet of(Redis redis, String key, int buckets){
+        return new BucketedSortedSet(redis, key, buckets, null);
+    }
+
+    /** 读取全部桶时在 executor 上并行执行 **/
+    public static final BucketedSortedSet of(Redis redis, String key, int buckets, Executor executor){
+        return new BucketedSortedSet(redis, key, buckets, executor);
+    }
+
+    public Long zadd(final String member, final double score) {
+        return redis.zadd(bucketKey(member), score, member);
+    }
+
+    /** 按桶分组, 一次 pipeline 写入 **/
+    public Long zadd(final Map<String, Double> scoreMembers) {
+        Map<String, Map<String, Double>> grouped = new HashMap<>();
+        for (Map.Entry<String, Double> entry : scoreMembers.entrySet()) {
+            grouped.computeIfAbsent(bucketKey(entry.getKey()), k -> new HashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+        return sum(redis.pipelined(pipeline -> grouped.forEach(pipeline::zadd)));
+    }
+
+    public Double zincrby(final String member, final double increment) {
+        return redis.zincrby(bucketKey(member), increment, member);
+    }
+
+    public Long zrem(final String... members) {
+        Map<String, List<String>> grouped = new HashMap<>();
+        for (String member : members) {
+            grouped.computeIfAbsent(bucketKey(member), k -> new ArrayList<>()).add(member);
+        }
+        return sum(redis.pipelined(pipeline -> grouped.forEach(
+                (bucketKey, bucketMembers) -> pipeline.zrem(bucketKey, bucketMembers.toArray(new String[0])))));
+    }
+
+    public Double zscore(final String member) {
+        return redis.zscore(bucketKey(member), member);
+    }
+
+    /** 各个桶的 ZCARD 之和, 一次 pipeline **/
+    public Long zcard() {
+        return sum(redis.pipelined(pipeline -> {
+            for (String bucketKey : bucketKeys) {
+                pipeline.zcard(bucketKey);
+            }
+        }));
+    }
+
+    /**
+     * 成员在整个逻辑 zset 里的排名(从0开始, 分数从小到大), 不存在时返回null
+     * <p>
+     * 排名 = 各个桶里分数更小的成员数 + 分数相同但成员排在前面的个数
+     */
+    public Long zrank(final String member) {
+        Double score = zscore(member);
+        if (score == null) {
+            return null;
+        }
+        String below = "(" + score;
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (String bucketKey : bucketKeys) {
+                pipeline.zcount(bucketKey, "-inf", below);
+                pipeline.zrangeByScoreWithScores(bucketKey, score, score);
+            }
+        });
+        Tuple target = new Tuple(member, score);
+        long rank = 0L;
+        for (int i = 0; i < replies.size(); i += 2) {
+            rank += (Long) checked(replies.get(i));
+            @SuppressWarnings("unchecked")
+            Set<Tuple> ties = (Set<Tuple>) checked(replies.get(i + 1));
+            for (Tuple tie : ties) {
+                if (tie.compareTo(target) < 0) {
+                    rank++;
+                }
+            }
+        }
+        return rank;
+    }
+
+    /** 按排名读取, start / stop 可以为负数, 含义与 ZRANGE 相同 **/
+    public List<Tuple> zrangeWithScores(final long start, final long stop) {
+        return rangeByRank(start, stop, false);
+    }
+
+    /** 按分数从大到小的排名读取 **/
+    public List<Tuple> zrevrangeWithScores(final long start, final long stop) {
+        return rangeByRank(start, stop, true);
+    }
+
+    public List<String> zrange(final long start, final long stop) {
+        return elements(rangeByRank(start, stop, false));
+    }
+
+    public List<String> zrevrange(final long start, final long stop) {
+        return elements(rangeByRank(start, stop, true));
+    }
+
+    /** 分数在 [min, max] 之间的全部成员, 按分数从小到大 **/
+    public List<Tuple> zrangeByScoreWithScores(final double min, final double max) {
+        List<Set<Tuple>> parts = fanOut(bucketKey -> redis.zrangeByScoreWithScores(bucketKey, min, max));
+        return merge(parts, false, 0L, Long.MAX_VALUE);
+    }
+
+    private List<Tuple> rangeByRank(long start, long stop, boolean reverse) {
+        if (start < 0 || stop < 0) {
+            long size = zcard();
+            start = start < 0 ? Math.max(size + start, 0L) : start;
+            stop = stop < 0 ? size + stop : stop;
+        }
+        if (start > stop) {
+            return new ArrayList<>();
+        }
+        final long last = stop;
+        List<Set<Tuple>> parts = fanOut(bucketKey -> reverse ? redis.zrevrangeWithScores(bucketKey, 0L, last)
+                : redis.zrangeWithScores(bucketKey, 0L, last));
+        return merge(parts, reverse, start, stop);
+    }
+
+    /* 每个桶的结果已经有序, 用优先队列做 k 路归并, 只保留排名在 [start, stop] 之间的部分 */
+    private static List<Tuple> merge(List<? extends Collection<Tuple>> parts, boolean reverse, long start, long stop) {
+        Comparator<Tuple> order = reverse ? Comparator.<Tuple>reverseOrder() : Comparator.<Tuple>naturalOrder();
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(parts.size(), 1),
+                (a, b) -> order.compare(a.tuple, b.tuple));
+        for (Collection<Tuple> part : parts) {
+            Iterator<Tuple> iterator = part.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+        List<Tuple> result = new ArrayList<>();
+        long rank = 0L;
+        while (!heads.isEmpty() && rank <= stop) {
+            Head head = heads.poll();
+            if (rank >= start) {
+                result.add(head.tuple);
+            }
+            rank++;
+            if (head.rest.hasNext()) {
+                heads.add(new Head(head.rest.next(), head.rest));
+            }
+        }
+        return result;
+    }
+
+    private static List<String> elements(List<Tuple> tuples) {
+        List<String> elements = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            elements.add(tuple.getElement());
+        }
+        return elements;
+    }
+
+    private static final class Head {
+
+        final Tuple tuple;
+        final Iterator<Tuple> rest;
+
+        Head(Tuple tuple, Iterator<Tuple> rest) {
+            this.tuple = tuple;
+            this.rest = rest;
+        }
+    }
+}
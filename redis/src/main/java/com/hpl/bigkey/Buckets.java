@@ -0,0 +1,114 @@
+package com.hpl.bigkey;
+
+import com.google.common.hash.Hashing;
+import com.hpl.redis.Redis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * 把一个逻辑 key 拆成 n 个物理 key(分桶): key:0 ... key:(n-1), 成员按哈希落到其中一个桶
+ * <p>
+ * 桶的个数一旦确定就不能修改, 否则成员会落到别的桶里
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 14:00
+ */
+abstract class Buckets {
+
+    final Redis redis;
+    final String key;
+    final String[] bucketKeys;
+    /* 为null时逐个桶顺序读取 */
+    final Executor executor;
+
+    Buckets(Redis redis, String key, int buckets, Executor executor) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.executor = executor;
+        this.bucketKeys = new String[buckets];
+        for (int i = 0; i < buckets; i++) {
+            bucketKeys[i] = key + ":" + i;
+        }
+    }
+
+    /** 成员所在桶的物理 key **/
+    String bucketKey(String member) {
+        int hash = Hashing.murmur3_32().hashString(member, StandardCharsets.UTF_8).asInt();
+        return bucketKeys[Math.floorMod(hash, bucketKeys.length)];
+    }
+
+    /** 对每个桶执行 read, 有 executor 时并行执行, 结果按桶的顺序返回 **/
+    <T> List<T> fanOut(Function<String, T> read) {
+        List<T> results = new ArrayList<>(bucketKeys.length);
+        if (executor == null) {
+            for (String bucketKey : bucketKeys) {
+                results.add(read.apply(bucketKey));
+            }
+            return results;
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(bucketKeys.length);
+        for (String bucketKey : bucketKeys) {
+            futures.add(CompletableFuture.supplyAsync(() -> read.apply(bucketKey), executor));
+        }
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /** 删除全部桶 **/
+    public Long del() {
+        return redis.del(bucketKeys);
+    }
+
+    /** 给全部桶设置过期时间 **/
+    public void expire(long seconds) {
+        redis.pipelined(pipeline -> {
+            for (String bucketKey : bucketKeys) {
+                pipeline.expire(bucketKey, seconds);
+            }
+        });
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getBuckets() {
+        return bucketKeys.length;
+    }
+
+    /** 每个桶的一个 Long 回复之和 **/
+    static long sum(List<Object> replies) {
+        long sum = 0L;
+        for (Object reply : replies) {
+            sum += (Long) checked(reply);
+        }
+        return sum;
+    }
+
+    /** pipeline 里单条命令的错误回复(如 key 类型不对)原样抛出, 保留 redis 返回的错误信息 **/
+    static Object checked(Object reply) {
+        if (reply instanceof JedisDataException) {
+            throw (JedisDataException) reply;
+        }
+        return reply;
+    }
+}
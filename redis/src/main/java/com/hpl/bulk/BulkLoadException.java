@@ -0,0 +1,16 @@
+package com.hpl.bulk;
+
+/**
+ * 导入因为连接断开等原因中止, 已发送但没有收到回复的命令是否执行未知
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/24 10:40
+ */
+public class BulkLoadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BulkLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
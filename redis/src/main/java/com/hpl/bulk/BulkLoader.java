@@ -0,0 +1,195 @@
+package com.hpl.bulk;
+
+import com.hpl.redis.Redis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 批量导入: 代替逐条调用 set / hmset / zadd, 用于一次性写入大量数据
+ * <p>
+ * 1. 命令按第一个参数(key)的哈希分到 writers 个分片, 同一个 key 的命令保持顺序;
+ * 2. 每个分片独占一个连接, 写线程直接把命令编码成 RESP 攒到缓冲区里整块写出, 不经过 jedis 的逐条编码和读回复;
+ * 3. 读线程与写线程并行解析回复, 未收到回复的命令数不超过 window, 写入不需要等待往返;
+ * 4. 错误回复不会中止导入, 计数并保留前 maxErrors 条明细; 连接断开时中止并抛出 {@link BulkLoadException}
+ * <p>
+ * 命令是完整的参数数组, 如 {@code {"SET", key, value}}、{@code {"HSET", key, field, value}}、{@code {"ZADD", key, score, member}}
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/24 10:45
+ */
+public class BulkLoader {
+
+    private final Redis redis;
+    private final int writers;
+    private final int window;
+    private final int bufferSize;
+    private final int maxErrors;
+
+    private BulkLoader(Redis redis, int writers, int window, int bufferSize, int maxErrors) {
+        if (writers <= 0 || window < BulkWriter.BATCH_SIZE || bufferSize < 1024 || maxErrors < 0) {
+            throw new IllegalArgumentException("illegal bulk loader parameters");
+        }
+        this.redis = redis;
+        this.writers = writers;
+        this.window = window;
+        this.bufferSize = bufferSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /** 4个分片, 每个分片最多10000条未回复的命令, 1MB 缓冲区, 保留1000条错误 **/
+    public static final BulkLoader of(Redis redis){
+        return new BulkLoader(redis, 4, 10_000, 1024 * 1024, 1000);
+    }
+
+    /**
+     * @param writers    分片数, 即并行的连接数
+     * @param window     每个分片最多未收到回复的命令数, 不能小于256
+     * @param bufferSize 每个分片的编码缓冲区字节数, 攒满后写出
+     * @param maxErrors  保留的错误明细条数
+     */
+    public static final BulkLoader of(Redis redis, int writers, int window, int bufferSize, int maxErrors){
+        return new BulkLoader(redis, writers, window, bufferSize, maxErrors);
+    }
+
+    public BulkResult load(Iterator<String[]> commands) throws InterruptedException {
+        return load(commands, null, 0L);
+    }
+
+    /**
+     * 导入 commands 里的全部命令, 返回时所有命令都已经收到回复
+     *
+     * @param listener       进度回调, 可以为null
+     * @param intervalMillis 进度回调的间隔
+     * @throws BulkLoadException 连接断开等原因导致导入中止
+     */
+    public BulkResult load(Iterator<String[]> commands, ProgressListener listener, long intervalMillis)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        List<BulkResult.BulkError> errors = new ArrayList<>();
+        BulkWriter[] shards = new BulkWriter[writers];
+        try {
+            for (int i = 0; i < writers; i++) {
+                try {
+                    shards[i] = new BulkWriter(redis.newDedicatedJedis(), i, window, bufferSize, errors, maxErrors);
+                } catch (IOException e) {
+                    throw new BulkLoadException("failed to open bulk connection", e);
+                }
+            }
+            for (BulkWriter shard : shards) {
+                shard.start();
+            }
+
+            long intervalNanos = intervalMillis * 1_000_000L;
+            long nextReport = start + intervalNanos;
+            BulkWriter.Batch[] pending = new BulkWriter.Batch[writers];
+            long index = 0L;
+            while (commands.hasNext()) {
+                String[] command = commands.next();
+                int shard = writers == 1 || command.length < 2 ? 0 : Math.floorMod(command[1].hashCode(), writers);
+                if (pending[shard] == null) {
+                    pending[shard] = new BulkWriter.Batch();
+                }
+                if (pending[shard].add(command, index++)) {
+                    shards[shard].submit(pending[shard]);
+                    pending[shard] = null;
+                }
+                if (listener != null && (index & 1023L) == 0L && System.nanoTime() >= nextReport) {
+                    report(listener, shards, start);
+                    nextReport = System.nanoTime() + intervalNanos;
+                }
+            }
+            for (int i = 0; i < writers; i++) {
+                if (pending[i] != null) {
+                    shards[i].submit(pending[i]);
+                }
+                shards[i].finish();
+            }
+            for (BulkWriter shard : shards) {
+                while (!shard.await(listener == null ? 1000L : Math.max(1L, intervalMillis))) {
+                    if (listener != null) {
+                        report(listener, shards, start);
+                    }
+                }
+                shard.checkFailure();
+            }
+            if (listener != null) {
+                report(listener, shards, start);
+            }
+
+            long sent = 0L;
+            long succeeded = 0L;
+            long failed = 0L;
+            for (BulkWriter shard : shards) {
+                sent += shard.getSent();
+                succeeded += shard.getSucceeded();
+                failed += shard.getFailed();
+            }
+            synchronized (errors) {
+                errors.sort((a, b) -> Long.compare(a.getIndex(), b.getIndex()));
+                return new BulkResult(sent, succeeded, failed, new ArrayList<>(errors), System.nanoTime() - start);
+            }
+        } finally {
+            for (BulkWriter shard : shards) {
+                if (shard != null) {
+                    shard.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按行读取命令, 每行一条命令, 参数之间用 tab 分隔, 空行跳过
+     * 读取出错时抛出 UncheckedIOException, reader 由调用方关闭
+     */
+    public static Iterator<String[]> tsv(Reader reader) {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        return new Iterator<String[]>() {
+
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null || next.isEmpty()) {
+                        next = lines.readLine();
+                        if (next == null) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String line = next;
+                next = null;
+                return line.split("\t", -1);
+            }
+        };
+    }
+
+    private static void report(ProgressListener listener, BulkWriter[] shards, long start) {
+        long sent = 0L;
+        long succeeded = 0L;
+        long failed = 0L;
+        for (BulkWriter shard : shards) {
+            sent += shard.getSent();
+            succeeded += shard.getSucceeded();
+            failed += shard.getFailed();
+        }
+        listener.onProgress(sent, succeeded, failed, (System.nanoTime() - start) / 1_000_000L);
+    }
+}
@@ -0,0 +1,86 @@
+package com.hpl.bulk;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次导入的结果
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/24 10:15
+ */
+public final class BulkResult {
+
+    private final long sent;
+    private final long succeeded;
+    private final long failed;
+    private final List<BulkError> errors;
+    private final long elapsedNanos;
+
+    BulkResult(long sent, long succeeded, long failed, List<BulkError> errors, long elapsedNanos) {
+        this.sent = sent;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /** 收到错误回复的命令数 **/
+    public long getFailed() {
+        return failed;
+    }
+
+    /** 错误回复的明细, 最多保留 maxErrors 条 **/
+    public List<BulkError> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /** 平均每秒完成的命令数 **/
+    public double getOpsPerSecond() {
+        return elapsedNanos == 0L ? 0D : (succeeded + failed) * 1_000_000_000D / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{sent=" + sent + ", succeeded=" + succeeded + ", failed=" + failed + ", elapsedMillis="
+                + getElapsedMillis() + ", opsPerSecond=" + (long) getOpsPerSecond() + '}';
+    }
+
+    /** 一条命令的错误回复 **/
+    public static final class BulkError {
+
+        private final long index;
+        private final String message;
+
+        BulkError(long index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        /** 命令在输入里的序号, 从0开始 **/
+        public long getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " " + message;
+        }
+    }
+}
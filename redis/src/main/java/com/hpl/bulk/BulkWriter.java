@@ -0,0 +1,393 @@
+package com.hpl.bulk;
+
+import redis.clients.jedis.Jedis;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 一个分片的写入端: 独占一个连接, 写线程把命令编码成 RESP 攒到大缓冲区里整块写出,
+ * 读线程只解析回复的边界和错误, 两者之间用窗口限制未收到回复的命令数
+ * <p>
+ * 写完所有命令后再发一个 PING 作为结束标记, 读线程读到它的回复就说明全部命令都已经有了回复
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/24 10:20
+ */
+final class BulkWriter {
+
+    /* 一批命令的最大条数, 窗口不能小于它 */
+    static final int BATCH_SIZE = 256;
+
+    private static final Batch END = new Batch();
+    private static final String[] PING = {"PING"};
+    private static final long SENTINEL = -1L;
+
+    private final Jedis jedis;
+    private final OutputStream out;
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+
+    private final int windowSize;
+    private final Semaphore window;
+    /* 第 n 条发出的命令在输入里的序号, 按 n % windowSize 存放 */
+    private final AtomicLongArray indexes;
+
+    private final ArrayBlockingQueue<Batch> queue = new ArrayBlockingQueue<>(8);
+    private final List<BulkResult.BulkError> errors;
+    private final int maxErrors;
+
+    private final Thread writerThread;
+    private final Thread readerThread;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile long sent;
+    /* 所有命令和结束标记都已经写出 */
+    private volatile boolean finished;
+    private volatile long succeeded;
+    private volatile long failed;
+    private volatile Throwable failure;
+
+    BulkWriter(Jedis jedis, int shard, int windowSize, int bufferSize, List<BulkResult.BulkError> errors,
+               int maxErrors) throws IOException {
+        jedis.getClient().connect();
+        Socket socket = jedis.getClient().getSocket();
+        this.jedis = jedis;
+        this.out = socket.getOutputStream();
+        this.in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+        this.buffer = new byte[bufferSize];
+        this.windowSize = windowSize;
+        this.window = new Semaphore(windowSize);
+        this.indexes = new AtomicLongArray(windowSize);
+        this.errors = errors;
+        this.maxErrors = maxErrors;
+        this.writerThread = new Thread(this::writeLoop, "bulk-writer-" + shard);
+        this.readerThread = new Thread(this::readLoop, "bulk-reader-" + shard);
+        this.writerThread.setDaemon(true);
+        this.readerThread.setDaemon(true);
+    }
+
+    void start() {
+        readerThread.start();
+        writerThread.start();
+    }
+
+    /** 提交一批命令, 队列满时阻塞; 写入端已经失败时抛出失败原因 **/
+    void submit(Batch batch) throws InterruptedException {
+        while (!queue.offer(batch, 100L, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+        checkFailure();
+    }
+
+    /** 所有命令都已提交 **/
+    void finish() throws InterruptedException {
+        submit(END);
+    }
+
+    /** 等待全部回复, 超时返回false **/
+    boolean await(long millis) throws InterruptedException {
+        return done.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    void checkFailure() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new BulkLoadException("bulk writer failed after " + sent + " commands", cause);
+        }
+    }
+
+    void close() {
+        writerThread.interrupt();
+        readerThread.interrupt();
+        try {
+            jedis.close();
+        } catch (RuntimeException ignored) {
+            // 连接已经断开
+        }
+    }
+
+    long getSent() {
+        return sent;
+    }
+
+    long getSucceeded() {
+        return succeeded;
+    }
+
+    long getFailed() {
+        return failed;
+    }
+
+    private void writeLoop() {
+        long seq = 0L;
+        try {
+            while (true) {
+                Batch batch = queue.poll();
+                if (batch == null) {
+                    flush();
+                    batch = queue.take();
+                }
+                if (batch == END) {
+                    break;
+                }
+                // 窗口满时先把缓冲区里的命令写出去, 否则读线程等不到回复, 窗口永远不会释放
+                if (!window.tryAcquire(batch.size)) {
+                    flush();
+                    window.acquire(batch.size);
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    indexes.set((int) (seq++ % windowSize), batch.indexes[i]);
+                    encode(batch.commands[i]);
+                }
+                sent = seq;
+            }
+            window.acquire(1);
+            indexes.set((int) (seq % windowSize), SENTINEL);
+            encode(PING);
+            finished = true;
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void readLoop() {
+        long seq = 0L;
+        try {
+            while (true) {
+                String error = readReply(seq);
+                long index = indexes.get((int) (seq++ % windowSize));
+                if (index == SENTINEL) {
+                    break;
+                }
+                if (error == null) {
+                    succeeded++;
+                } else {
+                    failed++;
+                    synchronized (errors) {
+                        if (errors.size() < maxErrors) {
+                            errors.add(new BulkResult.BulkError(index, error));
+                        }
+                    }
+                }
+                window.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } finally {
+            done.countDown();
+        }
+    }
+
+    private void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        done.countDown();
+        close();
+    }
+
+    /* ---------------- 编码 ---------------- */
+
+    private void encode(String[] args) throws IOException {
+        ensure(16);
+        buffer[position++] = '*';
+        writeLong(args.length);
+        for (String arg : args) {
+            int length = asciiLength(arg);
+            if (length < 0) {
+                writeBulk(arg.getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            ensure(length + 16);
+            if (length + 16 > buffer.length) {
+                writeBulk(arg.getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            buffer[position++] = '$';
+            writeLong(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) arg.charAt(i);
+            }
+            buffer[position++] = '\r';
+            buffer[position++] = '\n';
+        }
+    }
+
+    private void writeBulk(byte[] raw) throws IOException {
+        ensure(16);
+        buffer[position++] = '$';
+        writeLong(raw.length);
+        if (raw.length + 2 > buffer.length - position) {
+            flush();
+            out.write(raw);
+        } else {
+            System.arraycopy(raw, 0, buffer, position, raw.length);
+            position += raw.length;
+        }
+        ensure(2);
+        buffer[position++] = '\r';
+        buffer[position++] = '\n';
+    }
+
+    /* 写入十进制数字和 \r\n, 调用前已经保证至少有16字节空间 */
+    private void writeLong(long value) {
+        if (value == 0L) {
+            buffer[position++] = '0';
+        } else {
+            int start = position;
+            for (long v = value; v > 0L; v /= 10L) {
+                buffer[position++] = (byte) ('0' + v % 10L);
+            }
+            for (int i = start, j = position - 1; i < j; i++, j--) {
+                byte b = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = b;
+            }
+        }
+        buffer[position++] = '\r';
+        buffer[position++] = '\n';
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        out.flush();
+    }
+
+    /* 纯 ASCII 时返回长度, 否则返回-1 */
+    private static int asciiLength(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return -1;
+            }
+        }
+        return length;
+    }
+
+    /* ---------------- 解析回复 ---------------- */
+
+    /* 读一条回复, 返回错误信息, 不是错误时返回null */
+    private String readReply(long seq) throws IOException {
+        int type;
+        while (true) {
+            try {
+                type = in.read();
+                break;
+            } catch (SocketTimeoutException e) {
+                // 没有等待回复的命令时只是生产端暂时没有数据, 继续等
+                if (seq < sent || finished) {
+                    throw e;
+                }
+            }
+        }
+        return readReply(type);
+    }
+
+    private String readReply(int type) throws IOException {
+        switch (type) {
+            case '+':
+            case ':':
+                skipLine();
+                return null;
+            case '-':
+                return readLine();
+            case '$':
+                long length = Long.parseLong(readLine());
+                if (length >= 0L) {
+                    skip(length + 2L);
+                }
+                return null;
+            case '*':
+                long count = Long.parseLong(readLine());
+                for (long i = 0L; i < count; i++) {
+                    readReply(readByte());
+                }
+                return null;
+            case -1:
+                throw new EOFException("connection closed by server");
+            default:
+                throw new IOException("unexpected reply type " + (char) type);
+        }
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("connection closed by server");
+        }
+        return b;
+    }
+
+    private void skipLine() throws IOException {
+        while (readByte() != '\n') {
+            // 跳过
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(32);
+        int b;
+        while ((b = readByte()) != '\r') {
+            line.append((char) b);
+        }
+        readByte();
+        return line.toString();
+    }
+
+    private void skip(long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0L) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0L) {
+                readByte();
+                skipped = 1L;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /* 发给同一个分片的一批命令 */
+    static final class Batch {
+
+        final String[][] commands;
+        final long[] indexes;
+        int size;
+
+        Batch() {
+            this.commands = new String[BATCH_SIZE][];
+            this.indexes = new long[BATCH_SIZE];
+        }
+
+        boolean add(String[] command, long index) {
+            commands[size] = command;
+            indexes[size] = index;
+            return ++size == BATCH_SIZE;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.hpl.bulk;
+
+/**
+ * @Author: huangpenglong
+ * @Date: 2026/10/24 10:10
+ */
+public interface ProgressListener {
+
+    /**
+     * 导入进度, 在调用 load 的线程上定期回调
+     *
+     * @param sent          已写入连接的命令数
+     * @param succeeded     已收到成功回复的命令数
+     * @param failed        已收到错误回复的命令数
+     * @param elapsedMillis 已用时间
+     */
+    void onProgress(long sent, long succeeded, long failed, long elapsedMillis);
+}
@@ -0,0 +1,16 @@
+package com.hpl.cache;
+
+/**
+ * {@link CacheLoader} 加载失败
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 16:05
+ */
+public class CacheLoadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CacheLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
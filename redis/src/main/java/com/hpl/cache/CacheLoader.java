@@ -0,0 +1,37 @@
+package com.hpl.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link TieredCache} 两级缓存都没有命中时, 从数据源加载 value
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 16:00
+ */
+public interface CacheLoader<K, V> {
+
+    /** 加载一个 value, 数据源里不存在时返回null(会被负缓存) **/
+    V load(K key) throws Exception;
+
+    /**
+     * value 在 L2 的有效期(秒), 用于按 entry 设置不同的有效期, 实际写入时同样会加上随机浮动.
+     * 默认返回0, 小于等于0时使用 {@link TieredCache} 的 ttl; 只对非null的 value 调用, 负缓存的有效期见 setNegativeTtl
+     */
+    default long ttlSeconds(K key, V value) {
+        return 0L;
+    }
+
+    /** 批量加载, 不存在的 key 不放进结果里. 默认逐个调用 load, 数据源支持批量查询时应当覆盖 **/
+    default Map<K, V> loadAll(Collection<? extends K> keys) throws Exception {
+        Map<K, V> result = new HashMap<>(keys.size() * 2);
+        for (K key : keys) {
+            V value = load(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+}
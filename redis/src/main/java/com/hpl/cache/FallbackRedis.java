@@ -0,0 +1,152 @@
+package com.hpl.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisCircuitOpenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisExhaustedPoolException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 降级读: redis 正常时返回最新值, 并把热 key 的最后一次成功读取保存到 {@link FallbackStore};
+ * redis 连不上、连接池耗尽或熔断器打开时, 返回本地保存的值并标记为 stale, 而不是直接抛异常
+ * <p>
+ * 为了不让每次读都写文件, 同一个 key 在 storeIntervalMillis 内最多保存一次.
+ * 降级期间读过的 key 会被记下来, 由后台任务在 redis 恢复后刷新, 恢复之后的第一批读就能拿到新值
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 17:10
+ */
+public class FallbackRedis {
+
+    private static final Logger log = LoggerFactory.getLogger(FallbackRedis.class);
+
+    private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<Map<String, String>>() {};
+
+    /* 字符串和 hash 在 store 里用不同前缀区分 */
+    private static final String STRING_PREFIX = "s:";
+    private static final String HASH_PREFIX = "h:";
+
+    private final Redis redis;
+    private final FallbackStore store;
+    private final long storeIntervalMillis;
+
+    /* 降级期间读过的 key, 带类型前缀 */
+    private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
+    private final ScheduledFuture<?> refreshTask;
+
+    private FallbackRedis(Redis redis, FallbackStore store, long storeIntervalMillis,
+                          ScheduledExecutorService scheduler, long refreshIntervalMillis) {
+        this.redis = redis;
+        this.store = store;
+        this.storeIntervalMillis = storeIntervalMillis;
+        this.refreshTask = scheduler.scheduleWithFixedDelay(this::refreshStaleKeys, refreshIntervalMillis,
+                refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param storeIntervalMillis   同一个 key 两次保存之间的最小间隔
+     * @param refreshIntervalMillis 后台刷新降级 key 的周期
+     */
+    public static final FallbackRedis of(Redis redis, FallbackStore store, long storeIntervalMillis,
+                                         ScheduledExecutorService scheduler, long refreshIntervalMillis){
+        return new FallbackRedis(redis, store, storeIntervalMillis, scheduler, refreshIntervalMillis);
+    }
+
+    public FallbackValue<String> get(final String key) {
+        String storeKey = STRING_PREFIX + key;
+        try {
+            String value = redis.get(key);
+            save(storeKey, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+            return new FallbackValue<>(value, false, System.currentTimeMillis());
+        } catch (JedisConnectionException | JedisExhaustedPoolException | RedisCircuitOpenException e) {
+            FallbackStore.Entry entry = fallback(storeKey, e);
+            return new FallbackValue<>(new String(entry.getValue(), StandardCharsets.UTF_8), true,
+                    entry.getStoredAt());
+        }
+    }
+
+    public FallbackValue<Map<String, String>> hgetAll(final String key) {
+        String storeKey = HASH_PREFIX + key;
+        try {
+            Map<String, String> value = redis.hgetAll(key);
+            save(storeKey, value.isEmpty() ? null : JSON.toJSONBytes(value));
+            return new FallbackValue<>(value, false, System.currentTimeMillis());
+        } catch (JedisConnectionException | JedisExhaustedPoolException | RedisCircuitOpenException e) {
+            FallbackStore.Entry entry = fallback(storeKey, e);
+            return new FallbackValue<>(JSON.parseObject(entry.getValue(), MAP_TYPE.getType()), true,
+                    entry.getStoredAt());
+        }
+    }
+
+    /** 停止后台刷新 **/
+    public void shutdown() {
+        refreshTask.cancel(false);
+    }
+
+    /* key 不存在时删除本地副本, 否则按间隔保存 */
+    private void save(String storeKey, byte[] value) {
+        long now = System.currentTimeMillis();
+        if (value == null) {
+            if (store.storedAt(storeKey) >= 0) {
+                store.remove(storeKey);
+            }
+            return;
+        }
+        if (now - store.storedAt(storeKey) >= storeIntervalMillis) {
+            store.put(storeKey, value, now);
+        }
+    }
+
+    private FallbackStore.Entry fallback(String storeKey, RuntimeException e) {
+        FallbackStore.Entry entry = store.get(storeKey);
+        if (entry == null) {
+            throw e;
+        }
+        staleKeys.add(storeKey);
+        return entry;
+    }
+
+    /* redis 恢复后刷新降级期间读过的 key, 遇到连接问题就停止这一轮 */
+    private void refreshStaleKeys() {
+        Iterator<String> iterator = staleKeys.iterator();
+        while (iterator.hasNext()) {
+            String storeKey = iterator.next();
+            String key = storeKey.substring(2);
+            try {
+                if (storeKey.startsWith(STRING_PREFIX)) {
+                    String value = redis.get(key);
+                    refreshed(storeKey, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+                } else {
+                    Map<String, String> value = redis.hgetAll(key);
+                    refreshed(storeKey, value.isEmpty() ? null : JSON.toJSONBytes(value));
+                }
+                iterator.remove();
+            } catch (JedisConnectionException | JedisExhaustedPoolException | RedisCircuitOpenException e) {
+                return;
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void refreshed(String storeKey, byte[] value) {
+        if (value == null) {
+            store.remove(storeKey);
+        } else {
+            store.put(storeKey, value, System.currentTimeMillis());
+        }
+    }
+}
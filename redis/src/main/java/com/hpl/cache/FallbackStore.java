@@ -0,0 +1,266 @@
+package com.hpl.cache;
+
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于内存映射文件的有界 key-value 存储, 数据在堆外, 进程重启后直接从文件恢复
+ * <p>
+ * 文件由定长的槽组成, 每8个槽为一个桶, key 按哈希落到一个桶里, 在桶内找空槽或同 key 的槽;
+ * 桶满时淘汰桶内写入时间最早的槽. 每个桶由分段锁保护. 超过槽大小的 entry 不保存
+ * <p>
+ * 槽格式: [是否使用 1][key 哈希 8][写入时间 8][key 长度 4][value 长度 4][key][value]
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 16:30
+ */
+public class FallbackStore implements Closeable {
+
+    private static final int MAGIC = 0x46424B31;
+    private static final int FILE_HEADER = 16;
+    private static final int SLOT_HEADER = 25;
+    private static final int BUCKET_SLOTS = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int buckets;
+    private final int slotSize;
+    private final ReentrantLock[] locks;
+
+    private FallbackStore(FileChannel channel, MappedByteBuffer buffer, int buckets, int slotSize) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.buckets = buckets;
+        this.slotSize = slotSize;
+        this.locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 打开或创建存储文件. 文件已存在且槽数、槽大小一致时保留原有数据, 否则清空重建
+     *
+     * @param slots    槽的个数, 会向上取整为8的倍数
+     * @param slotSize 每个槽的字节数, key 和 value 的 UTF-8 长度之和不能超过 slotSize - 25
+     */
+    public static final FallbackStore open(Path file, int slots, int slotSize) throws IOException {
+        if (slots <= 0 || slotSize <= SLOT_HEADER) {
+            throw new IllegalArgumentException("illegal fallback store size");
+        }
+        int buckets = (slots + BUCKET_SLOTS - 1) / BUCKET_SLOTS;
+        long size = FILE_HEADER + (long) buckets * BUCKET_SLOTS * slotSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("fallback store can't be larger than 2GB");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean reuse = channel.size() == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!reuse || buffer.getInt(0) != MAGIC || buffer.getInt(4) != buckets || buffer.getInt(8) != slotSize) {
+                for (long i = FILE_HEADER; i < size; i += slotSize) {
+                    buffer.put((int) i, (byte) 0);
+                }
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, buckets);
+                buffer.putInt(8, slotSize);
+            }
+            return new FallbackStore(channel, buffer, buckets, slotSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** 读取 value, 不存在时返回null **/
+    public Entry get(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(rawKey);
+        int bucket = bucketOf(hash);
+        ReentrantLock lock = lockOf(bucket);
+        lock.lock();
+        try {
+            int slot = find(bucket, hash, rawKey);
+            if (slot < 0) {
+                return null;
+            }
+            int keyLength = buffer.getInt(slot + 17);
+            byte[] value = new byte[buffer.getInt(slot + 21)];
+            ByteBuffer view = buffer.duplicate();
+            view.position(slot + SLOT_HEADER + keyLength);
+            view.get(value);
+            return new Entry(value, buffer.getLong(slot + 9));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** value 的写入时间, 不存在时返回-1 **/
+    public long storedAt(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(rawKey);
+        int bucket = bucketOf(hash);
+        ReentrantLock lock = lockOf(bucket);
+        lock.lock();
+        try {
+            int slot = find(bucket, hash, rawKey);
+            return slot < 0 ? -1L : buffer.getLong(slot + 9);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入 value, 桶满时淘汰桶内最早写入的 entry
+     *
+     * @return entry 超过槽大小时返回false
+     */
+    public boolean put(String key, byte[] value, long storedAt) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        if (SLOT_HEADER + rawKey.length + value.length > slotSize) {
+            return false;
+        }
+        long hash = hash(rawKey);
+        int bucket = bucketOf(hash);
+        ReentrantLock lock = lockOf(bucket);
+        lock.lock();
+        try {
+            int slot = find(bucket, hash, rawKey);
+            if (slot < 0) {
+                slot = victim(bucket);
+            }
+            // 先标记为未使用, 写完再标记为使用, 写到一半进程退出时重启后不会读到残缺的 entry
+            buffer.put(slot, (byte) 0);
+            buffer.putLong(slot + 1, hash);
+            buffer.putLong(slot + 9, storedAt);
+            buffer.putInt(slot + 17, rawKey.length);
+            buffer.putInt(slot + 21, value.length);
+            ByteBuffer view = buffer.duplicate();
+            view.position(slot + SLOT_HEADER);
+            view.put(rawKey);
+            view.put(value);
+            buffer.put(slot, (byte) 1);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(rawKey);
+        int bucket = bucketOf(hash);
+        ReentrantLock lock = lockOf(bucket);
+        lock.lock();
+        try {
+            int slot = find(bucket, hash, rawKey);
+            if (slot >= 0) {
+                buffer.put(slot, (byte) 0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 把修改刷到磁盘, 不调用时由操作系统择机回写 **/
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int find(int bucket, long hash, byte[] rawKey) {
+        int first = slotOffset(bucket, 0);
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            int slot = first + i * slotSize;
+            if (buffer.get(slot) == 1 && buffer.getLong(slot + 1) == hash && keyEquals(slot, rawKey)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /* 桶内的空槽, 没有空槽时为写入时间最早的槽 */
+    private int victim(int bucket) {
+        int first = slotOffset(bucket, 0);
+        int oldest = first;
+        long oldestAt = Long.MAX_VALUE;
+        for (int i = 0; i < BUCKET_SLOTS; i++) {
+            int slot = first + i * slotSize;
+            if (buffer.get(slot) == 0) {
+                return slot;
+            }
+            long storedAt = buffer.getLong(slot + 9);
+            if (storedAt < oldestAt) {
+                oldestAt = storedAt;
+                oldest = slot;
+            }
+        }
+        return oldest;
+    }
+
+    private boolean keyEquals(int slot, byte[] rawKey) {
+        if (buffer.getInt(slot + 17) != rawKey.length) {
+            return false;
+        }
+        int offset = slot + SLOT_HEADER;
+        for (int i = 0; i < rawKey.length; i++) {
+            if (buffer.get(offset + i) != rawKey[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slotOffset(int bucket, int index) {
+        return FILE_HEADER + (bucket * BUCKET_SLOTS + index) * slotSize;
+    }
+
+    private int bucketOf(long hash) {
+        return (int) Math.floorMod(hash, (long) buckets);
+    }
+
+    private ReentrantLock lockOf(int bucket) {
+        return locks[bucket % LOCK_STRIPES];
+    }
+
+    private static long hash(byte[] rawKey) {
+        return Hashing.murmur3_128().hashBytes(rawKey).asLong();
+    }
+
+    /** 存储的 value 和写入时间 **/
+    public static final class Entry {
+
+        private final byte[] value;
+        private final long storedAt;
+
+        private Entry(byte[] value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.hpl.cache;
+
+/**
+ * 带有是否过期标记的读取结果
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 17:00
+ */
+public class FallbackValue<T> {
+
+    private final T value;
+    private final boolean stale;
+    private final long storedAt;
+
+    FallbackValue(T value, boolean stale, long storedAt) {
+        this.value = value;
+        this.stale = stale;
+        this.storedAt = storedAt;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    /** true 表示 redis 不可用, value 是本地保存的最后一次成功读取的值 **/
+    public boolean isStale() {
+        return stale;
+    }
+
+    /** value 从 redis 读出的时间, 用于判断能否接受这么旧的数据 **/
+    public long getStoredAt() {
+        return storedAt;
+    }
+}
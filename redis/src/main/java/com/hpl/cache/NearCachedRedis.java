@@ -0,0 +1,81 @@
+package com.hpl.cache;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 在 {@link Redis} 的字符串读写前面加一层 {@link OffHeapCache}, 方法与 {@link Redis} 的同名方法一一对应
+ * <p>
+ * 读先查本地缓存, 未命中时读 redis 并写入本地缓存; 通过本类写入时同时删除本地副本.
+ * 其他进程的写入只能等本地 entry 过期, 所以 ttl 就是能容忍的最大不一致时间
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 20:40
+ */
+public class NearCachedRedis {
+
+    private final Redis redis;
+    private final OffHeapCache cache;
+    private final long ttlMillis;
+
+    private NearCachedRedis(Redis redis, OffHeapCache cache, long ttlMillis) {
+        this.redis = redis;
+        this.cache = cache;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param ttlMillis 本地 entry 的存活时间
+     */
+    public static final NearCachedRedis of(Redis redis, OffHeapCache cache, long ttlMillis){
+        return new NearCachedRedis(redis, cache, ttlMillis);
+    }
+
+    public String get(final String key) {
+        byte[] rawKey = SafeEncoder.encode(key);
+        byte[] cached = cache.get(rawKey);
+        if (cached != null) {
+            return new String(cached, StandardCharsets.UTF_8);
+        }
+        String value = redis.get(key);
+        if (value != null) {
+            cache.put(rawKey, value.getBytes(StandardCharsets.UTF_8), ttlMillis);
+        }
+        return value;
+    }
+
+    public String set(final String key, final String value) {
+        try {
+            return redis.set(key, value);
+        } finally {
+            cache.remove(SafeEncoder.encode(key));
+        }
+    }
+
+    public String setex(final String key, final long seconds, final String value) {
+        try {
+            return redis.setex(key, seconds, value);
+        } finally {
+            cache.remove(SafeEncoder.encode(key));
+        }
+    }
+
+    public Long del(final String key) {
+        try {
+            return redis.del(key);
+        } finally {
+            cache.remove(SafeEncoder.encode(key));
+        }
+    }
+
+    /** 只删除本地副本, 用于收到其他进程的失效通知时 **/
+    public void invalidate(final String key) {
+        cache.remove(SafeEncoder.encode(key));
+    }
+
+    public OffHeapCache getCache() {
+        return cache;
+    }
+}
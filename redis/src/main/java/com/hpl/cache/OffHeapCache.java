@@ -0,0 +1,345 @@
+package com.hpl.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外的本地缓存, 缓存百万级 entry 时不给 GC 增加负担
+ * <p>
+ * 缓存分为若干段, 每段一把锁. 段内的数据放在一块直接内存里, 按定长的槽存放 entry;
+ * 索引是以 key 的64位哈希为键的开放寻址表(线性探测, 删除时回移, 不留墓碑), 只用 long[] / int[] 这样的基本类型数组.
+ * 槽用完时按 CLOCK 算法淘汰: 被读过的槽会得到一次机会, 指针扫过时清掉标记, 再次扫到时才被淘汰
+ * <p>
+ * 槽格式: [过期时间 8][key 长度 4][value 长度 4][key][value], key 和 value 之和超过槽大小的 entry 不缓存
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 20:00
+ */
+public class OffHeapCache {
+
+    private static final int SLOT_HEADER = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int slotSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private OffHeapCache(int segmentCount, int slotsPerSegment, int slotSize) {
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        this.slotSize = slotSize;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+    }
+
+    /**
+     * @param maxEntries 最多缓存的 entry 个数
+     * @param slotSize   每个槽的字节数, key 和 value 的长度之和不能超过 slotSize - 16
+     */
+    public static final OffHeapCache create(int maxEntries, int slotSize){
+        return create(maxEntries, slotSize, 16);
+    }
+
+    /**
+     * @param segments 分段数, 会向上取整为2的幂
+     */
+    public static final OffHeapCache create(int maxEntries, int slotSize, int segments){
+        if (maxEntries <= 0 || slotSize <= SLOT_HEADER || segments <= 0) {
+            throw new IllegalArgumentException("illegal off-heap cache size");
+        }
+        int segmentCount = Integer.highestOneBit(segments - 1) << 1;
+        segmentCount = Math.max(1, Math.min(segmentCount, Integer.highestOneBit(maxEntries)));
+        int slotsPerSegment = (maxEntries + segmentCount - 1) / segmentCount;
+        if ((long) slotsPerSegment * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segment can't be larger than 2GB, use more segments");
+        }
+        return new OffHeapCache(segmentCount, slotsPerSegment, slotSize);
+    }
+
+    /** 读取 value, 不存在或已过期时返回null **/
+    public byte[] get(byte[] key) {
+        long hash = hash(key);
+        byte[] value = segmentOf(hash).get(hash, key, System.currentTimeMillis());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 写入 value
+     *
+     * @param ttlMillis 存活时间, 小于等于0表示只会被淘汰不会过期
+     * @return entry 超过槽大小时返回false
+     */
+    public boolean put(byte[] key, byte[] value, long ttlMillis) {
+        if (SLOT_HEADER + key.length + value.length > slotSize) {
+            return false;
+        }
+        long expireAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        long hash = hash(key);
+        segmentOf(hash).put(hash, key, value, expireAt);
+        return true;
+    }
+
+    public void remove(byte[] key) {
+        long hash = hash(key);
+        segmentOf(hash).remove(hash, key);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0L;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Segment segmentOf(long hash) {
+        return segments[(int) (hash >>> 32) & segmentMask];
+    }
+
+    /* FNV-1a 加 murmur3 的 fmix64 打散, 不像 guava Hasher 那样每次分配对象. 0 在索引里表示空位, 哈希恰好为0时换成1 */
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0L ? 1L : hash;
+    }
+
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer data;
+
+        /* 开放寻址索引: key 哈希 -> 槽号 */
+        private final long[] indexHashes;
+        private final int[] indexSlots;
+        private final int indexMask;
+
+        /* 每个槽里 entry 的哈希, 0 表示空槽; CLOCK 的访问标记 */
+        private final long[] slotHashes;
+        private final boolean[] referenced;
+
+        /* 空槽栈 */
+        private final int[] freeSlots;
+        private int freeCount;
+        private int clockHand;
+
+        Segment(int slots) {
+            this.data = ByteBuffer.allocateDirect(slots * slotSize);
+            int indexSize = Integer.highestOneBit(Math.max(slots * 2 - 1, 1)) << 1;
+            this.indexHashes = new long[indexSize];
+            this.indexSlots = new int[indexSize];
+            this.indexMask = indexSize - 1;
+            this.slotHashes = new long[slots];
+            this.referenced = new boolean[slots];
+            this.freeSlots = new int[slots];
+            initFreeSlots();
+        }
+
+        byte[] get(long hash, byte[] key, long now) {
+            lock.lock();
+            try {
+                int position = find(hash);
+                if (position < 0) {
+                    return null;
+                }
+                int slot = indexSlots[position];
+                int offset = slot * slotSize;
+                if (!keyEquals(offset, key)) {
+                    return null;
+                }
+                if (data.getLong(offset) <= now) {
+                    release(position, slot);
+                    return null;
+                }
+                referenced[slot] = true;
+                byte[] value = new byte[data.getInt(offset + 12)];
+                ByteBuffer view = data.duplicate();
+                view.position(offset + SLOT_HEADER + key.length);
+                view.get(value);
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(long hash, byte[] key, byte[] value, long expireAt) {
+            lock.lock();
+            try {
+                int position = find(hash);
+                int slot;
+                if (position >= 0) {
+                    // 同哈希的旧 entry(包括极少见的哈希冲突)直接覆盖
+                    slot = indexSlots[position];
+                } else {
+                    slot = allocate();
+                    insert(hash, slot);
+                }
+                slotHashes[slot] = hash;
+                referenced[slot] = false;
+                int offset = slot * slotSize;
+                data.putLong(offset, expireAt);
+                data.putInt(offset + 8, key.length);
+                data.putInt(offset + 12, value.length);
+                ByteBuffer view = data.duplicate();
+                view.position(offset + SLOT_HEADER);
+                view.put(key);
+                view.put(value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(long hash, byte[] key) {
+            lock.lock();
+            try {
+                int position = find(hash);
+                if (position >= 0 && keyEquals(indexSlots[position] * slotSize, key)) {
+                    release(position, indexSlots[position]);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                Arrays.fill(indexHashes, 0L);
+                Arrays.fill(slotHashes, 0L);
+                Arrays.fill(referenced, false);
+                initFreeSlots();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return slotHashes.length - freeCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void initFreeSlots() {
+            freeCount = freeSlots.length;
+            for (int i = 0; i < freeCount; i++) {
+                freeSlots[i] = freeCount - 1 - i;
+            }
+            clockHand = 0;
+        }
+
+        /* 取一个空槽, 没有时按 CLOCK 淘汰一个 */
+        private int allocate() {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            while (true) {
+                int slot = clockHand;
+                clockHand = (clockHand + 1) % slotHashes.length;
+                if (referenced[slot]) {
+                    referenced[slot] = false;
+                    continue;
+                }
+                delete(find(slotHashes[slot]));
+                slotHashes[slot] = 0L;
+                evictions.increment();
+                return slot;
+            }
+        }
+
+        private void release(int position, int slot) {
+            delete(position);
+            slotHashes[slot] = 0L;
+            referenced[slot] = false;
+            freeSlots[freeCount++] = slot;
+        }
+
+        private int find(long hash) {
+            int position = (int) hash & indexMask;
+            while (indexHashes[position] != 0L) {
+                if (indexHashes[position] == hash) {
+                    return position;
+                }
+                position = (position + 1) & indexMask;
+            }
+            return -1;
+        }
+
+        private void insert(long hash, int slot) {
+            int position = (int) hash & indexMask;
+            while (indexHashes[position] != 0L) {
+                position = (position + 1) & indexMask;
+            }
+            indexHashes[position] = hash;
+            indexSlots[position] = slot;
+        }
+
+        /* 线性探测的删除: 把后面探测链上的元素往回移, 保证查找不会在空位上提前结束 */
+        private void delete(int position) {
+            int hole = position;
+            int next = (hole + 1) & indexMask;
+            while (indexHashes[next] != 0L) {
+                int home = (int) indexHashes[next] & indexMask;
+                // home 不在 (hole, next] 区间内时, 该元素可以移到 hole
+                if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                    indexHashes[hole] = indexHashes[next];
+                    indexSlots[hole] = indexSlots[next];
+                    hole = next;
+                }
+                next = (next + 1) & indexMask;
+            }
+            indexHashes[hole] = 0L;
+        }
+
+        private boolean keyEquals(int offset, byte[] key) {
+            if (data.getInt(offset + 8) != key.length) {
+                return false;
+            }
+            int start = offset + SLOT_HEADER;
+            for (int i = 0; i < key.length; i++) {
+                if (data.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.hpl.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hpl.redis.Publisher;
+import com.hpl.redis.Redis;
+import com.hpl.redis.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.params.SetParams;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存: L1 是进程内的 guava cache, L2 是 redis, 都没有命中时由 {@link CacheLoader} 从数据源加载
+ * <p>
+ * 1. get: L1 -> L2 -> loader, 同一节点上同一个 key 同时只有一个线程在加载, 其余线程等待它的结果;
+ * 2. getAll: L1 未命中的 key 合并成一次 MGET, L2 也未命中的 key 交给 loader.loadAll 批量加载, 再用一次 pipeline 写回;
+ * 3. 数据源里不存在的 key 也会被缓存(负缓存), 有效期为 negativeTtl, 防止穿透;
+ * 4. 每个 entry 可以有自己的有效期: {@link #put(Object, Object, long)} 传入, 或由 {@link CacheLoader#ttlSeconds} 返回,
+ *    否则使用 ttl. L2 的有效期在此基础上加减 jitter 比例的随机值, 避免同一批写入的 key 同时过期;
+ * 5. 开启 refresh-ahead 后, 读到已经存活超过 entry 有效期 * ratio 的 value 时在后台重新加载, 调用方仍然拿到旧值;
+ * 6. 开启失效广播后, put / invalidate / 后台刷新会通过 {@link Publisher} 通知其他节点删除 L1 里的副本
+ * <p>
+ * value 以 json 存放在 L2, 格式为 "加载时间:有效期:json", 负缓存的 json 部分为空
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 16:10
+ */
+public class TieredCache<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredCache.class);
+
+    private static final long DEFAULT_NEGATIVE_TTL = 60L;
+    private static final double DEFAULT_JITTER = 0.1D;
+
+    private final Redis redis;
+    private final String namespace;
+    private final Type valueType;
+    private final CacheLoader<K, V> loader;
+    private final long ttlSeconds;
+    private final Cache<String, Holder> l1;
+
+    private volatile long negativeTtlSeconds = DEFAULT_NEGATIVE_TTL;
+    private volatile double jitter = DEFAULT_JITTER;
+    private volatile double refreshAheadRatio;
+    private volatile Executor refreshExecutor;
+    private volatile Publisher publisher;
+
+    /* 本节点的标识, 用来忽略自己发出的失效广播 */
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, CompletableFuture<Holder>> loading = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    private TieredCache(Redis redis, String namespace, Type valueType, CacheLoader<K, V> loader, long ttlSeconds,
+                        int l1MaximumSize, long l1TtlMillis) {
+        if (ttlSeconds <= 0 || l1MaximumSize < 0 || l1TtlMillis <= 0) {
+            throw new IllegalArgumentException("illegal tiered cache parameters");
+        }
+        this.redis = redis;
+        this.namespace = namespace;
+        this.valueType = valueType;
+        this.loader = loader;
+        this.ttlSeconds = ttlSeconds;
+        this.l1 = CacheBuilder.newBuilder().maximumSize(l1MaximumSize)
+                .expireAfterWrite(l1TtlMillis, TimeUnit.MILLISECONDS).build();
+    }
+
+    /**
+     * L1 最多10000个 entry, 有效期为 ttl 和60秒中较小的一个
+     *
+     * @param namespace  L2 key 的前缀, 同时也是失效广播的频道名的一部分
+     * @param valueType  value 的类型, 用于 json 反序列化, 泛型类型可以传入 {@code new TypeReference<List<Foo>>(){}.getType()}
+     * @param ttlSeconds L2 的默认有效期
+     */
+    public static final <K, V> TieredCache<K, V> of(Redis redis, String namespace, Type valueType,
+                                                    CacheLoader<K, V> loader, long ttlSeconds){
+        return new TieredCache<>(redis, namespace, valueType, loader, ttlSeconds, 10_000,
+                Math.min(TimeUnit.SECONDS.toMillis(ttlSeconds), 60_000L));
+    }
+
+    /**
+     * @param l1MaximumSize L1 最多的 entry 数, 为0时不使用 L1
+     * @param l1TtlMillis   L1 的有效期, 没有开启失效广播时也是其他节点修改后本节点能读到旧值的最长时间
+     */
+    public static final <K, V> TieredCache<K, V> of(Redis redis, String namespace, Type valueType,
+                                                    CacheLoader<K, V> loader, long ttlSeconds,
+                                                    int l1MaximumSize, long l1TtlMillis){
+        return new TieredCache<>(redis, namespace, valueType, loader, ttlSeconds, l1MaximumSize, l1TtlMillis);
+    }
+
+    /** 负缓存的有效期, 默认60秒 **/
+    public void setNegativeTtl(long seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("negative ttl must be positive");
+        }
+        this.negativeTtlSeconds = seconds;
+    }
+
+    /** L2 有效期的随机浮动比例, 默认0.1, 即 ttl 的 90% 到 110% **/
+    public void setJitter(double jitter) {
+        if (jitter < 0D || jitter >= 1D) {
+            throw new IllegalArgumentException("jitter must be in [0, 1)");
+        }
+        this.jitter = jitter;
+    }
+
+    /**
+     * 开启 refresh-ahead
+     *
+     * @param ratio    value 存活超过 entry 有效期 * ratio 后被读到时在后台刷新, (0, 1)
+     * @param executor 执行刷新的线程池
+     */
+    public void enableRefreshAhead(double ratio, Executor executor) {
+        if (ratio <= 0D || ratio >= 1D) {
+            throw new IllegalArgumentException("ratio must be in (0, 1)");
+        }
+        this.refreshExecutor = executor;
+        this.refreshAheadRatio = ratio;
+    }
+
+    /**
+     * 开启 L1 失效广播: 本节点修改的 key 通知其他节点从 L1 删除. 所有节点都要开启才能互相通知
+     *
+     * @param handlerPool 处理广播消息的线程池
+     * @return 接收广播的订阅者, 退出时调用 unSubscribe
+     */
+    public Subscriber enableInvalidation(ExecutorService handlerPool) {
+        String channel = "tiered-cache:" + namespace;
+        Subscriber subscriber = new Subscriber(redis, handlerPool);
+        subscriber.addMessageHandler(channel, message -> {
+            int separator = message.indexOf(' ');
+            if (separator > 0 && !message.regionMatches(0, nodeId, 0, separator)) {
+                l1.invalidate(message.substring(separator + 1));
+            }
+        });
+        subscriber.start();
+        this.publisher = Publisher.of(channel, redis);
+        return subscriber;
+    }
+
+    /** 读取 value, 数据源里不存在时返回null **/
+    public V get(K key) {
+        String cacheKey = cacheKey(key);
+        Holder holder = l1.getIfPresent(cacheKey);
+        if (holder != null) {
+            l1Hits.increment();
+            return hit(key, cacheKey, holder);
+        }
+
+        CompletableFuture<Holder> future = new CompletableFuture<>();
+        CompletableFuture<Holder> existing = loading.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            try {
+                return existing.join().value;
+            } catch (CompletionException e) {
+                // 与自己加载时抛出的异常保持一致, 如 CacheLoadException
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            holder = fetch(key, cacheKey);
+            future.complete(holder);
+            return holder.value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(cacheKey, future);
+        }
+    }
+
+    /** 批量读取, 数据源里不存在的 key 不放进结果里 **/
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<>(keys.size() * 2);
+        List<K> l1Misses = new ArrayList<>();
+        for (K key : keys) {
+            String cacheKey = cacheKey(key);
+            Holder holder = l1.getIfPresent(cacheKey);
+            if (holder == null) {
+                l1Misses.add(key);
+                continue;
+            }
+            l1Hits.increment();
+            put(result, key, hit(key, cacheKey, holder));
+        }
+        if (l1Misses.isEmpty()) {
+            return result;
+        }
+
+        String[] cacheKeys = new String[l1Misses.size()];
+        for (int i = 0; i < cacheKeys.length; i++) {
+            cacheKeys[i] = cacheKey(l1Misses.get(i));
+        }
+        List<String> payloads = redis.mget(cacheKeys);
+        List<K> l2Misses = new ArrayList<>();
+        for (int i = 0; i < cacheKeys.length; i++) {
+            String payload = payloads.get(i);
+            if (payload == null) {
+                l2Misses.add(l1Misses.get(i));
+                continue;
+            }
+            l2Hits.increment();
+            Holder holder = decode(payload);
+            l1.put(cacheKeys[i], holder);
+            put(result, l1Misses.get(i), hit(l1Misses.get(i), cacheKeys[i], holder));
+        }
+        if (l2Misses.isEmpty()) {
+            return result;
+        }
+
+        loads.add(l2Misses.size());
+        Map<K, V> loaded;
+        try {
+            loaded = loader.loadAll(l2Misses);
+        } catch (Exception e) {
+            loadFailures.increment();
+            throw new CacheLoadException("failed to load " + l2Misses.size() + " keys of " + namespace, e);
+        }
+        long now = System.currentTimeMillis();
+        Map<String, Holder> holders = new HashMap<>(l2Misses.size() * 2);
+        for (K key : l2Misses) {
+            V value = loaded.get(key);
+            holders.put(cacheKey(key), new Holder(value, now, entryTtl(key, value)));
+            put(result, key, value);
+        }
+        // 加载期间其他节点 put 的新值优先, 只在 L2 没有值时写入; 没写入的 key 不放进 L1, 下次从 L2 读到新值
+        final List<String> filled = new ArrayList<>(holders.keySet());
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (String cacheKey : filled) {
+                Holder holder = holders.get(cacheKey);
+                pipeline.set(cacheKey, encode(holder), fillParams(holder));
+            }
+        });
+        for (int i = 0; i < filled.size(); i++) {
+            if (replies.get(i) instanceof String) {
+                l1.put(filled.get(i), holders.get(filled.get(i)));
+            }
+        }
+        return result;
+    }
+
+    /** 写入 value, 有效期为默认的 ttl, 同时更新 L2 和本节点的 L1, 并通知其他节点 **/
+    public void put(K key, V value) {
+        put(key, value, ttlSeconds);
+    }
+
+    /** 写入 value, 指定这个 entry 在 L2 的有效期(秒, 同样加上随机浮动); value 为null时使用负缓存的有效期 **/
+    public void put(K key, V value, long ttlSeconds) {
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        String cacheKey = cacheKey(key);
+        Holder holder = new Holder(value, System.currentTimeMillis(), ttlSeconds);
+        redis.setex(cacheKey, l2Ttl(holder), encode(holder));
+        l1.put(cacheKey, holder);
+        broadcast(cacheKey);
+    }
+
+    /** 删除 L2 和本节点 L1 里的 value, 并通知其他节点 **/
+    public void invalidate(K key) {
+        String cacheKey = cacheKey(key);
+        redis.del(cacheKey);
+        l1.invalidate(cacheKey);
+        broadcast(cacheKey);
+    }
+
+    /** 只删除本节点 L1 里的 value **/
+    public void invalidateLocal(K key) {
+        l1.invalidate(cacheKey(key));
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(l1Hits.sum(), l2Hits.sum(), loads.sum(), loadFailures.sum(), negativeHits.sum(),
+                refreshes.sum());
+    }
+
+    /* L2 -> loader */
+    private Holder fetch(K key, String cacheKey) {
+        String payload = redis.get(cacheKey);
+        if (payload != null) {
+            l2Hits.increment();
+            Holder holder = decode(payload);
+            l1.put(cacheKey, holder);
+            hit(key, cacheKey, holder);
+            return holder;
+        }
+        Holder holder = load(key, cacheKey);
+        if (redis.set(cacheKey, encode(holder), fillParams(holder)) == null) {
+            // 加载期间其他节点 put 了新值, 以 L2 里的为准
+            String winner = redis.get(cacheKey);
+            if (winner != null) {
+                holder = decode(winner);
+            }
+        }
+        l1.put(cacheKey, holder);
+        return holder;
+    }
+
+    /* loader 加载的值只在 L2 没有值时写入, 不覆盖并发 put 的新值; 只有 put 使用无条件的 SETEX */
+    private SetParams fillParams(Holder holder) {
+        return SetParams.setParams().nx().ex(l2Ttl(holder));
+    }
+
+    private Holder load(K key, String cacheKey) {
+        loads.increment();
+        try {
+            V value = loader.load(key);
+            return new Holder(value, System.currentTimeMillis(), entryTtl(key, value));
+        } catch (Exception e) {
+            loadFailures.increment();
+            throw new CacheLoadException("failed to load " + cacheKey, e);
+        }
+    }
+
+    /* L1 或 L2 命中, 刚加载出的null不算负缓存命中 */
+    private V hit(K key, String cacheKey, Holder holder) {
+        if (holder.value == null) {
+            negativeHits.increment();
+        }
+        maybeRefresh(key, cacheKey, holder);
+        return holder.value;
+    }
+
+    private long entryTtl(K key, V value) {
+        if (value == null) {
+            return ttlSeconds;
+        }
+        long ttl = loader.ttlSeconds(key, value);
+        return ttl > 0 ? ttl : ttlSeconds;
+    }
+
+    private void maybeRefresh(K key, String cacheKey, Holder holder) {
+        Executor executor = refreshExecutor;
+        if (executor == null || holder.value == null) {
+            return;
+        }
+        long age = System.currentTimeMillis() - holder.loadedAt;
+        if (age < TimeUnit.SECONDS.toMillis(holder.ttlSeconds) * refreshAheadRatio || !refreshing.add(cacheKey)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    Holder fresh = load(key, cacheKey);
+                    if (replaceIfUnchanged(cacheKey, holder, fresh)) {
+                        l1.put(cacheKey, fresh);
+                        refreshes.increment();
+                        broadcast(cacheKey);
+                    }
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                } finally {
+                    refreshing.remove(cacheKey);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(cacheKey);
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /*
+     * 刷新时 L2 里已经有值, 不能用 NX; 用 WATCH 事务确认 L2 仍是刷新前读到的值(或已经过期)才覆盖,
+     * 刷新期间其他节点 put 的新值不会被刷新结果覆盖
+     */
+    private boolean replaceIfUnchanged(String cacheKey, Holder previous, Holder fresh) {
+        String payload = encode(fresh);
+        long ttl = l2Ttl(fresh);
+        List<Object> replies = redis.transaction(Collections.singletonList(cacheKey), jedis -> {
+            String current = jedis.get(cacheKey);
+            if (current != null && decodeLoadedAt(current) != previous.loadedAt) {
+                return null;
+            }
+            return pipeline -> pipeline.setex(cacheKey, ttl, payload);
+        });
+        return replies != null;
+    }
+
+    private void broadcast(String cacheKey) {
+        Publisher current = publisher;
+        if (current != null) {
+            current.publish(nodeId + " " + cacheKey);
+        }
+    }
+
+    private long l2Ttl(Holder holder) {
+        long base = holder.value == null ? negativeTtlSeconds : holder.ttlSeconds;
+        double ratio = jitter;
+        if (ratio == 0D) {
+            return base;
+        }
+        double factor = 1D + ThreadLocalRandom.current().nextDouble(-ratio, ratio);
+        return Math.max(1L, Math.round(base * factor));
+    }
+
+    private String cacheKey(K key) {
+        return namespace + ":" + key;
+    }
+
+    private String encode(Holder holder) {
+        return holder.loadedAt + ":" + holder.ttlSeconds + ":"
+                + (holder.value == null ? "" : JSON.toJSONString(holder.value));
+    }
+
+    private static long decodeLoadedAt(String payload) {
+        return Long.parseLong(payload.substring(0, payload.indexOf(':')));
+    }
+
+    private Holder decode(String payload) {
+        int first = payload.indexOf(':');
+        int second = payload.indexOf(':', first + 1);
+        long loadedAt = decodeLoadedAt(payload);
+        long ttl = Long.parseLong(payload.substring(first + 1, second));
+        String json = payload.substring(second + 1);
+        V value = json.isEmpty() ? null : JSON.<V>parseObject(json, valueType);
+        return new Holder(value, loadedAt, ttl);
+    }
+
+    private static <K, V> void put(Map<K, V> result, K key, V value) {
+        if (value != null) {
+            result.put(key, value);
+        }
+    }
+
+    /* value 为null表示负缓存 */
+    private final class Holder {
+
+        final V value;
+        final long loadedAt;
+        /* 这个 entry 在 L2 的有效期, 不含随机浮动 */
+        final long ttlSeconds;
+
+        Holder(V value, long loadedAt, long ttlSeconds) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.ttlSeconds = ttlSeconds;
+        }
+    }
+
+    /** 命中和加载次数的快照 **/
+    public static final class CacheStats {
+
+        private final long l1Hits;
+        private final long l2Hits;
+        private final long loads;
+        private final long loadFailures;
+        private final long negativeHits;
+        private final long refreshes;
+
+        private CacheStats(long l1Hits, long l2Hits, long loads, long loadFailures, long negativeHits,
+                           long refreshes) {
+            this.l1Hits = l1Hits;
+            this.l2Hits = l2Hits;
+            this.loads = loads;
+            this.loadFailures = loadFailures;
+            this.negativeHits = negativeHits;
+            this.refreshes = refreshes;
+        }
+
+        public long getL1Hits() {
+            return l1Hits;
+        }
+
+        public long getL2Hits() {
+            return l2Hits;
+        }
+
+        /** 两级都没有命中、交给 loader 加载的 key 数 **/
+        public long getLoads() {
+            return loads;
+        }
+
+        public long getLoadFailures() {
+            return loadFailures;
+        }
+
+        /** L1 或 L2 命中负缓存的次数, 包含在 l1Hits / l2Hits 里, 不含加载出null的次数 **/
+        public long getNegativeHits() {
+            return negativeHits;
+        }
+
+        public long getRefreshes() {
+            return refreshes;
+        }
+
+        /** 任意一级命中的比例 **/
+        public double hitRate() {
+            long total = l1Hits + l2Hits + loads;
+            return total == 0L ? 1D : (double) (l1Hits + l2Hits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{l1Hits=" + l1Hits + ", l2Hits=" + l2Hits + ", loads=" + loads + ", loadFailures="
+                    + loadFailures + ", negativeHits=" + negativeHits + ", refreshes=" + refreshes + '}';
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.hpl.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hpl.redis.Redis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 服务端协助的本地缓存: 借助 redis 6 的 CLIENT TRACKING, key 被修改、删除、过期或淘汰时 redis 主动推送失效通知,
+ * 本地缓存的 get / hget 结果不需要 ttl, 也不需要轮询
+ * <p>
+ * jedis 3.6 只支持 RESP2, 所以使用 RESP2 下的 REDIRECT 方式: 一个独立连接订阅 {@code __redis__:invalidate},
+ * 读连接开启 {@code CLIENT TRACKING ON REDIRECT <订阅连接的 id>}
+ * <p>
+ * 1. 默认模式 ({@link #of}): redis 记住每个读连接读过的 key, 只通知这些 key, 会占用服务端内存;
+ * 2. 广播模式 ({@link #broadcast}): redis 不记录读过的 key, 匹配前缀的 key 被修改都会通知, 适合 key 空间有限的场景
+ * <p>
+ * 读走本类持有的 readers 个开启了 tracking 的独立连接, 线程按 id 分到其中一个. 订阅连接或任意读连接断开时,
+ * 期间的通知可能丢失, 此时清空本地缓存; 订阅连接恢复之前所有读直接访问 redis, 不使用本地缓存
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/23 19:30
+ */
+public class TrackedRedis implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackedRedis.class);
+
+    private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+    private static final long MIN_BACKOFF = 100L;
+    private static final long MAX_BACKOFF = 5_000L;
+
+    /* 本地缓存里表示 key 或 field 不存在 */
+    private static final Object NULL = new Object();
+
+    private final Redis redis;
+    /* 广播模式的前缀, 默认模式为null */
+    private final List<String> prefixes;
+    private final Cache<String, Object> strings;
+    private final Cache<String, ConcurrentHashMap<String, Object>> hashes;
+
+    private final Jedis[] readers;
+    private final long[] readerGenerations;
+    private final ReentrantLock[] locks;
+
+    /*
+     * 当前订阅连接的 client id 和代数, 订阅连接不可用时为 NONE. 两者放在一个对象里一起发布,
+     * 读线程不会看到新的 id 配旧的代数, 在仍指向已断开订阅连接的读连接上读到不会收到通知的值
+     */
+    private volatile Redirect redirect = Redirect.NONE;
+    /* 订阅连接每重建一次加一, 读连接据此重新开启 tracking, 只由订阅线程修改 */
+    private long generation;
+    /* 每收到一次失效通知加一, 读的期间收到过通知时读到的值可能已经过时, 不能留在本地缓存里 */
+    private final AtomicLong invalidationSeq = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile Jedis listener;
+    private final Thread thread;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private TrackedRedis(Redis redis, List<String> prefixes, int maximumSize, int readers) {
+        if (maximumSize <= 0 || readers <= 0) {
+            throw new IllegalArgumentException("illegal tracked redis parameters");
+        }
+        this.redis = redis;
+        this.prefixes = prefixes;
+        this.strings = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.hashes = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        this.readers = new Jedis[readers];
+        this.readerGenerations = new long[readers];
+        this.locks = new ReentrantLock[readers];
+        for (int i = 0; i < readers; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.thread = new Thread(this::listen, "tracked-redis-invalidation");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 默认模式
+     *
+     * @param maximumSize 本地缓存最多的 string key 数和 hash key 数
+     * @param readers     开启 tracking 的读连接数
+     */
+    public static final TrackedRedis of(Redis redis, int maximumSize, int readers){
+        return new TrackedRedis(redis, null, maximumSize, readers);
+    }
+
+    /**
+     * 广播模式, 只缓存匹配 prefixes 的 key, 不传前缀时匹配所有 key
+     * 每个读连接都会收到一份通知, readers 不宜太大
+     */
+    public static final TrackedRedis broadcast(Redis redis, int maximumSize, int readers, String... prefixes){
+        return new TrackedRedis(redis, Arrays.asList(prefixes), maximumSize, readers);
+    }
+
+    public String get(final String key) {
+        Object cached = strings.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached == NULL ? null : (String) cached;
+        }
+        misses.increment();
+        // 先取序号再判断订阅连接是否可用, 两者之间订阅连接断开时序号一定会变化
+        long seq = invalidationSeq.get();
+        if (!cacheable(key)) {
+            return redis.get(key);
+        }
+        String value = read(jedis -> jedis.get(key));
+        strings.put(key, value == null ? NULL : value);
+        discardIfInvalidated(key, seq);
+        return value;
+    }
+
+    public String hget(final String key, final String field) {
+        ConcurrentHashMap<String, Object> fields = hashes.getIfPresent(key);
+        Object cached = fields == null ? null : fields.get(field);
+        if (cached != null) {
+            hits.increment();
+            return cached == NULL ? null : (String) cached;
+        }
+        misses.increment();
+        // 先取序号再判断订阅连接是否可用, 两者之间订阅连接断开时序号一定会变化
+        long seq = invalidationSeq.get();
+        if (!cacheable(key)) {
+            return redis.hget(key, field);
+        }
+        String value = read(jedis -> jedis.hget(key, field));
+        try {
+            hashes.get(key, ConcurrentHashMap::new).put(field, value == null ? NULL : value);
+        } catch (ExecutionException e) {
+            log.error(e.getMessage(), e);
+        }
+        discardIfInvalidated(key, seq);
+        return value;
+    }
+
+    /* 写入后 redis 也会推送失效通知, 这里先删除本地副本, 让本线程立即读到新值 */
+    public String set(final String key, final String value) {
+        try {
+            return redis.set(key, value);
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    public Long hset(final String key, final String field, final String value) {
+        try {
+            return redis.hset(key, field, value);
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    public Long del(final String key) {
+        try {
+            return redis.del(key);
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    /** 本地缓存的命中次数 **/
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** 收到的失效通知里的 key 数, 清空整个缓存的通知算一次 **/
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /** 订阅连接是否可用, 不可用时不使用本地缓存 **/
+    public boolean isTracking() {
+        return redirect.id != 0L;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Jedis current = listener;
+        if (current != null) {
+            current.disconnect();
+        }
+        thread.interrupt();
+        for (int i = 0; i < readers.length; i++) {
+            locks[i].lock();
+            try {
+                closeReader(i);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        clearLocal();
+    }
+
+    private boolean cacheable(String key) {
+        if (redirect.id == 0L) {
+            return false;
+        }
+        if (prefixes == null || prefixes.isEmpty()) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* 在当前线程对应的读连接上执行, 需要时新建连接或重新开启 tracking */
+    private String read(Function<Jedis, String> command) {
+        int index = (int) (Thread.currentThread().getId() % readers.length);
+        ReentrantLock lock = locks[index];
+        lock.lock();
+        try {
+            Redirect current = redirect;
+            if (readers[index] == null) {
+                readers[index] = redis.newDedicatedJedis();
+                readerGenerations[index] = 0L;
+            }
+            Jedis jedis = readers[index];
+            // redirect 为0说明订阅连接刚刚断开, 这次读到的值不会被缓存, 不需要开启 tracking
+            if (current.id != 0L && readerGenerations[index] != current.generation) {
+                jedis.sendCommand(Protocol.Command.CLIENT, "TRACKING", "OFF");
+                jedis.sendCommand(Protocol.Command.CLIENT, trackingArgs(current.id));
+                readerGenerations[index] = current.generation;
+            }
+            return command.apply(jedis);
+        } catch (JedisConnectionException e) {
+            // 这个连接上跟踪的 key 不会再收到通知
+            closeReader(index);
+            invalidationSeq.incrementAndGet();
+            clearLocal();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String[] trackingArgs(long redirect) {
+        List<String> args = new ArrayList<>(Arrays.asList("TRACKING", "ON", "REDIRECT", String.valueOf(redirect)));
+        if (prefixes != null) {
+            args.add("BCAST");
+            for (String prefix : prefixes) {
+                args.add("PREFIX");
+                args.add(prefix);
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private void closeReader(int index) {
+        Jedis jedis = readers[index];
+        readers[index] = null;
+        if (jedis != null) {
+            try {
+                jedis.close();
+            } catch (RuntimeException ignored) {
+                // 连接已经断开
+            }
+        }
+    }
+
+    /* 订阅失效通知直到 close, 连接断开后重新订阅 */
+    private void listen() {
+        long backoff = MIN_BACKOFF;
+        while (running) {
+            try (Jedis jedis = redis.newDedicatedJedis()) {
+                listener = jedis;
+                long id = jedis.clientId();
+                jedis.getClient().sendCommand(Protocol.Command.SUBSCRIBE, INVALIDATE_CHANNEL);
+                jedis.getClient().getOne();
+                jedis.getClient().setTimeoutInfinite();
+                redirect = new Redirect(id, ++generation);
+                backoff = MIN_BACKOFF;
+                while (running) {
+                    onMessage(jedis.getClient().getOne());
+                }
+            } catch (JedisConnectionException e) {
+                if (running) {
+                    log.warn("{}", new StringBuilder(64).append("ex=").append(e.getClass().getSimpleName())
+                            .append(", errmsg=").append(e.getMessage()));
+                }
+            } catch (RuntimeException e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                // 先撤下 redirect 再增加序号: 序号变化前开始的读会被丢弃, 之后开始的读看不到可用的订阅连接
+                redirect = Redirect.NONE;
+                listener = null;
+                invalidationSeq.incrementAndGet();
+                clearLocal();
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onMessage(Object reply) {
+        if (!(reply instanceof List)) {
+            return;
+        }
+        List<Object> message = (List<Object>) reply;
+        if (message.size() < 3 || !"message".equals(SafeEncoder.encode((byte[]) message.get(0)))) {
+            return;
+        }
+        invalidationSeq.incrementAndGet();
+        Object keys = message.get(2);
+        if (!(keys instanceof List)) {
+            // FLUSHALL / FLUSHDB 时通知的 key 列表为空
+            invalidations.increment();
+            clearLocal();
+            return;
+        }
+        for (Object key : (List<Object>) keys) {
+            invalidations.increment();
+            invalidateLocal(SafeEncoder.encode((byte[]) key));
+        }
+    }
+
+    /*
+     * 先放进本地缓存再检查读的期间是否收到过通知, 收到过就删掉刚放进去的值.
+     * 先检查再放的话, 通知在两步之间到达时过时的值会留下, 而默认模式下 redis 发出通知后就不再跟踪这个 key,
+     * 之后不会再有通知把它删掉. 通知先增加序号再删除本地副本, 所以这里没看到序号变化时, 那次删除一定在放入之后
+     */
+    private void discardIfInvalidated(String key, long seq) {
+        if (seq != invalidationSeq.get()) {
+            invalidateLocal(key);
+        }
+    }
+
+    private void invalidateLocal(String key) {
+        strings.invalidate(key);
+        hashes.invalidate(key);
+    }
+
+    private void clearLocal() {
+        strings.invalidateAll();
+        hashes.invalidateAll();
+    }
+
+    private static final class Redirect {
+
+        private static final Redirect NONE = new Redirect(0L, 0L);
+
+        private final long id;
+        private final long generation;
+
+        private Redirect(long id, long generation) {
+            this.id = id;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.hpl.collection;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 按页从 redis 拉取元素的迭代器, 同一时刻堆上只有一到两页数据
+ * <p>
+ * prefetcher 不为null时, 拿到一页后立刻在 prefetcher 上异步拉取下一页, 消费当前页和网络往返重叠
+ * <p>
+ * 按下标分页(positional)时, 通过迭代器删除的元素会让后面元素的下标前移, 所以游标记录的是已经走过的元素个数,
+ * 实际下标为游标减去已删除的个数, 删除后已经预取的下一页作废
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 10:00
+ */
+abstract class PagedIterator<T> implements Iterator<T> {
+
+    private final Executor prefetcher;
+    private final boolean positional;
+
+    private Iterator<T> current = Collections.emptyIterator();
+    private String cursor;
+    private boolean finished;
+    private CompletableFuture<Page<T>> pending;
+
+    private T last;
+    private boolean removable;
+    private long removed;
+
+    PagedIterator(String firstCursor, Executor prefetcher, boolean positional) {
+        this.cursor = firstCursor;
+        this.prefetcher = prefetcher;
+        this.positional = positional;
+    }
+
+    /** 拉取 cursor 对应的一页 **/
+    abstract Page<T> fetch(String cursor);
+
+    /** 按下标分页时, 游标对应的实际下标 **/
+    long offset(String cursor) {
+        return Long.parseLong(cursor) - removed;
+    }
+
+    /** 删除迭代器刚返回的元素, 默认不支持 **/
+    void remove(T element) {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            Page<T> page = nextPage();
+            current = page.items.iterator();
+            cursor = page.next;
+            finished = page.next == null;
+            if (!finished && prefetcher != null) {
+                final String next = page.next;
+                pending = CompletableFuture.supplyAsync(() -> fetch(next), prefetcher);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        last = current.next();
+        removable = true;
+        return last;
+    }
+
+    @Override
+    public void remove() {
+        if (!removable) {
+            throw new IllegalStateException();
+        }
+        removable = false;
+        remove(last);
+        if (positional) {
+            removed++;
+            pending = null;
+        }
+    }
+
+    private Page<T> nextPage() {
+        if (pending == null) {
+            return fetch(cursor);
+        }
+        CompletableFuture<Page<T>> future = pending;
+        pending = null;
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /** 一页元素和下一页的游标, 游标为null表示没有下一页 **/
+    static final class Page<T> {
+
+        final List<T> items;
+        final String next;
+
+        Page(List<T> items, String next) {
+            this.items = items;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.hpl.collection;
+
+import com.hpl.redis.Redis;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * redis list 的 {@link List} 视图, 不会把整个 list 读到堆上
+ * <p>
+ * size / get / set / add 分别下推为 LLEN / LINDEX / LSET / RPUSH; 遍历时用 LRANGE 按下标每次取 pageSize 个元素.
+ * 按下标分页意味着遍历期间在表头插入或删除元素会导致重复或遗漏. 不支持在中间插入和按下标删除
+ * <p>
+ * LINDEX 在服务端是 O(N) 的, 逐个下标 get 的遍历方式应改用 iterator
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 10:50
+ */
+public class RedisList extends AbstractList<String> {
+
+    private final Redis redis;
+    private final String key;
+    private final int pageSize;
+    private final Executor prefetcher;
+
+    private RedisList(Redis redis, String key, int pageSize, Executor prefetcher) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.pageSize = pageSize;
+        this.prefetcher = prefetcher;
+    }
+
+    /** 每页100个, 不预取 **/
+    public static final RedisList of(Redis redis, String key){
+        return new RedisList(redis, key, 100, null);
+    }
+
+    /**
+     * @param pageSize   每页的元素数
+     * @param prefetcher 预取下一页的线程池, 为null时不预取
+     */
+    public static final RedisList of(Redis redis, String key, int pageSize, Executor prefetcher){
+        return new RedisList(redis, key, pageSize, prefetcher);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(redis.llen(key), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.llen(key) == 0L;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        String value = redis.lindex(key, index);
+        if (value == null) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return value;
+    }
+
+    /** LINDEX 和 LSET 在一次 pipeline 里发出 **/
+    @Override
+    public String set(int index, String element) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        List<Object> replies = redis.pipelined(pipeline -> {
+            pipeline.lindex(key, index);
+            pipeline.lset(key, index, element);
+        });
+        if (replies.get(1) instanceof Exception) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return (String) replies.get(0);
+    }
+
+    @Override
+    public boolean add(String element) {
+        redis.rpush(key, element);
+        return true;
+    }
+
+    /** 删除第一个等于 element 的元素 **/
+    @Override
+    public boolean remove(Object element) {
+        return element instanceof String && redis.lrem(key, 1L, (String) element) > 0L;
+    }
+
+    @Override
+    public void clear() {
+        redis.del(key);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new PagedIterator<String>("0", prefetcher, true) {
+            @Override
+            Page<String> fetch(String cursor) {
+                long start = offset(cursor);
+                List<String> items = redis.lrange(key, start, start + pageSize - 1);
+                String next = items.size() < pageSize ? null : Long.toString(Long.parseLong(cursor) + items.size());
+                return new Page<>(new ArrayList<>(items), next);
+            }
+        };
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,166 @@
+package com.hpl.collection;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * redis hash 的 {@link Map} 视图, 不会把整个 hash 读到堆上
+ * <p>
+ * size / containsKey / get 分别下推为 HLEN / HEXISTS / HGET; 遍历时用 HSCAN 每次取 pageSize 个 field.
+ * HSCAN 的语义决定了遍历期间 hash 被修改时可能重复返回同一个 field, 但遍历开始前就存在且一直未删除的 field 一定会返回
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 10:20
+ */
+public class RedisMap extends AbstractMap<String, String> {
+
+    private final Redis redis;
+    private final String key;
+    private final int pageSize;
+    private final Executor prefetcher;
+
+    private RedisMap(Redis redis, String key, int pageSize, Executor prefetcher) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.pageSize = pageSize;
+        this.prefetcher = prefetcher;
+    }
+
+    /** 每页100个, 不预取 **/
+    public static final RedisMap of(Redis redis, String key){
+        return new RedisMap(redis, key, 100, null);
+    }
+
+    /**
+     * @param pageSize   每页的元素数(SCAN 的 COUNT)
+     * @param prefetcher 预取下一页的线程池, 为null时不预取
+     */
+    public static final RedisMap of(Redis redis, String key, int pageSize, Executor prefetcher){
+        return new RedisMap(redis, key, pageSize, prefetcher);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(redis.hlen(key), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.hlen(key) == 0L;
+    }
+
+    @Override
+    public boolean containsKey(Object field) {
+        return field instanceof String && redis.hexists(key, (String) field);
+    }
+
+    @Override
+    public String get(Object field) {
+        return field instanceof String ? redis.hget(key, (String) field) : null;
+    }
+
+    /** HGET 和 HSET 在一次 pipeline 里发出 **/
+    @Override
+    public String put(String field, String value) {
+        List<Object> replies = redis.pipelined(pipeline -> {
+            pipeline.hget(key, field);
+            pipeline.hset(key, field, value);
+        });
+        return (String) replies.get(0);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> map) {
+        if (!map.isEmpty()) {
+            redis.hmset(key, new HashMap<String, String>(map));
+        }
+    }
+
+    /** HGET 和 HDEL 在一次 pipeline 里发出 **/
+    @Override
+    public String remove(Object field) {
+        if (!(field instanceof String)) {
+            return null;
+        }
+        List<Object> replies = redis.pipelined(pipeline -> {
+            pipeline.hget(key, (String) field);
+            pipeline.hdel(key, (String) field);
+        });
+        return (String) replies.get(0);
+    }
+
+    @Override
+    public void clear() {
+        redis.del(key);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new PagedIterator<Entry<String, String>>(ScanParams.SCAN_POINTER_START, prefetcher, false) {
+                    @Override
+                    Page<Entry<String, String>> fetch(String cursor) {
+                        ScanResult<Entry<String, String>> result = redis.hscan(key, cursor,
+                                new ScanParams().count(pageSize));
+                        List<Entry<String, String>> entries = new ArrayList<>(result.getResult().size());
+                        for (Entry<String, String> entry : result.getResult()) {
+                            entries.add(new WriteThroughEntry(entry.getKey(), entry.getValue()));
+                        }
+                        return new Page<>(entries, result.isCompleteIteration() ? null : result.getCursor());
+                    }
+
+                    @Override
+                    void remove(Entry<String, String> entry) {
+                        redis.hdel(key, entry.getKey());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return RedisMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                RedisMap.this.clear();
+            }
+        };
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /* setValue 直接写回 hash */
+    private final class WriteThroughEntry extends SimpleEntry<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry(String field, String value) {
+            super(field, value);
+        }
+
+        @Override
+        public String setValue(String value) {
+            redis.hset(key, getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
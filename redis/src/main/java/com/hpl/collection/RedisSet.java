@@ -0,0 +1,100 @@
+package com.hpl.collection;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * redis set 的 {@link Set} 视图, 不会把整个 set 读到堆上
+ * <p>
+ * size / contains / add / remove 分别下推为 SCARD / SISMEMBER / SADD / SREM; 遍历时用 SSCAN 每次取 pageSize 个成员,
+ * 遍历期间 set 被修改时可能重复返回同一个成员
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 10:40
+ */
+public class RedisSet extends AbstractSet<String> {
+
+    private final Redis redis;
+    private final String key;
+    private final int pageSize;
+    private final Executor prefetcher;
+
+    private RedisSet(Redis redis, String key, int pageSize, Executor prefetcher) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.pageSize = pageSize;
+        this.prefetcher = prefetcher;
+    }
+
+    /** 每页100个, 不预取 **/
+    public static final RedisSet of(Redis redis, String key){
+        return new RedisSet(redis, key, 100, null);
+    }
+
+    /**
+     * @param pageSize   每页的元素数(SCAN 的 COUNT)
+     * @param prefetcher 预取下一页的线程池, 为null时不预取
+     */
+    public static final RedisSet of(Redis redis, String key, int pageSize, Executor prefetcher){
+        return new RedisSet(redis, key, pageSize, prefetcher);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(redis.scard(key), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.scard(key) == 0L;
+    }
+
+    @Override
+    public boolean contains(Object member) {
+        return member instanceof String && redis.sismember(key, (String) member);
+    }
+
+    @Override
+    public boolean add(String member) {
+        return redis.sadd(key, member) == 1L;
+    }
+
+    @Override
+    public boolean remove(Object member) {
+        return member instanceof String && redis.srem(key, (String) member) == 1L;
+    }
+
+    @Override
+    public void clear() {
+        redis.del(key);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new PagedIterator<String>(ScanParams.SCAN_POINTER_START, prefetcher, false) {
+            @Override
+            Page<String> fetch(String cursor) {
+                ScanResult<String> result = redis.sscan(key, cursor, new ScanParams().count(pageSize));
+                return new Page<>(result.getResult(), result.isCompleteIteration() ? null : result.getCursor());
+            }
+
+            @Override
+            void remove(String member) {
+                redis.srem(key, member);
+            }
+        };
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,131 @@
+package com.hpl.collection;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.Tuple;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * redis zset 的 {@link Set} 视图, 按分数从小到大遍历, 不会把整个 zset 读到堆上
+ * <p>
+ * size / contains / remove 分别下推为 ZCARD / ZSCORE / ZREM; 遍历时用 ZRANGE 按排名每次取 pageSize 个成员,
+ * 遍历期间有成员的排名发生变化时可能重复或遗漏. 添加成员必须带分数, 见 {@link #add(String, double)}
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 11:00
+ */
+public class RedisSortedSet extends AbstractSet<String> {
+
+    private final Redis redis;
+    private final String key;
+    private final int pageSize;
+    private final Executor prefetcher;
+
+    private RedisSortedSet(Redis redis, String key, int pageSize, Executor prefetcher) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.pageSize = pageSize;
+        this.prefetcher = prefetcher;
+    }
+
+    /** 每页100个, 不预取 **/
+    public static final RedisSortedSet of(Redis redis, String key){
+        return new RedisSortedSet(redis, key, 100, null);
+    }
+
+    /**
+     * @param pageSize   每页的元素数
+     * @param prefetcher 预取下一页的线程池, 为null时不预取
+     */
+    public static final RedisSortedSet of(Redis redis, String key, int pageSize, Executor prefetcher){
+        return new RedisSortedSet(redis, key, pageSize, prefetcher);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(redis.zcard(key), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.zcard(key) == 0L;
+    }
+
+    @Override
+    public boolean contains(Object member) {
+        return member instanceof String && redis.zscore(key, (String) member) != null;
+    }
+
+    /** 成员的分数, 不存在时返回null **/
+    public Double score(String member) {
+        return redis.zscore(key, member);
+    }
+
+    /** 不带分数无法加入 zset **/
+    @Override
+    public boolean add(String member) {
+        throw new UnsupportedOperationException("use add(member, score)");
+    }
+
+    /** 加入或更新成员的分数, 新加入时返回true **/
+    public boolean add(String member, double score) {
+        return redis.zadd(key, score, member) == 1L;
+    }
+
+    @Override
+    public boolean remove(Object member) {
+        return member instanceof String && redis.zrem(key, (String) member) == 1L;
+    }
+
+    @Override
+    public void clear() {
+        redis.del(key);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new PagedIterator<String>("0", prefetcher, true) {
+            @Override
+            Page<String> fetch(String cursor) {
+                long start = offset(cursor);
+                Set<String> members = redis.zrange(key, start, start + pageSize - 1);
+                String next = members.size() < pageSize ? null : Long.toString(Long.parseLong(cursor) + members.size());
+                return new Page<>(new ArrayList<>(members), next);
+            }
+
+            @Override
+            void remove(String member) {
+                redis.zrem(key, member);
+            }
+        };
+    }
+
+    /** 带分数的遍历, 分页方式与 {@link #iterator()} 相同 **/
+    public Iterator<Tuple> iteratorWithScores() {
+        return new PagedIterator<Tuple>("0", prefetcher, true) {
+            @Override
+            Page<Tuple> fetch(String cursor) {
+                long start = offset(cursor);
+                Set<Tuple> tuples = redis.zrangeWithScores(key, start, start + pageSize - 1);
+                String next = tuples.size() < pageSize ? null : Long.toString(Long.parseLong(cursor) + tuples.size());
+                return new Page<>(new ArrayList<>(tuples), next);
+            }
+
+            @Override
+            void remove(Tuple tuple) {
+                redis.zrem(key, tuple.getElement());
+            }
+        };
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,73 @@
+package com.hpl.compress;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 带透明压缩的字符串读写, 方法与 {@link Redis} 的同名方法一一对应
+ * 写入时超过阈值的 value 被压缩, 读取时自动识别压缩头, 未压缩的旧 value 可以照常读取
+ * <p>
+ * 灰度上线时, 先让所有读取方升级到本类, 再打开写入方的压缩
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 18:00
+ */
+public class CompressingRedis {
+
+    private final Redis redis;
+    private final ValueCompressor compressor;
+
+    private CompressingRedis(Redis redis, ValueCompressor compressor) {
+        this.redis = redis;
+        this.compressor = compressor;
+    }
+
+    public static final CompressingRedis of(Redis redis, ValueCompressor compressor){
+        return new CompressingRedis(redis, compressor);
+    }
+
+    public String get(final String key) {
+        return decode(redis.get(SafeEncoder.encode(key)));
+    }
+
+    public String set(final String key, final String value) {
+        return redis.set(SafeEncoder.encode(key), encode(value));
+    }
+
+    public String setex(final String key, final long seconds, final String value) {
+        return redis.setex(SafeEncoder.encode(key), seconds, encode(value));
+    }
+
+    public String hget(final String key, final String field) {
+        return decode(redis.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)));
+    }
+
+    public Long hset(final String key, final String field, final String value) {
+        return redis.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), encode(value));
+    }
+
+    public Map<String, String> hgetAll(final String key) {
+        Map<byte[], byte[]> raw = redis.hgetAll(SafeEncoder.encode(key));
+        Map<String, String> result = new HashMap<>(raw.size() * 2);
+        for (Map.Entry<byte[], byte[]> entry : raw.entrySet()) {
+            result.put(SafeEncoder.encode(entry.getKey()), decode(entry.getValue()));
+        }
+        return result;
+    }
+
+    public ValueCompressor getCompressor() {
+        return compressor;
+    }
+
+    private byte[] encode(String value) {
+        return compressor.encode(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decode(byte[] stored) {
+        return stored == null ? null : new String(compressor.decode(stored), StandardCharsets.UTF_8);
+    }
+}
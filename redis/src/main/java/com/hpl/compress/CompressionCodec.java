@@ -0,0 +1,22 @@
+package com.hpl.compress;
+
+/**
+ * 压缩算法
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 17:20
+ */
+public interface CompressionCodec {
+
+    /** 写在 value 头部的算法编号, 读取时据此选择解压算法, 不同算法的编号不能重复 **/
+    byte id();
+
+    /** 压缩 length 字节最多需要的空间 **/
+    int maxCompressedLength(int length);
+
+    /** 把 src 压缩到 dst 的 dstOffset 处, 返回压缩后的字节数 **/
+    int compress(byte[] src, byte[] dst, int dstOffset);
+
+    /** 把 src[srcOffset, srcOffset + srcLength) 解压到 dst, dst 的长度等于原始长度 **/
+    void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst);
+}
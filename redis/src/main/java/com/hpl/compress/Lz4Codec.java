@@ -0,0 +1,49 @@
+package com.hpl.compress;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * LZ4 压缩, 压缩率一般但速度最快, 适合延迟敏感的读写
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 17:25
+ */
+public class Lz4Codec implements CompressionCodec {
+
+    public static final byte ID = 1;
+
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    private Lz4Codec(LZ4Factory factory) {
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    /** 优先使用 JNI 实现, 不可用时退回纯 java 实现 **/
+    public static final Lz4Codec create(){
+        return new Lz4Codec(LZ4Factory.fastestInstance());
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return compressor.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] src, byte[] dst, int dstOffset) {
+        return compressor.compress(src, 0, src.length, dst, dstOffset, dst.length - dstOffset);
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst) {
+        decompressor.decompress(src, srcOffset, dst, 0, dst.length);
+    }
+}
@@ -0,0 +1,149 @@
+package com.hpl.compress;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 给 value 加上压缩头的编解码器
+ * <p>
+ * 压缩后的格式: [0xC1][codec id][原始长度, 4字节大端][压缩数据]
+ * 0xC1 在 UTF-8 中永远不会出现, 所以任何字符串 value 都不会被误判为压缩数据, 压缩与未压缩的 value 可以在灰度期间混存.
+ * 二进制 value 恰好以 0xC1 开头时, 会以 codec id 为0(不压缩)的格式存储
+ * <p>
+ * 同时统计压缩前后的字节数和耗时, 用于评估各压缩算法的收益
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 17:40
+ */
+public class ValueCompressor {
+
+    static final byte MAGIC = (byte) 0xC1;
+    static final byte NONE = 0;
+    static final int HEADER_LENGTH = 6;
+
+    private final CompressionCodec writeCodec;
+    private final int threshold;
+
+    /* 下标为 codec id */
+    private final CompressionCodec[] readCodecs;
+
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    private ValueCompressor(CompressionCodec writeCodec, int threshold, CompressionCodec... readCodecs) {
+        this.writeCodec = writeCodec;
+        this.threshold = threshold;
+        this.readCodecs = new CompressionCodec[256];
+        register(writeCodec);
+        for (CompressionCodec codec : readCodecs) {
+            register(codec);
+        }
+    }
+
+    /**
+     * @param writeCodec 写入时使用的压缩算法
+     * @param threshold  不小于该字节数的 value 才压缩
+     * @param readCodecs 读取时额外支持的压缩算法, 比如更换字典的过渡期里旧字典的 codec
+     */
+    public static final ValueCompressor of(CompressionCodec writeCodec, int threshold,
+                                           CompressionCodec... readCodecs){
+        return new ValueCompressor(writeCodec, threshold, readCodecs);
+    }
+
+    /** 按需压缩, 压缩后没有变小时原样存储 **/
+    public byte[] encode(byte[] raw) {
+        if (raw.length >= threshold) {
+            long start = System.nanoTime();
+            byte[] out = new byte[HEADER_LENGTH + writeCodec.maxCompressedLength(raw.length)];
+            int size = writeCodec.compress(raw, out, HEADER_LENGTH);
+            compressNanos.add(System.nanoTime() - start);
+
+            if (HEADER_LENGTH + size < raw.length) {
+                writeHeader(out, writeCodec.id(), raw.length);
+                rawBytes.add(raw.length);
+                storedBytes.add(HEADER_LENGTH + size);
+                return Arrays.copyOf(out, HEADER_LENGTH + size);
+            }
+        }
+
+        if (raw.length > 0 && raw[0] == MAGIC) {
+            byte[] out = new byte[HEADER_LENGTH + raw.length];
+            writeHeader(out, NONE, raw.length);
+            System.arraycopy(raw, 0, out, HEADER_LENGTH, raw.length);
+            return out;
+        }
+        return raw;
+    }
+
+    /** 解压, 没有压缩头的 value 原样返回 **/
+    public byte[] decode(byte[] stored) {
+        if (!isCompressed(stored)) {
+            return stored;
+        }
+        int length = ((stored[2] & 0xFF) << 24) | ((stored[3] & 0xFF) << 16) | ((stored[4] & 0xFF) << 8)
+                | (stored[5] & 0xFF);
+        byte id = stored[1];
+        if (id == NONE) {
+            return Arrays.copyOfRange(stored, HEADER_LENGTH, HEADER_LENGTH + length);
+        }
+
+        CompressionCodec codec = readCodecs[id & 0xFF];
+        if (codec == null) {
+            throw new IllegalStateException("unknown compression codec id " + id);
+        }
+        long start = System.nanoTime();
+        byte[] raw = new byte[length];
+        codec.decompress(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH, raw);
+        decompressNanos.add(System.nanoTime() - start);
+        return raw;
+    }
+
+    public static boolean isCompressed(byte[] stored) {
+        return stored != null && stored.length >= HEADER_LENGTH && stored[0] == MAGIC;
+    }
+
+    /** 已压缩的 value 的压缩率(压缩后 / 压缩前) **/
+    public double compressionRatio() {
+        long raw = rawBytes.sum();
+        return raw == 0L ? 1.0 : (double) storedBytes.sum() / raw;
+    }
+
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public long getStoredBytes() {
+        return storedBytes.sum();
+    }
+
+    /** 累计压缩耗时, 包括压缩后没有变小而放弃的部分 **/
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+
+    private void register(CompressionCodec codec) {
+        if (codec.id() == NONE) {
+            throw new IllegalArgumentException("codec id 0 is reserved");
+        }
+        CompressionCodec exist = readCodecs[codec.id() & 0xFF];
+        if (exist != null && exist != codec) {
+            throw new IllegalArgumentException("duplicate compression codec id " + codec.id());
+        }
+        readCodecs[codec.id() & 0xFF] = codec;
+    }
+
+    private static void writeHeader(byte[] out, byte id, int length) {
+        out[0] = MAGIC;
+        out[1] = id;
+        out[2] = (byte) (length >>> 24);
+        out[3] = (byte) (length >>> 16);
+        out[4] = (byte) (length >>> 8);
+        out[5] = (byte) length;
+    }
+}
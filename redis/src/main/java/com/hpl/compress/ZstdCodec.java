@@ -0,0 +1,94 @@
+package com.hpl.compress;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+
+import java.util.Collection;
+
+/**
+ * zstd 压缩, 压缩率高于 LZ4
+ * 对于大量结构相似的小 value(比如同一种 json), 用样本训练出的字典压缩效果远好于单独压缩每个 value
+ * <p>
+ * 使用字典时, 读写双方必须使用同一份字典, 更换字典时请使用新的 id, 并在过渡期同时注册新旧两个 codec 用于读取
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 17:30
+ */
+public class ZstdCodec implements CompressionCodec {
+
+    public static final byte ID = 2;
+    private static final int DEFAULT_LEVEL = 3;
+
+    private final byte id;
+    private final int level;
+    private final ZstdDictCompress compressDict;
+    private final ZstdDictDecompress decompressDict;
+
+    private ZstdCodec(byte id, int level, byte[] dictionary) {
+        this.id = id;
+        this.level = level;
+        this.compressDict = dictionary == null ? null : new ZstdDictCompress(dictionary, level);
+        this.decompressDict = dictionary == null ? null : new ZstdDictDecompress(dictionary);
+    }
+
+    /** 不使用字典, 默认压缩级别3 **/
+    public static final ZstdCodec create(){
+        return new ZstdCodec(ID, DEFAULT_LEVEL, null);
+    }
+
+    /** 使用训练好的字典, id 用于区分不同的字典 **/
+    public static final ZstdCodec withDictionary(byte id, int level, byte[] dictionary){
+        if (id == ID || id == Lz4Codec.ID || id == ValueCompressor.NONE) {
+            throw new IllegalArgumentException("codec id " + id + " is reserved");
+        }
+        return new ZstdCodec(id, level, dictionary);
+    }
+
+    /** 用样本训练字典, 样本应该是线上真实 value 的抽样 **/
+    public static byte[] trainDictionary(Collection<byte[]> samples, int dictionarySize) {
+        long totalSize = 0L;
+        for (byte[] sample : samples) {
+            totalSize += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(totalSize, Integer.MAX_VALUE), dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    @Override
+    public byte id() {
+        return id;
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return (int) Zstd.compressBound(length);
+    }
+
+    @Override
+    public int compress(byte[] src, byte[] dst, int dstOffset) {
+        long size = compressDict == null
+                ? Zstd.compressByteArray(dst, dstOffset, dst.length - dstOffset, src, 0, src.length, level)
+                : Zstd.compressFastDict(dst, dstOffset, src, 0, src.length, compressDict);
+        return (int) check(size);
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst) {
+        long size = decompressDict == null
+                ? Zstd.decompressByteArray(dst, 0, dst.length, src, srcOffset, srcLength)
+                : Zstd.decompressFastDict(dst, 0, src, srcOffset, srcLength, decompressDict);
+        check(size);
+    }
+
+    private static long check(long size) {
+        if (Zstd.isError(size)) {
+            throw new IllegalStateException("zstd error: " + Zstd.getErrorName(size));
+        }
+        return size;
+    }
+}
@@ -0,0 +1,264 @@
+package com.hpl.counter;
+
+import com.hpl.redis.Redis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 计数器的写回缓冲
+ * <p>
+ * incr / incrBy / hincrBy 只在本地按 key(和 field)累加到 {@link LongAdder}, 定时用一个 pipeline 把累加值批量写回 redis,
+ * 同一个 key 一个周期内的上百万次自增只产生一条 INCRBY / HINCRBY
+ * <p>
+ * 1. maxStalenessMillis: 本地增量最长多久写回一次, 也就是 redis 里的值最多落后多久
+ * 2. maxPendingKeys: 本地最多缓冲多少个不同的 key/field, 超过时调用线程同步写回一次, 防止内存无限增长
+ * 3. {@link #shutdown()} 会停止定时任务并把剩余增量写回; 也可以注册为 JVM 关闭钩子
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 15:30
+ */
+public class WriteBehindCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCounter.class);
+
+    private final Redis redis;
+    private final int maxPendingKeys;
+
+    /* 字符串计数器 key -> 增量 */
+    private final ConcurrentHashMap<String, LongAdder> counters;
+    /* hash 计数器 key -> field -> 增量 */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, LongAdder>> hashCounters;
+    private final AtomicInteger pendingKeys;
+
+    /* 上次清理时移除的 adder, 在下一次写回时再取一次增量, 兜住移除前已经拿到 adder 的并发自增 */
+    private List<Delta> retired;
+
+    /* 写回时持有, 超过 maxPendingKeys 的调用线程也会在这里等待, 不使用 synchronized 以免钉住虚拟线程 */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ScheduledFuture<?> flushTask;
+    private volatile boolean shutdown;
+
+    private WriteBehindCounter(Redis redis, ScheduledExecutorService scheduler, long maxStalenessMillis,
+                               int maxPendingKeys) {
+        if (maxStalenessMillis <= 0 || maxPendingKeys <= 0) {
+            throw new IllegalArgumentException("maxStalenessMillis and maxPendingKeys must be positive");
+        }
+        this.redis = redis;
+        this.maxPendingKeys = maxPendingKeys;
+        this.counters = new ConcurrentHashMap<>();
+        this.hashCounters = new ConcurrentHashMap<>();
+        this.pendingKeys = new AtomicInteger();
+        this.retired = new ArrayList<>();
+        this.flushTask = scheduler.scheduleWithFixedDelay(this::flushQuietly, maxStalenessMillis,
+                maxStalenessMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static final WriteBehindCounter create(Redis redis, ScheduledExecutorService scheduler,
+                                                  long maxStalenessMillis, int maxPendingKeys){
+        return new WriteBehindCounter(redis, scheduler, maxStalenessMillis, maxPendingKeys);
+    }
+
+    public void incr(String key) {
+        incrBy(key, 1L);
+    }
+
+    public void incrBy(String key, long increment) {
+        checkRunning();
+        LongAdder adder = counters.get(key);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(key, k -> newPendingAdder());
+        }
+        adder.add(increment);
+        flushIfFull();
+    }
+
+    public void hincrBy(String key, String field, long increment) {
+        checkRunning();
+        ConcurrentHashMap<String, LongAdder> fields = hashCounters.get(key);
+        if (fields == null) {
+            fields = hashCounters.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        }
+        LongAdder adder = fields.get(field);
+        if (adder == null) {
+            adder = fields.computeIfAbsent(field, f -> newPendingAdder());
+        }
+        adder.add(increment);
+        flushIfFull();
+    }
+
+    /** 本地缓冲的不同 key/field 个数 **/
+    public int pendingKeys() {
+        return pendingKeys.get();
+    }
+
+    /**
+     * 把本地增量用一个 pipeline 写回 redis
+     * 用 sumThenReset 取走增量而不替换 adder, 这样并发的自增不会丢失; 缓冲的 key 超过 maxPendingKeys 的一半时,
+     * 移除这个周期没有自增过的 adder
+     * <p>
+     * 1. 还没拿到连接就失败时命令一条都没有发出, 增量加回本地等待下次重试;
+     * 2. 命令开始发送之后失败(如读回复超时)时服务端可能已经执行了部分 INCRBY / HINCRBY, 重试会重复累加,
+     *    所以这部分增量只记日志不重试, 每个增量至多写回一次, 这种情况下可能丢失;
+     * 3. 单条命令的错误回复(如 key 类型不对、自增溢出)重试也不会成功, 记日志后丢弃
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        final List<Delta> deltas = new ArrayList<>();
+        List<Delta> drained = retired;
+        retired = new ArrayList<>();
+        final List<Delta> retiredDeltas = new ArrayList<>();
+        for (Delta removed : drained) {
+            long delta = removed.adder.sumThenReset();
+            if (delta != 0L) {
+                retiredDeltas.add(new Delta(removed.key, removed.field, delta, removed.adder));
+            }
+        }
+        deltas.addAll(retiredDeltas);
+        // 只清掉这个周期没有自增过的 adder, 控制 map 的大小
+        boolean evict = pendingKeys.get() > maxPendingKeys / 2;
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta != 0L) {
+                deltas.add(new Delta(entry.getKey(), null, delta, entry.getValue()));
+            } else if (evict && counters.remove(entry.getKey(), entry.getValue())) {
+                retire(entry.getKey(), null, entry.getValue());
+            }
+        }
+        for (Map.Entry<String, ConcurrentHashMap<String, LongAdder>> hash : hashCounters.entrySet()) {
+            ConcurrentHashMap<String, LongAdder> fields = hash.getValue();
+            for (Map.Entry<String, LongAdder> entry : fields.entrySet()) {
+                long delta = entry.getValue().sumThenReset();
+                if (delta != 0L) {
+                    deltas.add(new Delta(hash.getKey(), entry.getKey(), delta, entry.getValue()));
+                } else if (evict && fields.remove(entry.getKey(), entry.getValue())) {
+                    retire(hash.getKey(), entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        final AtomicBoolean sending = new AtomicBoolean();
+        List<Object> replies;
+        try {
+            replies = redis.pipelined(pipeline -> {
+                sending.set(true);
+                for (Delta delta : deltas) {
+                    if (delta.field == null) {
+                        pipeline.incrBy(delta.key, delta.value);
+                    } else {
+                        pipeline.hincrBy(delta.key, delta.field, delta.value);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!sending.get()) {
+                for (Delta delta : deltas) {
+                    delta.adder.add(delta.value);
+                }
+                // 已移除的 adder 不在任何 map 里, 必须留在 retired 中, 否则加回去的增量再也不会被写回
+                retired.addAll(retiredDeltas);
+            } else {
+                log.error("counter flush failed after sending, {} deltas dropped to avoid applying twice",
+                        deltas.size());
+            }
+            throw e;
+        }
+        for (int i = 0; i < replies.size(); i++) {
+            Object reply = replies.get(i);
+            if (reply instanceof JedisDataException) {
+                Delta delta = deltas.get(i);
+                log.error("{} failed, key={}, field={}, delta={}, errmsg={}",
+                        delta.field == null ? "incrby" : "hincrby", delta.key, delta.field, delta.value,
+                        ((JedisDataException) reply).getMessage());
+            }
+        }
+    }
+
+    /** 停止定时写回, 并同步写回剩余的增量, 之后不能再自增 **/
+    public void shutdown() {
+        shutdown = true;
+        flushTask.cancel(false);
+        flush();
+    }
+
+    /** 注册 JVM 关闭钩子, 进程正常退出时写回剩余的增量 **/
+    public WriteBehindCounter registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                shutdown();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }, "write-behind-counter-shutdown"));
+        return this;
+    }
+
+    private LongAdder newPendingAdder() {
+        pendingKeys.incrementAndGet();
+        return new LongAdder();
+    }
+
+    private void flushIfFull() {
+        if (pendingKeys.get() > maxPendingKeys) {
+            flush();
+        }
+    }
+
+    private void retire(String key, String field, LongAdder adder) {
+        pendingKeys.decrementAndGet();
+        retired.add(new Delta(key, field, 0L, adder));
+    }
+
+    private void checkRunning() {
+        if (shutdown) {
+            throw new IllegalStateException("write behind counter already shutdown.");
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private static final class Delta {
+
+        private final String key;
+        private final String field;
+        private final long value;
+        private final LongAdder adder;
+
+        private Delta(String key, String field, long value, LongAdder adder) {
+            this.key = key;
+            this.field = field;
+            this.value = value;
+            this.adder = adder;
+        }
+    }
+}
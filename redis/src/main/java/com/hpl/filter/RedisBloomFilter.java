@@ -0,0 +1,187 @@
+package com.hpl.filter;
+
+import com.google.common.hash.Hashing;
+import com.hpl.redis.Redis;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于 redis bitmap 的布隆过滤器
+ * k 个位置在客户端用 murmur3_128 双重哈希算出, 一次 add/contains 的 k 个位操作放在一个 pipeline 里, 只需一次往返
+ * <p>
+ * 单个 redis 字符串最多 2^32 位(512MB), 位数超过时自动拆成 key, key:1, key:2 ... 多个分段
+ * 预计插入数量未知或会持续增长时请使用 {@link ScalableBloomFilter}
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 22:40
+ */
+public class RedisBloomFilter {
+
+    /* redis 字符串的最大位数 */
+    static final long MAX_BITS_PER_KEY = 1L << 32;
+
+    private final Redis redis;
+    private final String key;
+    private final String[] segmentKeys;
+    private final long numBits;
+    private final int numHashFunctions;
+
+    private RedisBloomFilter(Redis redis, String key, long numBits, int numHashFunctions) {
+        this.redis = redis;
+        this.key = key;
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+
+        this.segmentKeys = new String[(int) ((numBits + MAX_BITS_PER_KEY - 1) / MAX_BITS_PER_KEY)];
+        this.segmentKeys[0] = key;
+        for (int i = 1; i < segmentKeys.length; i++) {
+            segmentKeys[i] = key + ':' + i;
+        }
+    }
+
+    /** 根据预计插入数量和期望误判率创建, 位数和哈希函数个数的算法与 guava 的 BloomFilter 一致 **/
+    public static final RedisBloomFilter create(Redis redis, String key, long expectedInsertions, double fpp){
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and fpp must be in (0, 1)");
+        }
+        long numBits = Math.max(optimalNumOfBits(expectedInsertions, fpp), 1L);
+        return new RedisBloomFilter(redis, key, numBits, optimalNumOfHashFunctions(expectedInsertions, numBits));
+    }
+
+    /** 添加一个元素, 有位从0变成1时返回true(即该元素之前一定不存在) **/
+    public boolean put(String value) {
+        final long[] offsets = offsets(value);
+        return anyChanged(redis.pipelined(pipeline -> setBits(pipeline, offsets)));
+    }
+
+    /** 判断元素是否可能存在, 返回false时一定不存在 **/
+    public boolean mightContain(String value) {
+        final long[] offsets = offsets(value);
+        return allSet(redis.pipelined(pipeline -> getBits(pipeline, offsets)), 0, numHashFunctions);
+    }
+
+    /** 批量添加, 所有元素的位操作在一个 pipeline 里发送, 返回实际新增的元素个数 **/
+    public int putAll(Collection<String> values) {
+        final List<long[]> offsets = offsets(values);
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (long[] valueOffsets : offsets) {
+                setBits(pipeline, valueOffsets);
+            }
+        });
+        int added = 0;
+        for (int i = 0; i < offsets.size(); i++) {
+            if (anyChanged(replies.subList(i * numHashFunctions, (i + 1) * numHashFunctions))) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /** 批量判断, 所有元素的位操作在一个 pipeline 里发送, 返回值与 values 的迭代顺序一一对应 **/
+    public List<Boolean> mightContainAll(Collection<String> values) {
+        final List<long[]> offsets = offsets(values);
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (long[] valueOffsets : offsets) {
+                getBits(pipeline, valueOffsets);
+            }
+        });
+        List<Boolean> result = new ArrayList<>(offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            result.add(allSet(replies, i * numHashFunctions, numHashFunctions));
+        }
+        return result;
+    }
+
+    /** 删除整个过滤器 **/
+    public void clear() {
+        redis.del(segmentKeys);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /* 与 guava BloomFilterStrategies.MURMUR128_MITZ_64 相同的双重哈希 */
+    long[] offsets(String value) {
+        byte[] bytes = Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asBytes();
+        long hash1 = lowerEight(bytes, 0);
+        long hash2 = lowerEight(bytes, 8);
+
+        long[] offsets = new long[numHashFunctions];
+        long combinedHash = hash1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            offsets[i] = (combinedHash & Long.MAX_VALUE) % numBits;
+            combinedHash += hash2;
+        }
+        return offsets;
+    }
+
+    /* 往 pipeline 里追加 k 个 setbit, 回复依次为各位原来的值 */
+    void setBits(Pipeline pipeline, long[] offsets) {
+        for (long offset : offsets) {
+            pipeline.setbit(segmentKeys[(int) (offset / MAX_BITS_PER_KEY)], offset % MAX_BITS_PER_KEY, true);
+        }
+    }
+
+    /* 往 pipeline 里追加 k 个 getbit */
+    void getBits(Pipeline pipeline, long[] offsets) {
+        for (long offset : offsets) {
+            pipeline.getbit(segmentKeys[(int) (offset / MAX_BITS_PER_KEY)], offset % MAX_BITS_PER_KEY);
+        }
+    }
+
+    List<long[]> offsets(Collection<String> values) {
+        List<long[]> offsets = new ArrayList<>(values.size());
+        for (String value : values) {
+            offsets.add(offsets(value));
+        }
+        return offsets;
+    }
+
+    static boolean anyChanged(List<Object> setbitReplies) {
+        for (Object reply : setbitReplies) {
+            // setbit 返回的是该位原来的值
+            if (Boolean.FALSE.equals(reply)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean allSet(List<Object> getbitReplies, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            if (!Boolean.TRUE.equals(getbitReplies.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long lowerEight(byte[] bytes, int from) {
+        long value = 0L;
+        for (int i = from + 7; i >= from; i--) {
+            value = (value << 8) | (bytes[i] & 0xFFL);
+        }
+        return value;
+    }
+
+    static long optimalNumOfBits(long n, double p) {
+        return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    static int optimalNumOfHashFunctions(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+}
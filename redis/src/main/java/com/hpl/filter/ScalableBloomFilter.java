@@ -0,0 +1,207 @@
+package com.hpl.filter;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 可扩容的布隆过滤器(Scalable Bloom Filter), 由多层 {@link RedisBloomFilter} 叠加而成
+ * 当前层写满后新建一层, 容量按 growth 倍增长, 误判率按 tightening 收紧, 总误判率收敛于 fpp / (1 - tightening)
+ * <p>
+ * 层数和每层的计数保存在 key:meta 这个 hash 里, 各层参数由层号推导, 多个节点共享同一组 redis key 即可协同扩容
+ * 全部数据都在 redis 里, JVM 堆上只有每层的几个参数
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 23:10
+ */
+public class ScalableBloomFilter {
+
+    private static final String LAYERS_FIELD = "layers";
+    private static final String COUNT_FIELD_PREFIX = "count:";
+
+    private static final int DEFAULT_GROWTH = 2;
+    private static final double DEFAULT_TIGHTENING = 0.8;
+
+    // KEYS[1]=meta key, ARGV[1]=调用方看到的层数, 只有层数没被其他节点改过时才加一层, 返回最新层数
+    private static final RedisScript GROW_SCRIPT = RedisScript.of(
+            "local layers = tonumber(redis.call('HGET', KEYS[1], 'layers') or '1')\n" +
+            "if layers == tonumber(ARGV[1]) then\n" +
+            "    layers = redis.call('HINCRBY', KEYS[1], 'layers', 1)\n" +
+            "end\n" +
+            "return layers");
+
+    private final Redis redis;
+    private final String key;
+    private final String metaKey;
+    private final long initialCapacity;
+    private final double fpp;
+    private final int growth;
+    private final double tightening;
+
+    /* 本地已知的各层, 只增不减, 写时复制 */
+    private volatile List<Layer> layers;
+
+    private ScalableBloomFilter(Redis redis, String key, long initialCapacity, double fpp, int growth,
+                                double tightening) {
+        if (initialCapacity <= 0 || fpp <= 0 || fpp >= 1 || growth < 1 || tightening <= 0 || tightening >= 1) {
+            throw new IllegalArgumentException("illegal scalable bloom filter parameters");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.metaKey = key + ":meta";
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.growth = growth;
+        this.tightening = tightening;
+        this.layers = Collections.singletonList(newLayer(0));
+    }
+
+    /** 默认每层容量翻倍, 误判率每层乘以0.8 **/
+    public static final ScalableBloomFilter create(Redis redis, String key, long initialCapacity, double fpp){
+        return new ScalableBloomFilter(redis, key, initialCapacity, fpp, DEFAULT_GROWTH, DEFAULT_TIGHTENING);
+    }
+
+    public static final ScalableBloomFilter create(Redis redis, String key, long initialCapacity, double fpp,
+                                                   int growth, double tightening){
+        return new ScalableBloomFilter(redis, key, initialCapacity, fpp, growth, tightening);
+    }
+
+    /** 判断元素是否可能存在, 所有层的位操作在一个 pipeline 里 **/
+    public boolean mightContain(String value) {
+        return mightContainAll(Collections.singletonList(value)).get(0);
+    }
+
+    /** 批量判断, 返回值与 values 的迭代顺序一一对应 **/
+    public List<Boolean> mightContainAll(Collection<String> values) {
+        final List<Layer> current = layers;
+        final List<List<long[]>> offsets = new ArrayList<>(current.size());
+        for (Layer layer : current) {
+            offsets.add(layer.filter.offsets(values));
+        }
+
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (int l = 0; l < current.size(); l++) {
+                for (long[] valueOffsets : offsets.get(l)) {
+                    current.get(l).filter.getBits(pipeline, valueOffsets);
+                }
+            }
+            pipeline.hget(metaKey, LAYERS_FIELD);
+        });
+        syncLayers((String) replies.get(replies.size() - 1));
+
+        List<Boolean> result = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            result.add(Boolean.FALSE);
+        }
+        int from = 0;
+        for (Layer layer : current) {
+            int k = layer.filter.getNumHashFunctions();
+            for (int i = 0; i < values.size(); i++, from += k) {
+                if (!result.get(i) && RedisBloomFilter.allSet(replies, from, k)) {
+                    result.set(i, Boolean.TRUE);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** 添加一个元素, 元素之前一定不存在时返回true **/
+    public boolean put(String value) {
+        return putAll(Collections.singletonList(value)) > 0;
+    }
+
+    /**
+     * 批量添加, 已经可能存在的元素会被跳过, 其余元素写入最新一层
+     * 一共两次往返: 一次批量判断, 一次批量写入并累加该层计数
+     *
+     * @return 实际新增的元素个数
+     */
+    public int putAll(Collection<String> values) {
+        List<Boolean> contains = mightContainAll(values);
+        final List<String> absent = new ArrayList<>();
+        int i = 0;
+        for (String value : values) {
+            if (!contains.get(i++)) {
+                absent.add(value);
+            }
+        }
+        if (absent.isEmpty()) {
+            return 0;
+        }
+
+        final List<Layer> current = layers;
+        final Layer last = current.get(current.size() - 1);
+        final List<long[]> offsets = last.filter.offsets(absent);
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (long[] valueOffsets : offsets) {
+                last.filter.setBits(pipeline, valueOffsets);
+            }
+            pipeline.hincrBy(metaKey, COUNT_FIELD_PREFIX + last.index, absent.size());
+        });
+
+        long count = (Long) replies.get(replies.size() - 1);
+        if (count >= last.capacity) {
+            Object layerCount = redis.eval(GROW_SCRIPT, Collections.singletonList(metaKey),
+                    Collections.singletonList(String.valueOf(current.size())));
+            syncLayers(String.valueOf(layerCount));
+        }
+        return absent.size();
+    }
+
+    /** 删除全部层和元数据 **/
+    public void clear() {
+        for (Layer layer : layers) {
+            layer.filter.clear();
+        }
+        redis.del(metaKey);
+        layers = Collections.singletonList(newLayer(0));
+    }
+
+    /** 本地已知的层数 **/
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    /* 其他节点扩容后, 本地补齐缺少的层 */
+    private void syncLayers(String remoteLayers) {
+        int remote = remoteLayers == null ? 1 : Integer.parseInt(remoteLayers);
+        List<Layer> current = layers;
+        if (remote <= current.size()) {
+            return;
+        }
+        synchronized (this) {
+            current = layers;
+            if (remote <= current.size()) {
+                return;
+            }
+            List<Layer> grown = new ArrayList<>(current);
+            for (int i = current.size(); i < remote; i++) {
+                grown.add(newLayer(i));
+            }
+            layers = Collections.unmodifiableList(grown);
+        }
+    }
+
+    private Layer newLayer(int index) {
+        long capacity = (long) (initialCapacity * Math.pow(growth, index));
+        double layerFpp = fpp * Math.pow(tightening, index);
+        return new Layer(index, capacity, RedisBloomFilter.create(redis, key + ':' + index, capacity, layerFpp));
+    }
+
+    private static final class Layer {
+
+        private final int index;
+        private final long capacity;
+        private final RedisBloomFilter filter;
+
+        private Layer(int index, long capacity, RedisBloomFilter filter) {
+            this.index = index;
+            this.capacity = capacity;
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.hpl.leaderboard;
+
+import com.hpl.redis.Redis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于 zset 的排行榜
+ * <p>
+ * 1. 分数增量先在本地按 member 累加, 定时用一个 pipeline 批量 ZINCRBY 写回, 同一 member 的多次增量只产生一条命令
+ * 2. 定时刷新本地 top-N 快照, 读榜单和榜内排名不访问 redis
+ * 3. 成员数很大时可按 member 哈希拆成多个分片 key:0 ... key:n-1, 榜单由各分片的 top-N 归并得到
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 10:20
+ */
+public class Leaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboard.class);
+
+    private static final Comparator<Tuple> BY_SCORE_DESC = (a, b) -> {
+        int c = Double.compare(b.getScore(), a.getScore());
+        return c != 0 ? c : b.getElement().compareTo(a.getElement());
+    };
+
+    private final Redis redis;
+    private final String[] shardKeys;
+    private final int topN;
+
+    /* 还没写回 redis 的分数增量 */
+    private final ConcurrentHashMap<String, Double> pending;
+
+    /* 最近一次刷新的 top-N, 按分数从高到低 */
+    private volatile List<Tuple> top;
+    private volatile Map<String, Integer> topRanks;
+
+    private final ScheduledFuture<?> flushTask;
+    private final ScheduledFuture<?> refreshTask;
+
+    private Leaderboard(Redis redis, String key, int shardCount, int topN, ScheduledExecutorService scheduler,
+                        long flushIntervalMillis, long refreshIntervalMillis) {
+        if (shardCount <= 0 || topN <= 0) {
+            throw new IllegalArgumentException("shardCount and topN must be positive");
+        }
+        this.redis = redis;
+        this.topN = topN;
+        this.pending = new ConcurrentHashMap<>();
+        this.top = Collections.emptyList();
+        this.topRanks = Collections.emptyMap();
+
+        this.shardKeys = new String[shardCount];
+        if (shardCount == 1) {
+            shardKeys[0] = key;
+        } else {
+            for (int i = 0; i < shardCount; i++) {
+                shardKeys[i] = key + ':' + i;
+            }
+        }
+
+        this.flushTask = scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis,
+                flushIntervalMillis, TimeUnit.MILLISECONDS);
+        this.refreshTask = scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0L, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** 不分片的排行榜 **/
+    public static final Leaderboard create(Redis redis, String key, int topN, ScheduledExecutorService scheduler,
+                                           long flushIntervalMillis, long refreshIntervalMillis){
+        return new Leaderboard(redis, key, 1, topN, scheduler, flushIntervalMillis, refreshIntervalMillis);
+    }
+
+    /** 按 member 哈希拆成 shardCount 个 zset 的排行榜 **/
+    public static final Leaderboard sharded(Redis redis, String key, int shardCount, int topN,
+                                            ScheduledExecutorService scheduler, long flushIntervalMillis,
+                                            long refreshIntervalMillis){
+        return new Leaderboard(redis, key, shardCount, topN, scheduler, flushIntervalMillis, refreshIntervalMillis);
+    }
+
+    /** 累加分数, 只写本地缓冲, 在下一次 flush 时写回 redis **/
+    public void incrementScore(String member, double delta) {
+        pending.merge(member, delta, Double::sum);
+    }
+
+    /** 本地 top-N 快照, 按分数从高到低 **/
+    public List<Tuple> top() {
+        return top;
+    }
+
+    /** 快照里的前 n 名, n 不能超过 topN **/
+    public List<Tuple> top(int n) {
+        List<Tuple> snapshot = top;
+        return snapshot.subList(0, Math.min(n, snapshot.size()));
+    }
+
+    /**
+     * 名次(从0开始, 分数从高到低), 不在榜上时返回null
+     * 在 top-N 快照里的成员直接读本地, 否则访问 redis: 不分片时一次 ZREVRANK,
+     * 分片时先 ZSCORE 再用一个 pipeline 对所有分片 ZCOUNT 更高分数的成员数
+     */
+    public Long rank(String member) {
+        Integer local = topRanks.get(member);
+        if (local != null) {
+            return local.longValue();
+        }
+        if (shardKeys.length == 1) {
+            return redis.zrevrank(shardKeys[0], member);
+        }
+
+        Double score = redis.zscore(shardOf(member), member);
+        if (score == null) {
+            return null;
+        }
+        final String min = "(" + score;
+        List<Object> counts = redis.pipelined(pipeline -> {
+            for (String shardKey : shardKeys) {
+                pipeline.zcount(shardKey, min, "+inf");
+            }
+        });
+        long rank = 0L;
+        for (Object count : counts) {
+            if (count instanceof JedisDataException) {
+                throw (JedisDataException) count;
+            }
+            rank += (Long) count;
+        }
+        return rank;
+    }
+
+    /** 成员在 redis 里的分数, 不包含本地还没写回的增量 **/
+    public Double score(String member) {
+        return redis.zscore(shardOf(member), member);
+    }
+
+    /**
+     * 把本地缓冲的增量用一个 pipeline 写回 redis
+     * <p>
+     * 1. 还没拿到连接就失败时命令一条都没有发出, 增量放回缓冲等待下次重试;
+     * 2. 命令开始发送之后失败(如读回复超时)时服务端可能已经执行了部分 ZINCRBY, 重试会重复累加,
+     *    所以这部分增量只记日志不重试, 每个增量至多写回一次, 这种情况下可能丢失;
+     * 3. 单条命令的错误回复(如 key 类型不对)重试也不会成功, 记日志后丢弃
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final List<Map.Entry<String, Double>> batch = new ArrayList<>(pending.size());
+        for (String member : pending.keySet()) {
+            Double delta = pending.remove(member);
+            if (delta != null) {
+                batch.add(new AbstractMap.SimpleImmutableEntry<>(member, delta));
+            }
+        }
+
+        final AtomicBoolean sending = new AtomicBoolean();
+        List<Object> replies;
+        try {
+            replies = redis.pipelined(pipeline -> {
+                sending.set(true);
+                for (Map.Entry<String, Double> entry : batch) {
+                    pipeline.zincrby(shardOf(entry.getKey()), entry.getValue(), entry.getKey());
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!sending.get()) {
+                batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Double::sum));
+            } else {
+                log.error("leaderboard flush failed after sending, {} deltas dropped to avoid applying twice",
+                        batch.size());
+            }
+            throw e;
+        }
+        for (int i = 0; i < replies.size(); i++) {
+            Object reply = replies.get(i);
+            if (reply instanceof JedisDataException) {
+                Map.Entry<String, Double> entry = batch.get(i);
+                log.error("zincrby failed, key={}, member={}, delta={}, errmsg={}", shardOf(entry.getKey()),
+                        entry.getKey(), entry.getValue(), ((JedisDataException) reply).getMessage());
+            }
+        }
+    }
+
+    /** 重新拉取 top-N 快照, 各分片的 ZREVRANGE 在一个 pipeline 里 **/
+    public void refresh() {
+        List<Object> replies = redis.pipelined(pipeline -> {
+            for (String shardKey : shardKeys) {
+                pipeline.zrevrangeWithScores(shardKey, 0, topN - 1);
+            }
+        });
+
+        List<Tuple> merged = new ArrayList<>(topN * shardKeys.length);
+        for (Object reply : replies) {
+            // 任意一个分片出错时保留旧的快照
+            if (reply instanceof JedisDataException) {
+                throw (JedisDataException) reply;
+            }
+            @SuppressWarnings("unchecked")
+            Set<Tuple> tuples = (Set<Tuple>) reply;
+            merged.addAll(tuples);
+        }
+        merged.sort(BY_SCORE_DESC);
+        List<Tuple> snapshot = merged.size() > topN ? new ArrayList<>(merged.subList(0, topN)) : merged;
+
+        Map<String, Integer> ranks = new HashMap<>(snapshot.size() * 2);
+        for (int i = 0; i < snapshot.size(); i++) {
+            ranks.put(snapshot.get(i).getElement(), i);
+        }
+        this.top = Collections.unmodifiableList(snapshot);
+        this.topRanks = ranks;
+    }
+
+    /** 停止定时任务, 并把剩余的增量写回 redis **/
+    public void shutdown() {
+        flushTask.cancel(false);
+        refreshTask.cancel(false);
+        flush();
+    }
+
+    private String shardOf(String member) {
+        if (shardKeys.length == 1) {
+            return shardKeys[0];
+        }
+        return shardKeys[Math.floorMod(member.hashCode(), shardKeys.length)];
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.hpl.lock;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带 fencing token 的 redis 锁
+ * <p>
+ * 每次加锁成功时在同一个脚本里对 "key:fence" 执行 INCR, 得到一个单调递增的 token.
+ * 持锁者因为 GC 停顿等原因在锁过期后才继续执行时, 别人已经拿到了更大的 token,
+ * 通过 {@link #set} / {@link #hset} / {@link #zadd} 写入时脚本发现 token 不是最新的就放弃写入,
+ * 不需要在写之前再查一次锁是否还在
+ * <p>
+ * token 计数器没有过期时间, 不能删除, 否则 token 会从头开始. 写入的 key 和锁在同一个 redis 实例上才能在脚本里一起检查
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/23 10:20
+ */
+public class FencedLock implements MyLock {
+
+    private static final Logger log = LoggerFactory.getLogger(FencedLock.class);
+
+    private static final RedisScript ACQUIRE = RedisScript.of(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then\n" +
+            "    return redis.call('INCR', KEYS[2])\n" +
+            "end\n" +
+            "return 0");
+
+    private static final RedisScript RELEASE = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "    return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0");
+
+    /* token 仍然是计数器的当前值时才执行写入 */
+    private static final RedisScript GUARDED_WRITE = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local op = ARGV[2]\n" +
+            "if op == 'set' then\n" +
+            "    redis.call('SET', KEYS[2], ARGV[3])\n" +
+            "elseif op == 'hset' then\n" +
+            "    redis.call('HSET', KEYS[2], ARGV[3], ARGV[4])\n" +
+            "elseif op == 'zadd' then\n" +
+            "    redis.call('ZADD', KEYS[2], ARGV[3], ARGV[4])\n" +
+            "end\n" +
+            "return 1");
+
+    private final Redis redis;
+    private final String key;
+    private final String fenceKey;
+    private final long ttlMillis;
+
+    /* 本次加锁的持有者标识, 解锁时只删除自己的锁 */
+    private volatile String owner;
+    /* 本次加锁得到的 token, 没有持有锁时为0 */
+    private volatile long token;
+
+    private FencedLock(Redis redis, String key, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.fenceKey = key + ":fence";
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param ttlMillis 锁的过期时间
+     */
+    public static final FencedLock of(Redis redis, String key, long ttlMillis){
+        return new FencedLock(redis, key, ttlMillis);
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @return 加锁成功返回本次的 fencing token (从1开始), 失败返回0
+     */
+    public long acquire() {
+        String candidate = UUID.randomUUID().toString();
+        try {
+            Object result = redis.eval(ACQUIRE, Arrays.asList(key, fenceKey),
+                    Arrays.asList(candidate, String.valueOf(ttlMillis)));
+            long acquired = result == null ? 0L : (Long) result;
+            if (acquired > 0) {
+                owner = candidate;
+                token = acquired;
+            }
+            return acquired;
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return 0L;
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        return acquire() > 0;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long end = System.currentTimeMillis() + unit.toMillis(time);
+        do {
+            if (tryLock()) {
+                return true;
+            }
+            TimeUnit.MILLISECONDS.sleep(1L);
+        } while (System.currentTimeMillis() < end);
+        return false;
+    }
+
+    /* 只删除自己持有的锁, 锁已经过期并被别人拿到时不做任何事 */
+    @Override
+    public void unLock() {
+        String current = owner;
+        if (current == null) {
+            return;
+        }
+        owner = null;
+        token = 0L;
+        try {
+            redis.eval(RELEASE, Collections.singletonList(key), Collections.singletonList(current));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /** 本次加锁得到的 token, 没有持有锁时为0 **/
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * token 仍然是最新的时候执行 SET
+     *
+     * @return 写入成功返回true; 没有持有锁或者锁已经被别人重新获取返回false
+     */
+    public boolean set(String key, String value) {
+        return guardedWrite(key, "set", value);
+    }
+
+    /**
+     * token 仍然是最新的时候执行 HSET
+     *
+     * @return 写入成功返回true; 没有持有锁或者锁已经被别人重新获取返回false
+     */
+    public boolean hset(String key, String field, String value) {
+        return guardedWrite(key, "hset", field, value);
+    }
+
+    /**
+     * token 仍然是最新的时候执行 ZADD
+     *
+     * @return 写入成功返回true; 没有持有锁或者锁已经被别人重新获取返回false
+     */
+    public boolean zadd(String key, double score, String member) {
+        String raw = Double.isInfinite(score) ? (score > 0 ? "+inf" : "-inf") : String.valueOf(score);
+        return guardedWrite(key, "zadd", raw, member);
+    }
+
+    private boolean guardedWrite(String target, String op, String... values) {
+        long current = token;
+        if (current == 0L) {
+            return false;
+        }
+        String[] args = new String[values.length + 2];
+        args[0] = String.valueOf(current);
+        args[1] = op;
+        System.arraycopy(values, 0, args, 2, values.length);
+        Object result = redis.eval(GUARDED_WRITE, Arrays.asList(fenceKey, target), Arrays.asList(args));
+        return result != null && (Long) result == 1L;
+    }
+}
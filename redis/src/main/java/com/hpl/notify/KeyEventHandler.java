@@ -0,0 +1,18 @@
+package com.hpl.notify;
+
+import java.util.List;
+
+/**
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 20:10
+ */
+public interface KeyEventHandler {
+
+    /**
+     * 处理一批 key 事件, 每个批次单独提交给线程池, 批次之间不保证执行顺序
+     *
+     * @param event 事件名, 如 expired / del / set
+     * @param keys  发生该事件的 key
+     */
+    void handle(String event, List<String> keys);
+}
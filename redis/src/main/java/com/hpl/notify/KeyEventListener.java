@@ -0,0 +1,395 @@
+package com.hpl.notify;
+
+import com.hpl.redis.Redis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 keyevent 通知的 key 事件监听器, 用来代替轮询 ttl / exists 等待 key 过期或被删除
+ * <p>
+ * 1. 每个事件一个模式订阅 {@code __keyevent@<db>__:<event>}, db 为 -1 时订阅所有库;
+ * 2. 处理器按 key 前缀注册, 启动时编译成每个事件一棵前缀树, 每条通知只需沿着 key 走一遍;
+ * 3. 通知先按处理器攒批, 攒满 batchSize 或等待超过 lingerMillis 后提交到线程池;
+ * 4. 连接断开后自动重新订阅, 重试间隔从100ms翻倍到5s
+ * <p>
+ * pub/sub 不保证送达, 断线期间的事件会丢失; expired 事件在 redis 真正删除 key 时才发出,
+ * 没有被访问的 key 依赖后台的定期删除, 可能比 ttl 晚一些
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/22 20:15
+ */
+public class KeyEventListener implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyEventListener.class);
+
+    private static final long MIN_BACKOFF = 100L;
+    private static final long MAX_BACKOFF = 5_000L;
+
+    /* 事件对应的 notify-keyspace-events 类型标识 */
+    private static final Map<String, Character> EVENT_FLAGS = new HashMap<>();
+
+    static {
+        EVENT_FLAGS.put("expired", 'x');
+        EVENT_FLAGS.put("evicted", 'e');
+        EVENT_FLAGS.put("new", 'n');
+        EVENT_FLAGS.put("set", '$');
+        EVENT_FLAGS.put("setrange", '$');
+        EVENT_FLAGS.put("incrby", '$');
+        EVENT_FLAGS.put("incrbyfloat", '$');
+        EVENT_FLAGS.put("append", '$');
+        EVENT_FLAGS.put("hset", 'h');
+        EVENT_FLAGS.put("hdel", 'h');
+        EVENT_FLAGS.put("hincrby", 'h');
+        EVENT_FLAGS.put("lpush", 'l');
+        EVENT_FLAGS.put("rpush", 'l');
+        EVENT_FLAGS.put("lpop", 'l');
+        EVENT_FLAGS.put("rpop", 'l');
+        EVENT_FLAGS.put("sadd", 's');
+        EVENT_FLAGS.put("srem", 's');
+        EVENT_FLAGS.put("zadd", 'z');
+        EVENT_FLAGS.put("zrem", 'z');
+        EVENT_FLAGS.put("zincr", 'z');
+        EVENT_FLAGS.put("xadd", 't');
+    }
+
+    private final Redis redis;
+    private final String database;
+    private final ExecutorService handlerPool;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+    private final long lingerMillis;
+
+    /* 事件 -> 前缀 -> 处理器, 启动前注册 */
+    private final Map<String, Map<String, List<KeyEventHandler>>> registrations = new LinkedHashMap<>();
+    /* 事件 -> 编译好的前缀树, 启动后只读 */
+    private volatile Map<String, Node> routes = Collections.emptyMap();
+    private final List<Batch> batches = new ArrayList<>();
+
+    private volatile boolean running;
+    private volatile Thread thread;
+    private volatile JedisPubSub pubSub;
+    private ScheduledFuture<?> lingerTask;
+
+    private KeyEventListener(Redis redis, int database, ExecutorService handlerPool,
+                             ScheduledExecutorService scheduler, int batchSize, long lingerMillis) {
+        if (batchSize <= 0 || lingerMillis <= 0) {
+            throw new IllegalArgumentException("batch size and linger must be positive");
+        }
+        this.redis = redis;
+        this.database = database < 0 ? "*" : String.valueOf(database);
+        this.handlerPool = handlerPool;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * 监听所有库, 每批最多100个 key, 最多等待50ms
+     *
+     * @param handlerPool 执行处理器的线程池
+     * @param scheduler   定时提交未攒满的批次
+     */
+    public static final KeyEventListener of(Redis redis, ExecutorService handlerPool,
+                                            ScheduledExecutorService scheduler){
+        return new KeyEventListener(redis, -1, handlerPool, scheduler, 100, 50L);
+    }
+
+    /**
+     * @param database     监听的库, -1 表示所有库
+     * @param batchSize    每批最多的 key 数
+     * @param lingerMillis 批次未攒满时最多等待的时间
+     */
+    public static final KeyEventListener of(Redis redis, int database, ExecutorService handlerPool,
+                                            ScheduledExecutorService scheduler, int batchSize, long lingerMillis){
+        return new KeyEventListener(redis, database, handlerPool, scheduler, batchSize, lingerMillis);
+    }
+
+    /** 监听前缀为 keyPrefix 的 key 过期 **/
+    public KeyEventListener onExpired(String keyPrefix, KeyEventHandler handler) {
+        return on("expired", keyPrefix, handler);
+    }
+
+    /** 监听前缀为 keyPrefix 的 key 被 DEL / UNLINK 删除 **/
+    public KeyEventListener onDeleted(String keyPrefix, KeyEventHandler handler) {
+        return on("del", keyPrefix, handler);
+    }
+
+    /**
+     * 注册处理器, 启动后不能再注册. 同一个 key 匹配多个前缀时每个处理器都会收到
+     *
+     * @param event     keyevent 事件名, 如 expired / evicted / del / set / hset
+     * @param keyPrefix key 前缀, 空字符串匹配所有 key
+     */
+    public synchronized KeyEventListener on(String event, String keyPrefix, KeyEventHandler handler) {
+        if (thread != null) {
+            throw new UnsupportedOperationException("can't add handler after listener already started.");
+        }
+        registrations.computeIfAbsent(event, k -> new LinkedHashMap<>())
+                .computeIfAbsent(keyPrefix, k -> new ArrayList<>()).add(handler);
+        return this;
+    }
+
+    /**
+     * 把注册的事件需要的类型加入 notify-keyspace-events, 保留原有配置
+     * 托管的 redis 往往禁用了 CONFIG 命令, 此时需要在控制台里配置
+     * <p>
+     * 只在复制已注册的事件时持有监视器, CONFIG GET / SET 两次网络往返在锁外执行, 不阻塞 on / close, 也不钉住虚拟线程
+     *
+     * @return 配置成功或者原本已经满足返回true, CONFIG 不可用时返回false
+     */
+    public boolean enableNotifications() {
+        List<String> events;
+        synchronized (this) {
+            events = new ArrayList<>(registrations.keySet());
+        }
+        try {
+            List<String> current = redis.configGet("notify-keyspace-events");
+            String flags = current.size() < 2 ? "" : current.get(1);
+            String required = requiredFlags(flags, events);
+            if (required.isEmpty()) {
+                return true;
+            }
+            redis.configSet("notify-keyspace-events", flags + required);
+            return true;
+        } catch (JedisDataException e) {
+            log.warn("can't configure notify-keyspace-events, errmsg={}", e.getMessage());
+            return false;
+        }
+    }
+
+    /* 在新线程上开启订阅, 只能调用一次 */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalThreadStateException("listener already started.");
+        }
+        if (registrations.isEmpty()) {
+            throw new IllegalStateException("no handler registered.");
+        }
+        Map<String, Node> compiled = new HashMap<>(registrations.size() * 2);
+        registrations.forEach((event, prefixes) -> compiled.put(event, compile(event, prefixes)));
+        routes = compiled;
+        running = true;
+        lingerTask = scheduler.scheduleWithFixedDelay(this::flushAll, lingerMillis, lingerMillis,
+                TimeUnit.MILLISECONDS);
+
+        Thread subscribeThread = new Thread(this, "key-event-listener");
+        subscribeThread.setDaemon(true);
+        thread = subscribeThread;
+        subscribeThread.start();
+    }
+
+    /* 订阅线程是否还在运行 */
+    public boolean isAlive() {
+        Thread subscribeThread = thread;
+        return subscribeThread != null && subscribeThread.isAlive();
+    }
+
+    @Override
+    /* 订阅直到 close, 连接断开后重新订阅 */
+    public void run() {
+        String[] patterns = routes.keySet().stream()
+                .map(event -> "__keyevent@" + database + "__:" + event).toArray(String[]::new);
+        long backoff = MIN_BACKOFF;
+        while (running) {
+            Listener listener = new Listener();
+            pubSub = listener;
+            try (Jedis jedis = redis.newDedicatedJedis()) {
+                jedis.psubscribe(listener, patterns);
+            } catch (JedisConnectionException e) {
+                log.warn("{}", new StringBuilder(64).append("ex=").append(e.getClass().getSimpleName())
+                        .append(", errmsg=").append(e.getMessage()));
+            } catch (RuntimeException e) {
+                log.error(e.getMessage(), e);
+            }
+            if (!running) {
+                break;
+            }
+            if (listener.subscribed) {
+                backoff = MIN_BACKOFF;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    /* 取消订阅并提交剩余的批次，在退出的时候调用 */
+    public synchronized void close() {
+        running = false;
+        JedisPubSub current = pubSub;
+        if (current != null && current.isSubscribed()) {
+            current.punsubscribe();
+        }
+        Thread subscribeThread = thread;
+        if (subscribeThread != null) {
+            subscribeThread.interrupt();
+        }
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+        }
+        flushAll();
+    }
+
+    private void dispatch(String channel, String key) {
+        int separator = channel.indexOf("__:");
+        if (separator < 0) {
+            return;
+        }
+        Node node = routes.get(channel.substring(separator + 3));
+        if (node == null) {
+            return;
+        }
+        // 沿着 key 走前缀树, 路过的每个节点上的批次都是匹配的
+        for (int i = 0; ; i++) {
+            for (Batch batch : node.batches) {
+                batch.add(key);
+            }
+            if (i == key.length() || (node = node.children.get(key.charAt(i))) == null) {
+                return;
+            }
+        }
+    }
+
+    private Node compile(String event, Map<String, List<KeyEventHandler>> prefixes) {
+        Node root = new Node();
+        prefixes.forEach((prefix, handlers) -> {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+            }
+            for (KeyEventHandler handler : handlers) {
+                Batch batch = new Batch(event, handler);
+                batches.add(batch);
+                node.batches.add(batch);
+            }
+        });
+        return root;
+    }
+
+    private static String requiredFlags(String current, List<String> events) {
+        Set<Character> required = new LinkedHashSet<>();
+        if (current.indexOf('E') < 0) {
+            required.add('E');
+        }
+        for (String event : events) {
+            Character flag = EVENT_FLAGS.get(event);
+            if (flag == null) {
+                // del / expire / rename 等通用命令的事件
+                flag = 'g';
+            }
+            boolean coveredByAll = current.indexOf('A') >= 0 && "g$lshzxet".indexOf(flag) >= 0;
+            if (current.indexOf(flag) < 0 && !coveredByAll) {
+                required.add(flag);
+            }
+        }
+        StringBuilder flags = new StringBuilder(required.size());
+        required.forEach(flags::append);
+        return flags.toString();
+    }
+
+    private void flushAll() {
+        for (Batch batch : batches) {
+            try {
+                batch.flush();
+            } catch (RuntimeException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private final class Listener extends JedisPubSub {
+
+        volatile boolean subscribed;
+
+        @Override
+        public void onPSubscribe(String pattern, int subscribedChannels) {
+            subscribed = true;
+            if (!running) {
+                punsubscribe();
+            }
+        }
+
+        @Override
+        public void onPMessage(String pattern, String channel, String message) {
+            dispatch(channel, message);
+        }
+    }
+
+    /* 前缀树节点, 挂着以该节点为结尾的前缀的批次 */
+    private static final class Node {
+
+        final Map<Character, Node> children = new HashMap<>(4);
+        final List<Batch> batches = new ArrayList<>(1);
+    }
+
+    /* 一个处理器待提交的 key */
+    private final class Batch {
+
+        final String event;
+        final KeyEventHandler handler;
+        List<String> keys;
+
+        Batch(String event, KeyEventHandler handler) {
+            this.event = event;
+            this.handler = handler;
+            this.keys = new ArrayList<>(batchSize);
+        }
+
+        void add(String key) {
+            List<String> full = null;
+            synchronized (this) {
+                keys.add(key);
+                if (keys.size() >= batchSize) {
+                    full = keys;
+                    keys = new ArrayList<>(batchSize);
+                }
+            }
+            if (full != null) {
+                submit(full);
+            }
+        }
+
+        void flush() {
+            List<String> pending;
+            synchronized (this) {
+                if (keys.isEmpty()) {
+                    return;
+                }
+                pending = keys;
+                keys = new ArrayList<>(batchSize);
+            }
+            submit(pending);
+        }
+
+        void submit(List<String> pending) {
+            handlerPool.execute(() -> {
+                try {
+                    handler.handle(event, pending);
+                } catch (RuntimeException e) {
+                    log.error(e.getMessage(), e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.hpl.queue;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于 zset 的延时任务队列
+ * <p>
+ * key 是以到期时间(毫秒)为分数的 zset, 任务内容和领取次数分别存在 key:payload, key:attempts 两个 hash 里.
+ * 领取时用脚本原子地取出一批到期任务, 并把它们的分数推后一个可见性超时, 这样处理任务的节点宕机后任务会自动重新到期;
+ * 领取次数超过 maxAttempts 的任务移入 key:dead 列表. 所有时间都取 redis 服务端时间.
+ * <p>
+ * {@link #start} 启动一个拉取线程, 每次领取后按最早到期时间休眠, 而不是固定间隔轮询; 本节点投递了更早到期的任务时会立即唤醒
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 11:10
+ */
+public class DelayQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayQueue.class);
+
+    private static final long DEFAULT_VISIBILITY_TIMEOUT = 30_000L;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long MAX_POLL_INTERVAL = 1_000L;
+
+    private static final String NOW =
+            "redis.replicate_commands()\n" +
+            "local t = redis.call('TIME')\n" +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)\n";
+
+    // KEYS[1]=zset, KEYS[2]=payload hash, ARGV[1]=id, ARGV[2]=payload, ARGV[3]=延时毫秒, 返回到期时间
+    private static final RedisScript OFFER_SCRIPT = RedisScript.of(NOW +
+            "local due = now + tonumber(ARGV[3])\n" +
+            "redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])\n" +
+            "redis.call('ZADD', KEYS[1], due, ARGV[1])\n" +
+            "return due");
+
+    // KEYS[1]=zset, KEYS[2]=payload hash, KEYS[3]=attempts hash, KEYS[4]=dead list
+    // ARGV[1]=本次最多领取个数, ARGV[2]=可见性超时毫秒, ARGV[3]=最多领取次数
+    // 返回 {服务端当前时间, 领取后最早的到期时间(没有任务时为-1), id1, payload1, attempts1, id2, ...}
+    private static final RedisScript CLAIM_SCRIPT = RedisScript.of(NOW +
+            "local result = {now, -1}\n" +
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, tonumber(ARGV[1]))\n" +
+            "for _, id in ipairs(due) do\n" +
+            "    local attempts = redis.call('HINCRBY', KEYS[3], id, 1)\n" +
+            "    local payload = redis.call('HGET', KEYS[2], id)\n" +
+            "    if attempts > tonumber(ARGV[3]) then\n" +
+            "        redis.call('ZREM', KEYS[1], id)\n" +
+            "        redis.call('HDEL', KEYS[2], id)\n" +
+            "        redis.call('HDEL', KEYS[3], id)\n" +
+            "        if payload then\n" +
+            "            redis.call('RPUSH', KEYS[4], payload)\n" +
+            "        end\n" +
+            "    else\n" +
+            "        redis.call('ZADD', KEYS[1], now + tonumber(ARGV[2]), id)\n" +
+            "        result[#result + 1] = id\n" +
+            "        result[#result + 1] = payload\n" +
+            "        result[#result + 1] = attempts\n" +
+            "    end\n" +
+            "end\n" +
+            "local head = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')\n" +
+            "if #head > 0 then\n" +
+            "    result[2] = tonumber(head[2])\n" +
+            "end\n" +
+            "return result");
+
+    // KEYS[1]=zset, KEYS[2]=payload hash, KEYS[3]=attempts hash, ARGV[1]=id
+    private static final RedisScript ACK_SCRIPT = RedisScript.of(
+            "redis.call('HDEL', KEYS[2], ARGV[1])\n" +
+            "redis.call('HDEL', KEYS[3], ARGV[1])\n" +
+            "return redis.call('ZREM', KEYS[1], ARGV[1])");
+
+    // KEYS[1]=zset, ARGV[1]=id, ARGV[2]=延时毫秒, 只对仍在队列中的任务生效
+    private static final RedisScript RETRY_SCRIPT = RedisScript.of(NOW +
+            "return redis.call('ZADD', KEYS[1], 'XX', 'CH', now + tonumber(ARGV[2]), ARGV[1])");
+
+    private final Redis redis;
+    private final List<String> keys;
+    private final String visibilityTimeout;
+    private final String maxAttempts;
+
+    private volatile boolean running;
+    private volatile Thread poller;
+
+    /* 本节点投递的任务里最早的到期时间(服务端时间), 拉取线程据此决定是否提前醒来 */
+    private volatile long earliestOffered;
+
+    private DelayQueue(Redis redis, String key, long visibilityTimeoutMillis, int maxAttempts) {
+        if (visibilityTimeoutMillis <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("visibilityTimeoutMillis and maxAttempts must be positive");
+        }
+        this.redis = redis;
+        this.keys = Arrays.asList(key, key + ":payload", key + ":attempts", key + ":dead");
+        this.visibilityTimeout = String.valueOf(visibilityTimeoutMillis);
+        this.maxAttempts = String.valueOf(maxAttempts);
+        this.earliestOffered = Long.MAX_VALUE;
+    }
+
+    /** 默认可见性超时30秒, 最多领取3次 **/
+    public static final DelayQueue of(Redis redis, String key){
+        return new DelayQueue(redis, key, DEFAULT_VISIBILITY_TIMEOUT, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public static final DelayQueue of(Redis redis, String key, long visibilityTimeoutMillis, int maxAttempts){
+        return new DelayQueue(redis, key, visibilityTimeoutMillis, maxAttempts);
+    }
+
+    /** 投递一个延时任务, 返回生成的任务id **/
+    public String offer(String payload, long delay, TimeUnit unit) {
+        String id = UUID.randomUUID().toString();
+        offer(id, payload, delay, unit);
+        return id;
+    }
+
+    /** 投递一个指定id的延时任务, id 已存在时覆盖原任务的内容和到期时间 **/
+    public void offer(String id, String payload, long delay, TimeUnit unit) {
+        long due = (Long) redis.eval(OFFER_SCRIPT, keys.subList(0, 2),
+                Arrays.asList(id, payload, String.valueOf(unit.toMillis(delay))));
+
+        if (due < earliestOffered) {
+            earliestOffered = due;
+            Thread thread = poller;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * 原子地领取最多 max 个已到期的任务, 领取到的任务在可见性超时内不会被再次领取
+     * 处理完后需要调用 {@link #ack(String)}, 否则超时后会被重新领取
+     */
+    public List<Job> claim(int max) {
+        return claimBatch(max).jobs;
+    }
+
+    /** 确认任务完成, 从队列中删除 **/
+    public boolean ack(String id) {
+        return Long.valueOf(1L).equals(redis.eval(ACK_SCRIPT, keys.subList(0, 3), Collections.singletonList(id)));
+    }
+
+    /** 处理失败的任务在 delayMillis 之后重新到期, 不必等满可见性超时 **/
+    public void retryLater(String id, long delayMillis) {
+        redis.eval(RETRY_SCRIPT, keys.subList(0, 1), Arrays.asList(id, String.valueOf(delayMillis)));
+    }
+
+    /** 等待到期和处理中的任务数 **/
+    public Long size() {
+        return redis.zcard(keys.get(0));
+    }
+
+    /**
+     * 启动拉取线程, 领取到的任务交给 workers 执行
+     *
+     * @param handler     任务处理器, 抛出异常的任务1秒后重试
+     * @param workers     执行任务的线程池
+     * @param batchSize   每次最多领取的任务数
+     * @param maxInFlight 本节点最多同时处理的任务数, 达到上限时暂停领取
+     */
+    public void start(JobHandler handler, ExecutorService workers, int batchSize, int maxInFlight) {
+        start(handler, workers, batchSize, maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "delay-queue-" + keys.get(0));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** 同上, 拉取线程由 threadFactory 创建, 在 java 21 上可以传入虚拟线程的 factory **/
+    public synchronized void start(JobHandler handler, ExecutorService workers, int batchSize, int maxInFlight,
+                                   ThreadFactory threadFactory) {
+        if (running) {
+            throw new IllegalStateException("delay queue " + keys.get(0) + " already started.");
+        }
+        running = true;
+        Thread thread = threadFactory.newThread(() -> pollLoop(handler, workers, batchSize,
+                new Semaphore(maxInFlight)));
+        poller = thread;
+        thread.start();
+    }
+
+    /** 停止拉取, 已经交给 workers 的任务不受影响 **/
+    public synchronized void stop() {
+        running = false;
+        Thread thread = poller;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        poller = null;
+    }
+
+    private void pollLoop(JobHandler handler, ExecutorService workers, int batchSize, Semaphore inFlight) {
+        while (running) {
+            long sleepMillis;
+            try {
+                sleepMillis = pollOnce(handler, workers, batchSize, inFlight);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                sleepMillis = MAX_POLL_INTERVAL;
+            }
+            if (sleepMillis > 0 && running) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+            }
+        }
+    }
+
+    /* 领取并分发一批任务, 返回下一次领取前应该休眠的毫秒数 */
+    private long pollOnce(JobHandler handler, ExecutorService workers, int batchSize, Semaphore inFlight) {
+        int permits = Math.min(batchSize, inFlight.availablePermits());
+        if (permits == 0 || !inFlight.tryAcquire(permits)) {
+            // 本节点处理能力已满, 稍后再领
+            return 1L;
+        }
+
+        earliestOffered = Long.MAX_VALUE;
+        ClaimResult result;
+        try {
+            result = claimBatch(permits);
+        } catch (RuntimeException e) {
+            inFlight.release(permits);
+            throw e;
+        }
+        inFlight.release(permits - result.jobs.size());
+
+        for (Job job : result.jobs) {
+            try {
+                workers.execute(() -> {
+                    try {
+                        handler.handle(job);
+                        ack(job.getId());
+                    } catch (Exception e) {
+                        log.error("handle job failed, job={}", job, e);
+                        retryQuietly(job.getId());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 任务仍处于领取状态, 可见性超时后会被重新领取
+                log.warn("workers rejected job {}", job);
+                inFlight.release();
+            }
+        }
+
+        if (result.jobs.size() == permits) {
+            // 这一批领满了, 很可能还有更多到期任务
+            return 0L;
+        }
+        long nextDue = Math.min(result.nextDue < 0 ? Long.MAX_VALUE : result.nextDue, earliestOffered);
+        if (nextDue == Long.MAX_VALUE) {
+            return MAX_POLL_INTERVAL;
+        }
+        return Math.max(0L, Math.min(nextDue - result.now, MAX_POLL_INTERVAL));
+    }
+
+    private void retryQuietly(String id) {
+        try {
+            retryLater(id, 1_000L);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClaimResult claimBatch(int max) {
+        List<Object> reply = (List<Object>) redis.eval(CLAIM_SCRIPT, keys,
+                Arrays.asList(String.valueOf(max), visibilityTimeout, maxAttempts));
+
+        List<Job> jobs = new ArrayList<>((reply.size() - 2) / 3);
+        for (int i = 2; i + 2 < reply.size(); i += 3) {
+            jobs.add(new Job((String) reply.get(i), (String) reply.get(i + 1), (Long) reply.get(i + 2)));
+        }
+        return new ClaimResult((Long) reply.get(0), (Long) reply.get(1), jobs);
+    }
+
+    private static final class ClaimResult {
+
+        private final long now;
+        private final long nextDue;
+        private final List<Job> jobs;
+
+        private ClaimResult(long now, long nextDue, List<Job> jobs) {
+            this.now = now;
+            this.nextDue = nextDue;
+            this.jobs = jobs;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.hpl.queue;
+
+/**
+ * 从队列中领取到的任务
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 11:05
+ */
+public class Job {
+
+    private final String id;
+    private final String payload;
+    private final long attempts;
+
+    public Job(String id, String payload, long attempts) {
+        this.id = id;
+        this.payload = payload;
+        this.attempts = attempts;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    /** 第几次被领取, 从1开始 **/
+    public long getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "Job{id=" + id + ", attempts=" + attempts + '}';
+    }
+}
@@ -0,0 +1,11 @@
+package com.hpl.queue;
+
+/**
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 11:06
+ */
+public interface JobHandler {
+
+    /** 处理领取到的任务, 正常返回即确认完成, 抛出异常则任务稍后重试 **/
+    void handle(Job job) throws Exception;
+}
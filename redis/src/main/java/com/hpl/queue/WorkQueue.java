@@ -0,0 +1,162 @@
+package com.hpl.queue;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 list 的可靠工作队列
+ * <p>
+ * 生产者 LPUSH 到 key, 消费者用 LMOVE/BLMOVE 把元素从 key 的右端原子地移到自己的处理中列表 key:processing:{consumerId},
+ * 处理完后 ack 从处理中列表删除. 消费者通过 key:heartbeat:{consumerId} 这个带过期时间的 key 保活,
+ * 心跳过期的消费者被视为已宕机, 由 {@link #requeueOrphans()} 把它处理中列表里的元素放回队列, 不会因为消费者崩溃丢数据
+ * <p>
+ * 需要 redis 6.2 及以上版本
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 14:10
+ */
+public class WorkQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkQueue.class);
+
+    private static final long DEFAULT_HEARTBEAT_TTL = 30_000L;
+
+    // KEYS[1]=队列, KEYS[2]=处理中列表, KEYS[3]=心跳key, KEYS[4]=消费者集合
+    // ARGV[1]=本次最多领取个数, ARGV[2]=心跳过期毫秒, ARGV[3]=消费者id
+    static final RedisScript CLAIM_SCRIPT = RedisScript.of(
+            "redis.call('SET', KEYS[3], '1', 'PX', ARGV[2])\n" +
+            "redis.call('SADD', KEYS[4], ARGV[3])\n" +
+            "local items = {}\n" +
+            "for i = 1, tonumber(ARGV[1]) do\n" +
+            "    local item = redis.call('LMOVE', KEYS[1], KEYS[2], 'RIGHT', 'LEFT')\n" +
+            "    if not item then\n" +
+            "        break\n" +
+            "    end\n" +
+            "    items[i] = item\n" +
+            "end\n" +
+            "return items");
+
+    // KEYS[1]=队列, KEYS[2]=处理中列表, ARGV[1]=元素, 元素仍在处理中列表时才放回队列
+    static final RedisScript NACK_SCRIPT = RedisScript.of(
+            "if redis.call('LREM', KEYS[2], -1, ARGV[1]) == 0 then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('RPUSH', KEYS[1], ARGV[1])\n" +
+            "return 1");
+
+    // KEYS[1]=队列, KEYS[2]=处理中列表, KEYS[3]=心跳key, KEYS[4]=消费者集合, ARGV[1]=消费者id
+    // 心跳仍然存在时不做任何事, 否则把处理中列表里的元素按原顺序放回队列右端(下一个被领取), 返回放回的个数
+    private static final RedisScript REQUEUE_SCRIPT = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[3]) == 1 then\n" +
+            "    return -1\n" +
+            "end\n" +
+            "local moved = 0\n" +
+            "while redis.call('LMOVE', KEYS[2], KEYS[1], 'LEFT', 'RIGHT') do\n" +
+            "    moved = moved + 1\n" +
+            "end\n" +
+            "redis.call('SREM', KEYS[4], ARGV[1])\n" +
+            "return moved");
+
+    private final Redis redis;
+    private final String key;
+    private final String consumersKey;
+    private final long heartbeatTtlMillis;
+
+    private WorkQueue(Redis redis, String key, long heartbeatTtlMillis) {
+        if (heartbeatTtlMillis <= 0) {
+            throw new IllegalArgumentException("heartbeatTtlMillis must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.consumersKey = key + ":consumers";
+        this.heartbeatTtlMillis = heartbeatTtlMillis;
+    }
+
+    /** 默认心跳30秒过期 **/
+    public static final WorkQueue of(Redis redis, String key){
+        return new WorkQueue(redis, key, DEFAULT_HEARTBEAT_TTL);
+    }
+
+    public static final WorkQueue of(Redis redis, String key, long heartbeatTtlMillis){
+        return new WorkQueue(redis, key, heartbeatTtlMillis);
+    }
+
+    /** 投递元素, 先投递的先被领取 **/
+    public Long push(String... items) {
+        return redis.lpush(key, items);
+    }
+
+    /** 队列中等待领取的元素个数 **/
+    public Long size() {
+        return redis.llen(key);
+    }
+
+    /** 创建一个消费者, 每个消费者只能由一个线程使用 **/
+    public WorkQueueConsumer consumer(String consumerId) {
+        return new WorkQueueConsumer(this, consumerId);
+    }
+
+    /**
+     * 检查所有已登记的消费者, 把心跳过期的消费者处理中的元素放回队列
+     *
+     * @return 放回队列的元素个数
+     */
+    public long requeueOrphans() {
+        Set<String> consumers = redis.smembers(consumersKey);
+        long requeued = 0L;
+        for (String consumerId : consumers) {
+            long moved = (Long) redis.eval(REQUEUE_SCRIPT,
+                    Arrays.asList(key, processingKey(consumerId), heartbeatKey(consumerId), consumersKey),
+                    Collections.singletonList(consumerId));
+            if (moved > 0) {
+                log.warn("requeued {} orphan items of consumer {} back to {}", moved, consumerId, key);
+                requeued += moved;
+            }
+        }
+        return requeued;
+    }
+
+    /** 定时执行 {@link #requeueOrphans()}, 取消返回的 future 即可停止 **/
+    public ScheduledFuture<?> startJanitor(ScheduledExecutorService scheduler, long periodMillis) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                requeueOrphans();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    Redis getRedis() {
+        return redis;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getConsumersKey() {
+        return consumersKey;
+    }
+
+    long getHeartbeatTtlMillis() {
+        return heartbeatTtlMillis;
+    }
+
+    String processingKey(String consumerId) {
+        return key + ":processing:" + consumerId;
+    }
+
+    String heartbeatKey(String consumerId) {
+        return key + ":heartbeat:" + consumerId;
+    }
+}
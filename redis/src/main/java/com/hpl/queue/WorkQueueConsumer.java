@@ -0,0 +1,127 @@
+package com.hpl.queue;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.args.ListDirection;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.SetParams;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WorkQueue} 的消费者, 非线程安全, 每个消费线程各自创建一个
+ * <p>
+ * 阻塞领取使用一个不属于 jedispool 的独立连接, 长时间阻塞不会占用共享连接池;
+ * 批量领取和 ack 都是非阻塞的单次往返, 走 jedispool
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 14:40
+ */
+public class WorkQueueConsumer implements Closeable {
+
+    private final WorkQueue queue;
+    private final Redis redis;
+    private final String consumerId;
+    private final String processingKey;
+    private final String heartbeatKey;
+    private final List<String> claimKeys;
+
+    /* 阻塞领取专用的连接, 第一次阻塞领取时创建 */
+    private Jedis blockingJedis;
+    private long lastHeartbeat;
+
+    WorkQueueConsumer(WorkQueue queue, String consumerId) {
+        this.queue = queue;
+        this.redis = queue.getRedis();
+        this.consumerId = consumerId;
+        this.processingKey = queue.processingKey(consumerId);
+        this.heartbeatKey = queue.heartbeatKey(consumerId);
+        this.claimKeys = Arrays.asList(queue.getKey(), processingKey, heartbeatKey, queue.getConsumersKey());
+    }
+
+    /**
+     * 非阻塞地批量领取最多 max 个元素, 一个脚本完成全部 LMOVE 和心跳续期
+     *
+     * @return 领取到的元素, 队列为空时返回空列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> poll(int max) {
+        List<String> items = (List<String>) redis.eval(WorkQueue.CLAIM_SCRIPT, claimKeys,
+                Arrays.asList(String.valueOf(max), String.valueOf(queue.getHeartbeatTtlMillis()), consumerId));
+        lastHeartbeat = System.currentTimeMillis();
+        return items;
+    }
+
+    /**
+     * 阻塞领取一个元素(BLMOVE), 超时返回null
+     * 阻塞时长不会超过心跳过期时间的一半, 以免阻塞期间被判定为宕机
+     */
+    public String take(long timeout, TimeUnit unit) {
+        heartbeatIfNeeded();
+        // BLMOVE 的超时为0表示永久阻塞, 这里至少阻塞1毫秒
+        long millis = Math.max(1L, Math.min(unit.toMillis(timeout), queue.getHeartbeatTtlMillis() / 2));
+
+        Jedis jedis = blockingJedis();
+        try {
+            return jedis.blmove(queue.getKey(), processingKey, ListDirection.RIGHT, ListDirection.LEFT,
+                    millis / 1000.0);
+        } catch (JedisConnectionException e) {
+            closeBlockingJedis();
+            throw e;
+        }
+    }
+
+    /** 确认元素处理完成, 从处理中列表删除 **/
+    public boolean ack(String item) {
+        return redis.lrem(processingKey, -1, item) > 0;
+    }
+
+    /** 放弃处理元素, 把它原子地放回队列右端, 下一个被领取 **/
+    public boolean nack(String item) {
+        return Long.valueOf(1L).equals(redis.eval(WorkQueue.NACK_SCRIPT, Arrays.asList(queue.getKey(), processingKey),
+                Collections.singletonList(item)));
+    }
+
+    /** 续期心跳, 处理单个元素的耗时可能超过心跳过期时间时应定期调用 **/
+    public void heartbeat() {
+        redis.set(heartbeatKey, "1", SetParams.setParams().px(queue.getHeartbeatTtlMillis()));
+        redis.sadd(queue.getConsumersKey(), consumerId);
+        lastHeartbeat = System.currentTimeMillis();
+    }
+
+    /** 处理中还没有 ack 的元素 **/
+    public List<String> processing() {
+        List<String> items = redis.lrange(processingKey, 0, -1);
+        return items == null ? Collections.emptyList() : items;
+    }
+
+    /** 关闭阻塞领取用的连接, 处理中的元素保留, 心跳过期后由 janitor 放回队列 **/
+    @Override
+    public void close() {
+        closeBlockingJedis();
+    }
+
+    private void heartbeatIfNeeded() {
+        if (System.currentTimeMillis() - lastHeartbeat > queue.getHeartbeatTtlMillis() / 3) {
+            heartbeat();
+        }
+    }
+
+    private Jedis blockingJedis() {
+        if (blockingJedis == null) {
+            blockingJedis = redis.newDedicatedJedis();
+        }
+        return blockingJedis;
+    }
+
+    private void closeBlockingJedis() {
+        if (blockingJedis != null) {
+            blockingJedis.close();
+            blockingJedis = null;
+        }
+    }
+}
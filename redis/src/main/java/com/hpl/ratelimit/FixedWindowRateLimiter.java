@@ -0,0 +1,74 @@
+package com.hpl.ratelimit;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 固定窗口限流器
+ * 窗口内的计数和过期时间在同一个脚本里完成, 替代 incr + expire 两次往返且非原子的写法
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 21:40
+ */
+public class FixedWindowRateLimiter implements RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(FixedWindowRateLimiter.class);
+
+    // KEYS[1]=计数key, ARGV[1]=窗口内许可上限, ARGV[2]=窗口毫秒数, ARGV[3]=本次申请的许可数
+    private static final RedisScript SCRIPT = RedisScript.of(
+            "local current = tonumber(redis.call('GET', KEYS[1]) or '0')\n" +
+            "local permits = tonumber(ARGV[3])\n" +
+            "if current + permits > tonumber(ARGV[1]) then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('INCRBY', KEYS[1], permits)\n" +
+            "if redis.call('PTTL', KEYS[1]) < 0 then\n" +
+            "    redis.call('PEXPIRE', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return 1");
+
+    private final Redis redis;
+    private final String key;
+    private final String limit;
+    private final String windowMillis;
+
+    private FixedWindowRateLimiter(Redis redis, String key, long limit, long windowMillis) {
+        if (limit <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("limit and windowMillis must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.limit = String.valueOf(limit);
+        this.windowMillis = String.valueOf(windowMillis);
+    }
+
+    /** 每 windowMillis 毫秒最多放行 limit 个许可 **/
+    public static final FixedWindowRateLimiter of(Redis redis, String key, long limit, long windowMillis){
+        return new FixedWindowRateLimiter(redis, key, limit, windowMillis);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        try {
+            Object ret = redis.eval(SCRIPT, Collections.singletonList(key),
+                    Arrays.asList(limit, windowMillis, String.valueOf(permits)));
+            return Long.valueOf(1L).equals(ret);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return false;
+    }
+}
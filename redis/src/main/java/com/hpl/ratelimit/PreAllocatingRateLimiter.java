@@ -0,0 +1,101 @@
+package com.hpl.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地预分配限流器
+ * 一次从分布式限流器里预占 batchSize 个许可放在本地, 大部分 tryAcquire 只做一次本地 CAS, 不访问网络
+ * <p>
+ * 代价是精度: 预占的许可在 leaseMillis 之后作废, 没用完的部分会被浪费, 各节点之间也可能短时间不均衡.
+ * leaseMillis 应不大于底层限流器的窗口, batchSize 应远小于窗口内的许可上限
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 22:20
+ */
+public class PreAllocatingRateLimiter implements RateLimiter {
+
+    private final RateLimiter delegate;
+    private final int batchSize;
+    private final long leaseMillis;
+
+    private volatile Lease lease;
+
+    /* 去 redis 预占时持有, 用 ReentrantLock 而不是 synchronized, 网络等待期间不会钉住虚拟线程的载体线程 */
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private PreAllocatingRateLimiter(RateLimiter delegate, int batchSize, long leaseMillis) {
+        if (batchSize <= 0 || leaseMillis <= 0) {
+            throw new IllegalArgumentException("batchSize and leaseMillis must be positive");
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.leaseMillis = leaseMillis;
+        this.lease = new Lease(0, 0L);
+    }
+
+    /** 在 delegate 前面加一层本地预分配 **/
+    public static final PreAllocatingRateLimiter of(RateLimiter delegate, int batchSize, long leaseMillis){
+        return new PreAllocatingRateLimiter(delegate, batchSize, leaseMillis);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * @param permits 不能超过 batchSize
+     */
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0 || permits > batchSize) {
+            throw new IllegalArgumentException("permits must be in [1, " + batchSize + "]");
+        }
+        if (lease.take(permits)) {
+            return true;
+        }
+
+        // 本地许可用完了, 同一时刻只让一个线程去 redis 预占, 持锁期间只访问一次 redis
+        refillLock.lock();
+        try {
+            if (lease.take(permits)) {
+                return true;
+            }
+            if (delegate.tryAcquire(batchSize)) {
+                lease = new Lease(batchSize - permits, System.currentTimeMillis() + leaseMillis);
+                return true;
+            }
+        } finally {
+            refillLock.unlock();
+        }
+        // 整批预占失败时剩余额度可能还够这一次的申请, 在锁外申请, 被限流时调用方不会排队等两次往返
+        return delegate.tryAcquire(permits);
+    }
+
+    /* 一批预占的许可 */
+    private static final class Lease {
+
+        private final AtomicInteger remaining;
+        private final long expireAt;
+
+        private Lease(int remaining, long expireAt) {
+            this.remaining = new AtomicInteger(remaining);
+            this.expireAt = expireAt;
+        }
+
+        private boolean take(int permits) {
+            if (System.currentTimeMillis() >= expireAt) {
+                return false;
+            }
+            int current;
+            do {
+                current = remaining.get();
+                if (current < permits) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - permits));
+            return true;
+        }
+    }
+}
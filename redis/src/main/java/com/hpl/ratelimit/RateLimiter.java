@@ -0,0 +1,16 @@
+package com.hpl.ratelimit;
+
+/**
+ * 分布式限流器
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 21:35
+ */
+public interface RateLimiter {
+
+    // 尝试获取1个许可, 获取成功返回true, 被限流返回false
+    boolean tryAcquire();
+
+    // 尝试获取permits个许可, 要么全部获取成功, 要么一个都不获取; permits 不是正数时抛出 IllegalArgumentException
+    boolean tryAcquire(int permits);
+}
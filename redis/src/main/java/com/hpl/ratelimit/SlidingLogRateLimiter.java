@@ -0,0 +1,88 @@
+package com.hpl.ratelimit;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 滑动日志限流器
+ * 用 zset 记录窗口内每个许可的时间戳, 在一个脚本里完成 zremrangeByScore + zcard + zadd
+ * 时间取自 redis 服务端, 不受各节点时钟偏差影响
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 21:50
+ */
+public class SlidingLogRateLimiter implements RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(SlidingLogRateLimiter.class);
+
+    // KEYS[1]=zset key, ARGV[1]=窗口内许可上限, ARGV[2]=窗口毫秒数, ARGV[3]=本次申请的许可数, ARGV[4]=本次申请的唯一id
+    private static final RedisScript SCRIPT = RedisScript.of(
+            "redis.replicate_commands()\n" +
+            "local t = redis.call('TIME')\n" +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)\n" +
+            "local window = tonumber(ARGV[2])\n" +
+            "local permits = tonumber(ARGV[3])\n" +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)\n" +
+            "if redis.call('ZCARD', KEYS[1]) + permits > tonumber(ARGV[1]) then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "for i = 1, permits do\n" +
+            "    redis.call('ZADD', KEYS[1], now, ARGV[4] .. ':' .. i)\n" +
+            "end\n" +
+            "redis.call('PEXPIRE', KEYS[1], window)\n" +
+            "return 1");
+
+    private final Redis redis;
+    private final String key;
+    private final String limit;
+    private final String windowMillis;
+
+    /* 同一毫秒内的许可也要在 zset 里是不同的 member */
+    private final String nodeId;
+    private final AtomicLong sequence;
+
+    private SlidingLogRateLimiter(Redis redis, String key, long limit, long windowMillis) {
+        if (limit <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("limit and windowMillis must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.limit = String.valueOf(limit);
+        this.windowMillis = String.valueOf(windowMillis);
+        this.nodeId = UUID.randomUUID().toString();
+        this.sequence = new AtomicLong();
+    }
+
+    /** 任意 windowMillis 毫秒的滑动窗口内最多放行 limit 个许可 **/
+    public static final SlidingLogRateLimiter of(Redis redis, String key, long limit, long windowMillis){
+        return new SlidingLogRateLimiter(redis, key, limit, windowMillis);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        try {
+            String id = nodeId + ':' + sequence.incrementAndGet();
+            Object ret = redis.eval(SCRIPT, Collections.singletonList(key),
+                    Arrays.asList(limit, windowMillis, String.valueOf(permits), id));
+            return Long.valueOf(1L).equals(ret);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.hpl.ratelimit;
+
+import com.hpl.redis.Redis;
+import com.hpl.redis.RedisScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限流器, 用 GCRA(通用信元速率算法) 实现
+ * 与令牌桶等价, 但 redis 里只需要保存一个理论到达时间(TAT), 不需要定时补充令牌
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 22:05
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    // KEYS[1]=tat key, ARGV[1]=每个许可的间隔(微秒), ARGV[2]=桶容量, ARGV[3]=本次申请的许可数
+    // 时间单位为微秒, tat 用 %.0f 格式化写回, 避免 lua 数字转字符串时变成科学计数法丢精度
+    private static final RedisScript SCRIPT = RedisScript.of(
+            "redis.replicate_commands()\n" +
+            "local t = redis.call('TIME')\n" +
+            "local now = tonumber(t[1]) * 1000000 + tonumber(t[2])\n" +
+            "local emission = tonumber(ARGV[1])\n" +
+            "local permits = tonumber(ARGV[3])\n" +
+            "local tat = tonumber(redis.call('GET', KEYS[1]) or '0')\n" +
+            "if tat < now then\n" +
+            "    tat = now\n" +
+            "end\n" +
+            "local newTat = tat + emission * permits\n" +
+            "if newTat - emission * tonumber(ARGV[2]) > now then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[1], string.format('%.0f', newTat), 'PX', math.ceil((newTat - now) / 1000) + 1)\n" +
+            "return 1");
+
+    private final Redis redis;
+    private final String key;
+    private final String emissionMicros;
+    private final String capacity;
+
+    private TokenBucketRateLimiter(Redis redis, String key, long rate, long period, TimeUnit unit, long capacity) {
+        if (rate <= 0 || period <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("rate, period and capacity must be positive");
+        }
+        this.redis = redis;
+        this.key = key;
+        this.emissionMicros = String.valueOf((double) unit.toMicros(period) / rate);
+        this.capacity = String.valueOf(capacity);
+    }
+
+    /** 每 period 补充 rate 个许可, 最多允许 capacity 个许可的突发 **/
+    public static final TokenBucketRateLimiter of(Redis redis, String key, long rate, long period, TimeUnit unit,
+                                                  long capacity){
+        return new TokenBucketRateLimiter(redis, key, rate, period, unit, capacity);
+    }
+
+    /** 每秒 permitsPerSecond 个许可, 突发容量等于一秒的许可数 **/
+    public static final TokenBucketRateLimiter perSecond(Redis redis, String key, long permitsPerSecond){
+        return new TokenBucketRateLimiter(redis, key, permitsPerSecond, 1L, TimeUnit.SECONDS, permitsPerSecond);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        try {
+            Object ret = redis.eval(SCRIPT, Collections.singletonList(key),
+                    Arrays.asList(emissionMicros, capacity, String.valueOf(permits)));
+            return Long.valueOf(1L).equals(ret);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+package com.hpl.redis;
+
+import redis.clients.jedis.Jedis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 绑定在线程或分段上的长连接, close() 不会断开连接, 而是交还给所属的 {@link ThreadAffinity}
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 10:10
+ */
+class AffineJedis extends Jedis {
+
+    private final ThreadAffinity owner;
+    private final int stripe;
+
+    static final int IDLE = 0;
+    static final int IN_USE = 1;
+    static final int CLOSED = 2;
+
+    /*
+     * IDLE / IN_USE / CLOSED, 只给 perThread 模式使用: IN_USE 防止同一线程在 pipeline 回调里重入拿到同一个连接;
+     * 其他线程关闭正在使用的连接时只标记为 CLOSED, 由使用它的线程归还时断开
+     */
+    final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /* 归还时重置状态失败, 连接上可能还有未读的回复, 不能再给下一次调用使用 */
+    private boolean resetFailed;
+
+    AffineJedis(String host, int port, int timeout, ThreadAffinity owner, int stripe) {
+        super(host, port, timeout);
+        this.owner = owner;
+        this.stripe = stripe;
+    }
+
+    int getStripe() {
+        return stripe;
+    }
+
+    /**
+     * 与 jedispool 归还连接一样先 resetState(): pipeline 回调抛异常时已经发出的命令的回复还留在 socket 上,
+     * 不读掉的话同一线程的下一次调用会读到上一条命令的回复
+     */
+    @Override
+    public void close() {
+        if (!super.isBroken()) {
+            try {
+                resetState();
+            } catch (RuntimeException e) {
+                resetFailed = true;
+            }
+        }
+        owner.redis.afterCommand(this, isBroken());
+        owner.release(this);
+    }
+
+    @Override
+    public boolean isBroken() {
+        return resetFailed || super.isBroken();
+    }
+
+    /** 真正断开连接 **/
+    void destroy() {
+        super.close();
+    }
+}
@@ -0,0 +1,205 @@
+package com.hpl.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * 大 value 的分块读写
+ * <p>
+ * 读: 用 GETRANGE 每次取 chunkSize 字节直接写入 channel / ByteBuffer, 整个 value 不会以 String 或完整 byte[] 的形式出现在堆上;
+ * 写: 从 channel / ByteBuffer 每次读 chunkSize 字节, 首块 SET 之后逐块 APPEND 到一个临时 key, 写完后 RENAME 成目标 key,
+ * 读者不会看到写了一半的 value. 临时 key 带有保护性的过期时间, 写入方中途崩溃也不会留下垃圾
+ * <p>
+ * 同一个 value 的分块读取不是一个快照, 读取过程中 value 被整体替换时可能读到新旧混合的内容, 需要时请配合版本号使用
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 16:30
+ */
+public class BlobStore {
+
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    /* 临时 key 的保护性过期时间 */
+    private static final long TMP_KEY_TTL = 3600L;
+
+    private final Redis redis;
+    private final int chunkSize;
+
+    private BlobStore(Redis redis, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.redis = redis;
+        this.chunkSize = chunkSize;
+    }
+
+    /** 默认每块256KB **/
+    public static final BlobStore of(Redis redis){
+        return new BlobStore(redis, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static final BlobStore of(Redis redis, int chunkSize){
+        return new BlobStore(redis, chunkSize);
+    }
+
+    /**
+     * 把 key 的 value 分块写入 out
+     *
+     * @return 写入的字节数, key 不存在时为0
+     */
+    public long read(String key, WritableByteChannel out) throws IOException {
+        byte[] rawKey = SafeEncoder.encode(key);
+        long offset = 0L;
+        try (Jedis jedis = redis.getJedis()) {
+            while (true) {
+                byte[] chunk = jedis.getrange(rawKey, offset, offset + chunkSize - 1);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                offset += chunk.length;
+                if (chunk.length < chunkSize) {
+                    return offset;
+                }
+            }
+        }
+    }
+
+    /**
+     * 从 value 的 offset 处开始读取, 直到 dst 写满或 value 结束, dst 可以是直接内存
+     *
+     * @return 读取的字节数
+     */
+    public int read(String key, long offset, ByteBuffer dst) {
+        byte[] rawKey = SafeEncoder.encode(key);
+        int total = 0;
+        try (Jedis jedis = redis.getJedis()) {
+            while (dst.hasRemaining()) {
+                int size = Math.min(chunkSize, dst.remaining());
+                byte[] chunk = jedis.getrange(rawKey, offset + total, offset + total + size - 1);
+                dst.put(chunk);
+                total += chunk.length;
+                if (chunk.length < size) {
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 把 in 里的全部内容写成 key 的 value, 不设置过期时间
+     *
+     * @return 写入的字节数
+     */
+    public long write(String key, ReadableByteChannel in) throws IOException {
+        return write(key, in, 0L);
+    }
+
+    /**
+     * 把 in 里的全部内容写成 key 的 value
+     *
+     * @param seconds 过期时间, 小于等于0表示不过期
+     * @return 写入的字节数
+     */
+    public long write(String key, ReadableByteChannel in, long seconds) throws IOException {
+        byte[] chunk = new byte[chunkSize];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        String tmpKey = tmpKey(key);
+        byte[] rawTmpKey = SafeEncoder.encode(tmpKey);
+
+        long total = 0L;
+        try (Jedis jedis = redis.getJedis()) {
+            try {
+                boolean eof = false;
+                while (!eof) {
+                    buffer.clear();
+                    while (buffer.hasRemaining()) {
+                        if (in.read(buffer) < 0) {
+                            eof = true;
+                            break;
+                        }
+                    }
+                    if (buffer.position() == 0 && total > 0) {
+                        break;
+                    }
+                    byte[] value = buffer.position() == chunkSize ? chunk : Arrays.copyOf(chunk, buffer.position());
+                    appendChunk(jedis, rawTmpKey, value, total == 0L);
+                    total += value.length;
+                }
+                commit(jedis, tmpKey, key, seconds);
+            } catch (IOException | RuntimeException e) {
+                jedis.del(tmpKey);
+                throw e;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 把 src 剩余的内容写成 key 的 value, src 可以是直接内存
+     *
+     * @param seconds 过期时间, 小于等于0表示不过期
+     * @return 写入的字节数
+     */
+    public long write(String key, ByteBuffer src, long seconds) {
+        byte[] chunk = new byte[Math.min(chunkSize, Math.max(src.remaining(), 1))];
+        String tmpKey = tmpKey(key);
+        byte[] rawTmpKey = SafeEncoder.encode(tmpKey);
+
+        long total = 0L;
+        try (Jedis jedis = redis.getJedis()) {
+            try {
+                do {
+                    int size = Math.min(chunk.length, src.remaining());
+                    src.get(chunk, 0, size);
+                    byte[] value = size == chunk.length ? chunk : Arrays.copyOf(chunk, size);
+                    appendChunk(jedis, rawTmpKey, value, total == 0L);
+                    total += size;
+                } while (src.hasRemaining());
+                commit(jedis, tmpKey, key, seconds);
+            } catch (RuntimeException e) {
+                jedis.del(tmpKey);
+                throw e;
+            }
+        }
+        return total;
+    }
+
+    /** value 的字节数 **/
+    public Long size(String key) {
+        try (Jedis jedis = redis.getJedis()) {
+            return jedis.strlen(key);
+        }
+    }
+
+    private static void appendChunk(Jedis jedis, byte[] rawTmpKey, byte[] value, boolean first) {
+        if (first) {
+            jedis.set(rawTmpKey, value, SetParams.setParams().ex(TMP_KEY_TTL));
+        } else {
+            jedis.append(rawTmpKey, value);
+        }
+    }
+
+    /* 去掉临时 key 的保护性过期时间(或换成目标过期时间), 再原子地替换目标 key */
+    private static void commit(Jedis jedis, String tmpKey, String key, long seconds) {
+        if (seconds > 0) {
+            jedis.expire(tmpKey, seconds);
+        } else {
+            jedis.persist(tmpKey);
+        }
+        jedis.rename(tmpKey, key);
+    }
+
+    private static String tmpKey(String key) {
+        return key + ":tmp:" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,222 @@
+package com.hpl.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis 命令的熔断器
+ * <p>
+ * CLOSED: 正常放行, 在 windowMillis 的滑动窗口内统计失败率和慢调用率, 调用数达到 minimumCalls 且任一比例超过阈值时打开;
+ * OPEN: 直接拒绝, 经过 openMillis 后进入半开;
+ * HALF_OPEN: 只放行 halfOpenCalls 个探测调用, 全部成功则关闭, 任一失败或慢调用则重新打开
+ * <p>
+ * 只有连接异常和超时(连接被标记为 broken)算失败, WRONGTYPE 这类命令错误不算.
+ * 状态变化通过 {@link RedisMetrics} 上报: redis.circuit.state 为 gauge(0关闭, 1打开, 2半开),
+ * redis.circuit.closed / open / half_open 为进入对应状态的次数, redis.circuit.rejected 为被拒绝的调用数
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 14:20
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final int BUCKETS = 10;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long bucketMillis;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final RedisMetrics metrics;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAt;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+    private final Bucket[] buckets;
+
+    private CircuitBreaker(double failureRateThreshold, double slowCallRateThreshold, long slowCallMillis,
+                           int minimumCalls, long windowMillis, long openMillis, int halfOpenCalls,
+                           RedisMetrics metrics) {
+        if (failureRateThreshold <= 0 || slowCallRateThreshold <= 0 || slowCallMillis <= 0 || minimumCalls <= 0
+                || windowMillis < BUCKETS || openMillis <= 0 || halfOpenCalls <= 0) {
+            throw new IllegalArgumentException("illegal circuit breaker parameters");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.minimumCalls = minimumCalls;
+        this.bucketMillis = windowMillis / BUCKETS;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.metrics = metrics;
+        this.buckets = new Bucket[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Bucket();
+        }
+        metrics.gauge("redis.circuit.state", State.CLOSED.ordinal());
+    }
+
+    /**
+     * @param failureRateThreshold  失败率阈值, (0, 1]
+     * @param slowCallRateThreshold 慢调用率阈值, (0, 1]
+     * @param slowCallMillis        超过该耗时算慢调用
+     * @param minimumCalls          窗口内至少有这么多调用才计算比例
+     * @param windowMillis          滑动窗口长度
+     * @param openMillis            打开后多久进入半开
+     * @param halfOpenCalls         半开时放行的探测调用数
+     */
+    public static final CircuitBreaker create(double failureRateThreshold, double slowCallRateThreshold,
+                                              long slowCallMillis, int minimumCalls, long windowMillis,
+                                              long openMillis, int halfOpenCalls, RedisMetrics metrics){
+        return new CircuitBreaker(failureRateThreshold, slowCallRateThreshold, slowCallMillis, minimumCalls,
+                windowMillis, openMillis, halfOpenCalls, metrics);
+    }
+
+    /** 失败率或慢调用率超过50%即打开, 慢调用为超过 slowCallMillis, 10秒窗口至少20次调用, 打开5秒后用3次调用探测 **/
+    public static final CircuitBreaker defaultBreaker(long slowCallMillis, RedisMetrics metrics){
+        return new CircuitBreaker(0.5, 0.5, slowCallMillis, 20, 10_000L, 5_000L, 3, metrics);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /** 申请一次调用许可, 返回false表示应当直接失败 **/
+    public boolean tryAcquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis || !transition(State.OPEN, State.HALF_OPEN)) {
+                return rejected();
+            }
+        }
+        if (state.get() == State.CLOSED) {
+            return true;
+        }
+        if (halfOpenPermits.incrementAndGet() > halfOpenCalls) {
+            halfOpenPermits.decrementAndGet();
+            return rejected();
+        }
+        return true;
+    }
+
+    /** 记录一次调用的结果 **/
+    public void onResult(boolean failure, long elapsedNanos) {
+        boolean slow = elapsedNanos > slowCallNanos;
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (failure || slow) {
+                transition(State.HALF_OPEN, State.OPEN);
+            } else if (halfOpenSuccesses.incrementAndGet() >= halfOpenCalls) {
+                transition(State.HALF_OPEN, State.CLOSED);
+            }
+            return;
+        }
+
+        Bucket bucket = currentBucket();
+        bucket.total.increment();
+        if (failure) {
+            bucket.failures.increment();
+        }
+        if (slow) {
+            bucket.slow.increment();
+        }
+        // 只有失败或慢调用才可能让比例上升, 成功调用不需要重新计算
+        if (current == State.CLOSED && (failure || slow)) {
+            evaluate();
+        }
+    }
+
+    private void evaluate() {
+        long now = System.currentTimeMillis() / bucketMillis;
+        long total = 0L;
+        long failures = 0L;
+        long slow = 0L;
+        for (Bucket bucket : buckets) {
+            long epoch = bucket.epoch.get();
+            if (epoch != Long.MIN_VALUE && now - epoch < BUCKETS) {
+                total += bucket.total.sum();
+                failures += bucket.failures.sum();
+                slow += bucket.slow.sum();
+            }
+        }
+        if (total < minimumCalls) {
+            return;
+        }
+        if ((double) failures / total >= failureRateThreshold || (double) slow / total >= slowCallRateThreshold) {
+            if (transition(State.CLOSED, State.OPEN)) {
+                log.warn("redis circuit opened, calls={}, failures={}, slowCalls={}", total, failures, slow);
+            }
+        }
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (to == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (to == State.HALF_OPEN) {
+            halfOpenPermits.set(0);
+            halfOpenSuccesses.set(0);
+        } else {
+            for (Bucket bucket : buckets) {
+                bucket.reset(Long.MIN_VALUE);
+            }
+        }
+        if (to != State.OPEN) {
+            log.info("redis circuit {} -> {}", from, to);
+        }
+        metrics.count("redis.circuit." + to.name().toLowerCase(), 1L);
+        metrics.gauge("redis.circuit.state", to.ordinal());
+        return true;
+    }
+
+    private boolean rejected() {
+        metrics.count("redis.circuit.rejected", 1L);
+        return false;
+    }
+
+    private Bucket currentBucket() {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % BUCKETS)];
+        long old = bucket.epoch.get();
+        if (old != epoch && bucket.epoch.compareAndSet(old, epoch)) {
+            bucket.reset(epoch);
+        }
+        return bucket;
+    }
+
+    /* 窗口中的一个时间片, 重置时与并发写入之间的竞争只会带来少量误差 */
+    private static final class Bucket {
+
+        private final AtomicLong epoch = new AtomicLong(Long.MIN_VALUE);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        private void reset(long newEpoch) {
+            total.reset();
+            failures.reset();
+            slow.reset();
+            epoch.set(newEpoch);
+        }
+    }
+}
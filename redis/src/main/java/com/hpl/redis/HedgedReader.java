@@ -0,0 +1,109 @@
+package com.hpl.redis;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 对冲读: 读命令先发给主库, 超过主库最近的 p95 延迟还没返回时, 再向从库发一次同样的读, 谁先成功用谁的结果
+ * 用少量额外的从库请求(约5%)削掉主库的长尾延迟. 只能用于读命令, 且调用方要能接受从库的复制延迟
+ * <p>
+ * 上报的指标: redis.hedge.sent 为发出的对冲请求数, redis.hedge.won 为从库先返回的次数
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 15:20
+ */
+public class HedgedReader {
+
+    private static final long DECAY_SAMPLES = 10_000L;
+    private static final double PERCENTILE = 0.95;
+
+    private final Redis primary;
+    private final Redis replica;
+    private final ExecutorService executor;
+    private final RedisMetrics metrics;
+    private final long minDelayMicros;
+    private final LatencyTracker tracker;
+
+    private HedgedReader(Redis primary, Redis replica, ExecutorService executor, RedisMetrics metrics,
+                         long minDelayMicros) {
+        this.primary = primary;
+        this.replica = replica;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.minDelayMicros = minDelayMicros;
+        this.tracker = new LatencyTracker(DECAY_SAMPLES);
+    }
+
+    /**
+     * @param executor       执行读命令的线程池, 主库和从库的请求都在这里执行
+     * @param minDelayMillis 对冲等待时间的下限, 避免主库很快时 p95 过小导致大量对冲
+     */
+    public static final HedgedReader of(Redis primary, Redis replica, ExecutorService executor,
+                                        RedisMetrics metrics, long minDelayMillis){
+        return new HedgedReader(primary, replica, executor, metrics, TimeUnit.MILLISECONDS.toMicros(minDelayMillis));
+    }
+
+    /** 例如 {@code reader.read(redis -> redis.get(key))} **/
+    public <T> T read(Function<Redis, T> command) {
+        CompletableFuture<T> primaryFuture = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T value = command.apply(primary);
+            tracker.record(System.nanoTime() - start);
+            return value;
+        }, executor);
+
+        long delay = Math.max(minDelayMicros, tracker.percentileMicros(PERCENTILE, minDelayMicros));
+        try {
+            return primaryFuture.get(delay, TimeUnit.MICROSECONDS);
+        } catch (TimeoutException e) {
+            // 主库慢了, 发出对冲请求
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("interrupted while waiting for redis reply", e);
+        }
+
+        metrics.count("redis.hedge.sent", 1L);
+        CompletableFuture<T> replicaFuture = CompletableFuture.supplyAsync(() -> command.apply(replica), executor);
+
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<T, Throwable> onComplete = (value, error) -> {
+            if (error == null) {
+                winner.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        };
+        primaryFuture.whenComplete(onComplete);
+        replicaFuture.whenComplete((value, error) -> {
+            if (error == null && !primaryFuture.isDone()) {
+                metrics.count("redis.hedge.won", 1L);
+            }
+            onComplete.accept(value, error);
+        });
+
+        try {
+            return winner.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new JedisException(cause);
+    }
+}
@@ -0,0 +1,78 @@
+package com.hpl.redis;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 近似的延迟分位数统计
+ * 按微秒对数分桶(每个2的幂再分4档), 记录是一次原子自增; 样本数每达到 decaySamples 时所有桶减半, 让分位数跟随最近的延迟变化
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 15:00
+ */
+class LatencyTracker {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder samples = new LongAdder();
+    private final long decaySamples;
+
+    LatencyTracker(long decaySamples) {
+        this.decaySamples = decaySamples;
+    }
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(1L, nanos / 1000L)));
+        samples.increment();
+        if (samples.sum() >= decaySamples) {
+            decay();
+        }
+    }
+
+    /** 分位数对应的延迟(微秒), 没有样本时返回 defaultMicros **/
+    long percentileMicros(double percentile, long defaultMicros) {
+        long total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0L) {
+            return defaultMicros;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    private synchronized void decay() {
+        if (samples.sum() < decaySamples) {
+            return;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, counts.get(i) / 2);
+        }
+        samples.reset();
+    }
+
+    private static int bucketOf(long micros) {
+        int log2 = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = log2 < 2 ? 0 : (int) ((micros >>> (log2 - 2)) & (SUB_BUCKETS - 1));
+        return Math.min(BUCKETS - 1, log2 * SUB_BUCKETS + sub);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int log2 = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (log2 < 2) {
+            return 1L << (log2 + 1);
+        }
+        return (1L << log2) + ((long) (sub + 1) << (log2 - 2));
+    }
+}
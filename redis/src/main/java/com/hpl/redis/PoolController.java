@@ -0,0 +1,124 @@
+package com.hpl.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据借连接的等待时间和连接池利用率, 自动调整 jedispool 的 maxTotal
+ * <p>
+ * 每个周期采样一次: 平均借用等待超过 targetWaitMillis, 或者有线程在排队且利用率超过90%时, maxTotal 扩大25%;
+ * 连续 shrinkAfterTicks 个周期利用率低于30%且没有排队时, maxTotal 缩小20%. maxTotal 始终在 [lower, upper] 之间
+ * <p>
+ * 每次采样和调整都会通过 {@link RedisMetrics} 上报:
+ * redis.pool.active / idle / waiters / max_total / mean_borrow_wait_ms 为 gauge,
+ * redis.pool.grow / shrink 为调整次数
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 19:20
+ */
+public class PoolController {
+
+    private static final Logger log = LoggerFactory.getLogger(PoolController.class);
+
+    private static final double GROW_FACTOR = 1.25;
+    private static final double SHRINK_FACTOR = 0.8;
+    private static final double HIGH_UTILIZATION = 0.9;
+    private static final double LOW_UTILIZATION = 0.3;
+
+    private final TunableJedisPool pool;
+    private final RedisMetrics metrics;
+    private final int lower;
+    private final int upper;
+    private final long targetWaitMillis;
+    private final int shrinkAfterTicks;
+
+    private int idleTicks;
+    private ScheduledFuture<?> task;
+
+    private PoolController(Redis redis, RedisMetrics metrics, int lower, int upper, long targetWaitMillis,
+                           int shrinkAfterTicks) {
+        if (lower <= 0 || upper < lower || targetWaitMillis <= 0 || shrinkAfterTicks <= 0) {
+            throw new IllegalArgumentException("illegal pool controller parameters");
+        }
+        this.pool = redis.getPool();
+        this.metrics = metrics;
+        this.lower = lower;
+        this.upper = upper;
+        this.targetWaitMillis = targetWaitMillis;
+        this.shrinkAfterTicks = shrinkAfterTicks;
+    }
+
+    /**
+     * @param lower            maxTotal 的下限
+     * @param upper            maxTotal 的上限
+     * @param targetWaitMillis 可以接受的平均借用等待时间
+     * @param shrinkAfterTicks 连续多少个空闲周期后缩小
+     */
+    public static final PoolController create(Redis redis, RedisMetrics metrics, int lower, int upper,
+                                              long targetWaitMillis, int shrinkAfterTicks){
+        return new PoolController(redis, metrics, lower, upper, targetWaitMillis, shrinkAfterTicks);
+    }
+
+    /** 按 periodMillis 周期性采样和调整 **/
+    public synchronized PoolController start(ScheduledExecutorService scheduler, long periodMillis) {
+        if (task != null) {
+            throw new IllegalStateException("pool controller already started.");
+        }
+        task = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /** 采样一次并按需调整, 返回调整后的 maxTotal **/
+    public synchronized int tick() {
+        int maxTotal = pool.getMaxTotal();
+        int active = pool.getNumActive();
+        int waiters = pool.getNumWaiters();
+        long meanWait = pool.getMeanBorrowWaitTimeMillis();
+        double utilization = maxTotal <= 0 ? 0 : (double) active / maxTotal;
+
+        metrics.gauge("redis.pool.active", active);
+        metrics.gauge("redis.pool.idle", pool.getNumIdle());
+        metrics.gauge("redis.pool.waiters", waiters);
+        metrics.gauge("redis.pool.mean_borrow_wait_ms", meanWait);
+
+        int target = maxTotal;
+        if (meanWait > targetWaitMillis || (waiters > 0 && utilization >= HIGH_UTILIZATION)) {
+            idleTicks = 0;
+            target = Math.min(upper, Math.max(maxTotal + 1, (int) Math.ceil(maxTotal * GROW_FACTOR)));
+        } else if (waiters == 0 && utilization < LOW_UTILIZATION) {
+            if (++idleTicks >= shrinkAfterTicks) {
+                idleTicks = 0;
+                target = Math.max(lower, (int) Math.floor(maxTotal * SHRINK_FACTOR));
+            }
+        } else {
+            idleTicks = 0;
+        }
+        target = Math.max(target, pool.getMinIdle());
+
+        if (target != maxTotal) {
+            pool.setMaxTotal(target);
+            metrics.count(target > maxTotal ? "redis.pool.grow" : "redis.pool.shrink", 1L);
+            log.info("resize jedispool maxTotal {} -> {}, active={}, waiters={}, meanBorrowWait={}ms",
+                    maxTotal, target, active, waiters, meanWait);
+        }
+        metrics.gauge("redis.pool.max_total", target);
+        return target;
+    }
+}
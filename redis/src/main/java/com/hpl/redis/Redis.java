@@ -1,24 +1,56 @@
 package com.hpl.redis;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 import redis.clients.jedis.params.SetParams;
 
 public class Redis {
 
-    private final JedisPool jedispool;
+    private final TunableJedisPool jedispool;
+
+    private final String ip;
+    private final int port;
+    private final String auth;
+    private final int timeout;
+
+    /* 不为null时, 命令优先使用亲和连接 */
+    private volatile ThreadAffinity affinity;
+
+    /* 不为null时, 命令先向熔断器申请许可, 连接归还时上报结果 */
+    private volatile CircuitBreaker circuitBreaker;
+    /* 开启熔断器时记录每个命令借出连接的时间 */
+    private final ConcurrentHashMap<Jedis, Long> inflight = new ConcurrentHashMap<>();
+
+    /* 当前线程的命令截止时间(毫秒), 只在 activeDeadlines 大于0时才需要检查 */
+    private final ThreadLocal<Integer> deadline = new ThreadLocal<>();
+    private final AtomicInteger activeDeadlines = new AtomicInteger();
 
     public Redis(GenericObjectPoolConfig<Jedis> redisPoolConfig, String ip, int port, String auth, int timeout) {
-        this.jedispool = new JedisPool(redisPoolConfig, ip, port, timeout, auth);
+        this.jedispool = new TunableJedisPool(redisPoolConfig, ip, port, timeout, auth, this);
+        this.ip = ip;
+        this.port = port;
+        this.auth = auth;
+        this.timeout = timeout;
     }
 
     /**
@@ -30,6 +62,281 @@ public class Redis {
         return jedispool.getResource();
     }
 
+    /**
+     * 预热连接池: 借出 minIdle 个连接并逐个 PING 确认可用后归还, 让第一波请求不用在请求路径上建连和 AUTH
+     * <p>
+     * 应在启动阶段、接入流量之前调用
+     *
+     * @return 预热成功的连接数
+     **/
+    public int warmUp() {
+        int minIdle = jedispool.getMinIdle();
+        List<Jedis> borrowed = new ArrayList<>(minIdle);
+        int validated = 0;
+        try {
+            for (int i = 0; i < minIdle; i++) {
+                borrowed.add(jedispool.getResource());
+            }
+            for (Jedis jedis : borrowed) {
+                jedis.ping();
+                validated++;
+            }
+        } finally {
+            for (Jedis jedis : borrowed) {
+                jedis.close();
+            }
+        }
+        return validated;
+    }
+
+    TunableJedisPool getPool() {
+        return jedispool;
+    }
+
+    /**
+     * 开启线程亲和的连接模式, 见 {@link ThreadAffinity}. 传入null关闭, 关闭时原有的亲和连接会被断开
+     * <p>
+     * 只影响本类的命令方法, {@link #getJedis()} 始终从 jedispool 借连接
+     **/
+    public synchronized void useThreadAffinity(ThreadAffinity threadAffinity) {
+        if (threadAffinity != null) {
+            threadAffinity.attach(this);
+        }
+        ThreadAffinity old = this.affinity;
+        this.affinity = threadAffinity;
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /** 释放当前线程绑定的亲和连接, 线程退出前调用 **/
+    public void unbindCurrentThread() {
+        ThreadAffinity current = affinity;
+        if (current != null) {
+            current.unbindCurrentThread();
+        }
+    }
+
+    /**
+     * 开启熔断器, 见 {@link CircuitBreaker}. 传入null关闭
+     * <p>
+     * 熔断器打开时本类的命令方法直接抛出 {@link RedisCircuitOpenException}, 不再借连接等待超时
+     **/
+    public void useCircuitBreaker(CircuitBreaker breaker) {
+        this.circuitBreaker = breaker;
+        if (breaker == null) {
+            inflight.clear();
+        }
+    }
+
+    /**
+     * 在 commands 里通过本类发出的命令使用 millis 毫秒的读超时, 代替构造时传入的 timeout
+     * 超时的命令抛出 JedisConnectionException, 连接作废
+     * <p>
+     * 例如 {@code redis.withDeadline(50, () -> redis.get(key))}
+     **/
+    public <T> T withDeadline(int millis, Supplier<T> commands) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("deadline must be positive");
+        }
+        Integer previous = deadline.get();
+        deadline.set(millis);
+        activeDeadlines.incrementAndGet();
+        try {
+            return commands.get();
+        } finally {
+            activeDeadlines.decrementAndGet();
+            if (previous == null) {
+                deadline.remove();
+            } else {
+                deadline.set(previous);
+            }
+        }
+    }
+
+    /* 连接归还时调用: 恢复读超时, 并把本次命令的结果上报给熔断器 */
+    void afterCommand(Jedis jedis, boolean broken) {
+        if (!broken && jedis.getClient().getSoTimeout() != timeout) {
+            jedis.getClient().setSoTimeout(timeout);
+        }
+        if (inflight.isEmpty()) {
+            return;
+        }
+        Long start = inflight.remove(jedis);
+        CircuitBreaker breaker = circuitBreaker;
+        if (start != null && breaker != null) {
+            breaker.onResult(broken, System.nanoTime() - start);
+        }
+    }
+
+    AffineJedis newAffineJedis(ThreadAffinity owner, int stripe) {
+        AffineJedis jedis = new AffineJedis(ip, port, timeout, owner, stripe);
+        try {
+            if (auth != null) {
+                jedis.auth(auth);
+            }
+        } catch (RuntimeException e) {
+            jedis.destroy();
+            throw e;
+        }
+        return jedis;
+    }
+
+    /* 本类命令方法取连接的唯一入口: 熔断检查, 取连接, 设置截止时间 */
+    private Jedis getResource() {
+        CircuitBreaker breaker = circuitBreaker;
+        if (breaker == null) {
+            return applyDeadline(borrow());
+        }
+
+        if (!breaker.tryAcquirePermission()) {
+            throw new RedisCircuitOpenException("redis circuit is open, fail fast.");
+        }
+        long start = System.nanoTime();
+        Jedis jedis;
+        try {
+            jedis = borrow();
+        } catch (RuntimeException e) {
+            breaker.onResult(true, System.nanoTime() - start);
+            throw e;
+        }
+        inflight.put(jedis, start);
+        return applyDeadline(jedis);
+    }
+
+    /* 有亲和连接时用亲和连接, 否则从 jedispool 借 */
+    private Jedis borrow() {
+        ThreadAffinity current = affinity;
+        if (current != null) {
+            Jedis jedis = current.acquire();
+            if (jedis != null) {
+                return jedis;
+            }
+        }
+        return jedispool.getResource();
+    }
+
+    private Jedis applyDeadline(Jedis jedis) {
+        if (activeDeadlines.get() > 0) {
+            Integer millis = deadline.get();
+            if (millis != null && jedis.getClient().getSoTimeout() != millis) {
+                jedis.getClient().setSoTimeout(millis);
+            }
+        }
+        return jedis;
+    }
+
+    /**
+     * 新建一个不属于 jedispool 的独立连接, 给 BLMOVE、SUBSCRIBE 这类会长时间占住连接的阻塞命令使用,
+     * 避免它们耗尽共享的 jedispool
+     * <p>
+     * 务必在使用完后调用 <code>close() </code> 方法关闭连接
+     **/
+    public Jedis newDedicatedJedis() {
+        Jedis jedis = new Jedis(ip, port, timeout);
+        try {
+            if (auth != null) {
+                jedis.auth(auth);
+            }
+        } catch (RuntimeException e) {
+            jedis.close();
+            throw e;
+        }
+        return jedis;
+    }
+
+    /**
+     * 在同一个 Jedis 上以 pipeline 方式发送 commands 里的全部命令, 只等待一次往返
+     * <p>
+     * 返回值按命令发送的顺序排列, 命令出错时对应位置是 JedisDataException 而不是抛出
+     **/
+    public List<Object> pipelined(final Consumer<Pipeline> commands) {
+        try (Jedis jedis = getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            commands.accept(pipeline);
+            return pipeline.syncAndReturnAll();
+        }
+    }
+
+    /**
+     * 乐观锁事务, 最多尝试16次
+     *
+     * @see #transaction(List, TransactionBody, int)
+     */
+    public List<Object> transaction(final List<String> watchKeys, final TransactionBody body) {
+        return transaction(watchKeys, body, 16);
+    }
+
+    /**
+     * 乐观锁事务: WATCH watchKeys, 由 body 读取当前值并给出写命令, 再以 MULTI ... EXEC 提交.
+     * 期间 watch 的 key 被别人修改时 EXEC 失败, 随机退避后从 WATCH 开始重试
+     * <p>
+     * MULTI、写命令和 EXEC 在一个 pipeline 里发送, 一次尝试的往返为 WATCH 1次 + body 的读取 + 提交1次
+     *
+     * @param maxAttempts 最大尝试次数
+     * @return EXEC 的结果, 按写命令的顺序排列, 命令出错时对应位置是 JedisDataException;
+     *         body 放弃事务时返回null
+     * @throws RedisTransactionConflictException 每次尝试都冲突
+     */
+    public List<Object> transaction(final List<String> watchKeys, final TransactionBody body,
+            final int maxAttempts) {
+        String[] keys = watchKeys.toArray(new String[0]);
+        try (Jedis jedis = getResource()) {
+            try {
+                return doTransaction(jedis, keys, body, maxAttempts);
+            } catch (RuntimeException e) {
+                // 亲和连接归还时不会重置状态, 这里清掉残留的 WATCH / MULTI
+                resetQuietly(jedis);
+                throw e;
+            }
+        }
+    }
+
+    private static List<Object> doTransaction(final Jedis jedis, final String[] keys, final TransactionBody body,
+            final int maxAttempts) {
+        for (int attempt = 1; ; attempt++) {
+            jedis.watch(keys);
+            Consumer<Pipeline> writes = body.prepare(jedis);
+            if (writes == null) {
+                jedis.unwatch();
+                return null;
+            }
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.multi();
+            writes.accept(pipeline);
+            Response<List<Object>> exec = pipeline.exec();
+            pipeline.sync();
+            List<Object> result = exec.get();
+            if (result != null) {
+                return result;
+            }
+            if (attempt >= maxAttempts) {
+                throw new RedisTransactionConflictException("transaction on " + Arrays.toString(keys)
+                        + " still conflicts after " + maxAttempts + " attempts");
+            }
+            backoff(attempt);
+        }
+    }
+
+    private static void resetQuietly(final Jedis jedis) {
+        try {
+            jedis.resetState();
+        } catch (RuntimeException ignored) {
+            // 连接已经断开时会在归还时作废
+        }
+    }
+
+    /* 冲突后的随机退避, 上限随尝试次数翻倍, 最多约64ms */
+    private static void backoff(int attempt) {
+        long bound = 1L << Math.min(attempt, 6);
+        try {
+            TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(bound * 1000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("interrupted while retrying transaction", e);
+        }
+    }
+
     /**
      * Test if the specified key exists. The command returns true if the key exists,
      * otherwise false is returned. Note that even keys set with an empty string as
@@ -39,7 +346,7 @@ public class Redis {
      * @return Boolean reply, true if the key exists, otherwise false
      */
     public Boolean exists(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.exists(key);
         }
     }
@@ -55,7 +362,20 @@ public class Redis {
      * @return Bulk reply
      */
     public String get(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
+            return jedis.get(key);
+        }
+    }
+
+    /**
+     * Binary version of {@link #get(String)}: the value is returned as the raw bytes
+     * read from the socket, without decoding it to a String.
+     *
+     * @param key
+     * @return Bulk reply
+     */
+    public byte[] get(final byte[] key) {
+        try (Jedis jedis = getResource()) {
             return jedis.get(key);
         }
     }
@@ -71,7 +391,20 @@ public class Redis {
      * @return Status code reply
      */
     public String set(final String key, final String value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
+            return jedis.set(key, value);
+        }
+    }
+
+    /**
+     * Binary version of {@link #set(String, String)}.
+     *
+     * @param key
+     * @param value
+     * @return Status code reply
+     */
+    public String set(final byte[] key, final byte[] value) {
+        try (Jedis jedis = getResource()) {
             return jedis.set(key, value);
         }
     }
@@ -94,7 +427,7 @@ public class Redis {
      * @see #msetnx(String...)
      */
     public String mset(final String... keysvalues) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.mset(keysvalues);
         }
     }
@@ -110,7 +443,7 @@ public class Redis {
      * @return Multi bulk reply
      */
     public List<String> mget(final String... keys) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.mget(keys);
         }
     }
@@ -128,7 +461,7 @@ public class Redis {
      * @return Return value Integer reply: The number of keys that were removed.
      */
     public Long del(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.del(key);
         }
     }
@@ -143,7 +476,7 @@ public class Redis {
      *         keys were removed 0 if none of the specified key existed
      */
     public Long del(final String... keys) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.del(keys);
         }
     }
@@ -160,7 +493,7 @@ public class Redis {
      * @return the score
      */
     public Double zscore(final String key, final String member) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zscore(key, member);
         }
     }
@@ -178,7 +511,20 @@ public class Redis {
      * @return Bulk reply
      */
     public String hget(final String key, final String field) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
+            return jedis.hget(key, field);
+        }
+    }
+
+    /**
+     * Binary version of {@link #hget(String, String)}.
+     *
+     * @param key
+     * @param field
+     * @return Bulk reply
+     */
+    public byte[] hget(final byte[] key, final byte[] field) {
+        try (Jedis jedis = getResource()) {
             return jedis.hget(key, field);
         }
     }
@@ -192,7 +538,19 @@ public class Redis {
      * @return All the fields and values contained into a hash.
      */
     public Map<String, String> hgetAll(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
+            return jedis.hgetAll(key);
+        }
+    }
+
+    /**
+     * Binary version of {@link #hgetAll(String)}.
+     *
+     * @param key
+     * @return All the fields and values contained into a hash.
+     */
+    public Map<byte[], byte[]> hgetAll(final byte[] key) {
+        try (Jedis jedis = getResource()) {
             return jedis.hgetAll(key);
         }
     }
@@ -212,7 +570,22 @@ public class Redis {
      *         returned.
      */
     public Long hset(final String key, final String field, final String value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
+            return jedis.hset(key, field, value);
+        }
+    }
+
+    /**
+     * Binary version of {@link #hset(String, String, String)}.
+     *
+     * @param key
+     * @param field
+     * @param value
+     * @return If the field already exists, 0 is returned, otherwise if a new field
+     *         is created 1 is returned.
+     */
+    public Long hset(final byte[] key, final byte[] field, final byte[] value) {
+        try (Jedis jedis = getResource()) {
             return jedis.hset(key, field, value);
         }
     }
@@ -239,14 +612,14 @@ public class Redis {
      *         updated
      */
     public Long zadd(final String key, final double score, final String member) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zadd(key, score, member);
         }
     }
 
     public Long zadd(final String key, final Map<String, Double> map) {
 
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zadd(key, map);
         }
     }
@@ -272,7 +645,7 @@ public class Redis {
      * @see #decrBy(String, long)
      */
     public Long incr(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.incr(key);
         }
     }
@@ -298,7 +671,7 @@ public class Redis {
      * @see #decrBy(String, long)
      */
     public Long incrBy(final String key, final long increment) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.incrBy(key, increment);
         }
     }
@@ -329,7 +702,7 @@ public class Redis {
      * @see <a href="http://redis.io/commands/expire">Expire Command</a>
      */
     public Long expire(final String key, final long seconds) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.expire(key, seconds);
         }
 
@@ -355,7 +728,7 @@ public class Redis {
      * @see #zrevrank(String, String)
      */
     public Long zrank(final String key, final String member) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrank(key, member);
         }
     }
@@ -380,7 +753,7 @@ public class Redis {
      * @see #zrank(String, String)
      */
     public Long zrevrank(final String key, final String member) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrevrank(key, member);
         }
     }
@@ -401,7 +774,7 @@ public class Redis {
      *         scores, in case the WITHSCORES option is given).
      */
     public Set<String> zrange(final String key, final long start, final long stop) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrange(key, start, stop);
         }
     }
@@ -423,7 +796,7 @@ public class Redis {
      *         scores).
      */
     public Set<String> zrevrange(final String key, final long start, final long stop) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrevrange(key, start, stop);
         }
     }
@@ -450,13 +823,13 @@ public class Redis {
      *         scores, in case the WITHSCORES option is given).
      */
     public Set<Tuple> zrangeWithScores(final String key, final long start, final long stop) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrangeWithScores(key, start, stop);
         }
     }
 
     public Set<String> zrangeByScore(final String key, final String min, final String max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrangeByScore(key, min, max);
         }
     }
@@ -518,7 +891,7 @@ public class Redis {
      * @see #zcount(String, double, double)
      */
     public Set<String> zrangeByScore(final String key, final long min, final long max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrangeByScore(key, min, max);
         }
     }
@@ -546,7 +919,7 @@ public class Redis {
      *         scores).
      */
     public Set<Tuple> zrevrangeWithScores(final String key, final long start, final long stop) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrevrangeWithScores(key, start, stop);
         }
     }
@@ -565,7 +938,7 @@ public class Redis {
      *         the new element was not a member of the set
      */
     public Long zrem(final String key, final String... members) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrem(key, members);
         }
     }
@@ -580,7 +953,7 @@ public class Redis {
      * @return the cardinality (number of elements) of the set as an integer.
      */
     public Long zcard(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zcard(key);
         }
     }
@@ -598,7 +971,7 @@ public class Redis {
      * @return Return OK or Exception if hash is empty
      */
     public String hmset(final String key, final Map<String, String> hash) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hmset(key, hash);
         }
     }
@@ -617,7 +990,7 @@ public class Redis {
      *         with the specified fields, in the same order of the request.
      */
     public List<String> hmget(final String key, final String... fields) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hmget(key, fields);
         }
     }
@@ -633,7 +1006,7 @@ public class Redis {
      *         otherwise 0 is returned and no operation is performed.
      */
     public Long hdel(final String key, final String... fields) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hdel(key, fields);
         }
     }
@@ -651,7 +1024,7 @@ public class Redis {
      *         already exists
      */
     public String set(final String key, final String value, final SetParams params) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.set(key, value, params);
         }
     }
@@ -670,25 +1043,25 @@ public class Redis {
      *         returned or if the Key does not exists, -2 is returned.
      */
     public Long ttl(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.ttl(key);
         }
     }
 
     public Set<String> keys(final String pattern) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.keys(pattern);
         }
     }
 
     public ScanResult<String> scan(final String cursor) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.scan(cursor);
         }
     }
 
     public ScanResult<String> scan(final String cursor, final ScanParams params) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.scan(cursor, params);
         }
     }
@@ -706,7 +1079,7 @@ public class Redis {
      *         does not exist
      */
     public Boolean sismember(final String key, final String member) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.sismember(key, member);
         }
     }
@@ -725,7 +1098,7 @@ public class Redis {
      *         element was already a member of the set
      */
     public Long sadd(final String key, final String... members) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.sadd(key, members);
         }
     }
@@ -740,7 +1113,7 @@ public class Redis {
      * @return Multi bulk reply
      */
     public Set<String> smembers(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.smembers(key);
         }
     }
@@ -758,7 +1131,7 @@ public class Redis {
      *         the new element was not a member of the set
      */
     public Long srem(final String key, final String... members) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.srem(key, members);
         }
     }
@@ -776,7 +1149,21 @@ public class Redis {
      * @return Status code reply
      */
     public String setex(final String key, final long seconds, final String value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
+            return jedis.setex(key, seconds, value);
+        }
+    }
+
+    /**
+     * Binary version of {@link #setex(String, long, String)}.
+     *
+     * @param key
+     * @param seconds
+     * @param value
+     * @return Status code reply
+     */
+    public String setex(final byte[] key, final long seconds, final byte[] value) {
+        try (Jedis jedis = getResource()) {
             return jedis.setex(key, seconds, value);
         }
     }
@@ -794,35 +1181,57 @@ public class Redis {
      *         not set
      */
     public Long setnx(final String key, final String value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.setnx(key, value);
         }
     }
 
     public ScanResult<Map.Entry<String, String>> hscan(final String key, final String cursor) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hscan(key, cursor);
         }
     }
 
     public ScanResult<Map.Entry<String, String>> hscan(final String key, final String cursor, final ScanParams params) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hscan(key, cursor, params);
         }
     }
 
     public ScanResult<Tuple> zscan(final String key, final String cursor) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zscan(key, cursor);
         }
     }
 
     public ScanResult<Tuple> zscan(final String key, final String cursor, final ScanParams params) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zscan(key, cursor, params);
         }
     }
 
+    public ScanResult<String> sscan(final String key, final String cursor, final ScanParams params) {
+        try (Jedis jedis = getResource()) {
+            return jedis.sscan(key, cursor, params);
+        }
+    }
+
+    /**
+     * Test for existence of a specified field in a hash.
+     * <p>
+     * <b>Time complexity:</b> O(1)
+     *
+     * @param key
+     * @param field
+     * @return Return true if the hash stored at key contains the specified field. Return false if the key is
+     *         not found or the field is not present.
+     */
+    public Boolean hexists(final String key, final String field) {
+        try (Jedis jedis = getResource()) {
+            return jedis.hexists(key, field);
+        }
+    }
+
     /**
      * Return the number of items in a hash.
      * <p>
@@ -834,7 +1243,7 @@ public class Redis {
      *         hash.
      */
     public Long hlen(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hlen(key);
         }
     }
@@ -895,13 +1304,13 @@ public class Redis {
      * @see #zcount(String, double, double)
      */
     public Set<Tuple> zrangeByScoreWithScores(final String key, final double min, final double max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrangeByScoreWithScores(key, min, max);
         }
     }
 
     public Set<Tuple> zrangeByScoreWithScores(final String key, final String min, final String max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrangeByScoreWithScores(key, min, max);
         }
     }
@@ -921,23 +1330,49 @@ public class Redis {
      * @return Integer reply, specifically the number of elements removed.
      */
     public Long zremrangeByScore(final String key, final double min, final double max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zremrangeByScore(key, min, max);
         }
     }
 
     public Long zremrangeByScore(final String key, final String min, final String max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zremrangeByScore(key, min, max);
         }
     }
 
     public Long publish(final String channel, final String message) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.publish(channel, message);
         }
     }
 
+    /**
+     * Retrieve the values of configuration parameters matching the glob-style pattern.
+     *
+     * @param pattern
+     * @return a flat list of parameter names and values, name1, value1, name2, value2...
+     */
+    public List<String> configGet(final String pattern) {
+        try (Jedis jedis = getResource()) {
+            return jedis.configGet(pattern);
+        }
+    }
+
+    /**
+     * Alter a configuration parameter at runtime. Managed deployments often rename or
+     * disable CONFIG, in which case a JedisDataException is thrown.
+     *
+     * @param parameter
+     * @param value
+     * @return Status code reply
+     */
+    public String configSet(final String parameter, final String value) {
+        try (Jedis jedis = getResource()) {
+            return jedis.configSet(parameter, value);
+        }
+    }
+
     /**
      * Increment the number stored at field in the hash at key by value. If key does
      * not exist, a new key holding a hash is created. If field does not exist or
@@ -956,7 +1391,7 @@ public class Redis {
      * @return Integer reply The new value at field after the increment operation.
      */
     public Long hincrBy(final String key, final String field, final long value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.hincrBy(key, field, value);
         }
     }
@@ -970,13 +1405,13 @@ public class Redis {
      * @return
      */
     public Boolean setbit(final String key, final long offset, final boolean value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.setbit(key, offset, value);
         }
     }
 
     public Boolean setbit(final String key, final long offset, final String value) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.setbit(key, offset, value);
         }
     }
@@ -989,26 +1424,26 @@ public class Redis {
      * @return
      */
     public Boolean getbit(final String key, final long offset) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.getbit(key, offset);
         }
     }
 
     public Set<String> zrevrangeByScore(final String key, final double max, final double min) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrevrangeByScore(key, max, min);
         }
     }
 
     public Set<String> zrevrangeByScore(final String key, final String max, final String min) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrevrangeByScore(key, max, min);
         }
     }
 
     public Set<String> zrevrangeByScore(final String key, final double max, final double min, final int offset,
             final int count) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrevrangeByScore(key, max, min, offset, count);
         }
     }
@@ -1038,7 +1473,7 @@ public class Redis {
      * @return The new score
      */
     public Double zincrby(final String key, final double increment, final String member) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zincrby(key, increment, member);
         }
     }
@@ -1056,7 +1491,7 @@ public class Redis {
      *         after the push operation.
      */
     public Long rpush(final String key, final String... strings) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.rpush(key, strings);
         }
     }
@@ -1074,7 +1509,7 @@ public class Redis {
      *         after the push operation.
      */
     public Long lpush(final String key, final String... strings) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.lpush(key, strings);
         }
     }
@@ -1092,7 +1527,7 @@ public class Redis {
      * @see #lpop(String)
      */
     public String rpop(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.rpop(key);
         }
     }
@@ -1110,19 +1545,19 @@ public class Redis {
      * @see #rpop(String)
      */
     public String lpop(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.lpop(key);
         }
     }
 
     public Long bitcount(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.bitcount(key);
         }
     }
 
     public Long bitcount(final String key, final long start, final long end) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.bitcount(key, start, end);
         }
     }
@@ -1165,7 +1600,7 @@ public class Redis {
      *         range.
      */
     public List<String> lrange(final String key, final long start, final long end) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.lrange(key, start, end);
         }
     }
@@ -1204,11 +1639,90 @@ public class Redis {
      * @return Status code reply
      */
     public String ltrim(final String key, final long start, final long end) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.ltrim(key, start, end);
         }
     }
 
+    /**
+     * Return the length of the list stored at the specified key. If the key does not
+     * exist zero is returned (the same behaviour as for empty lists). If the value
+     * stored at key is not a list an error is returned.
+     * <p>
+     * Time complexity: O(1)
+     *
+     * @param key
+     * @return The length of the list.
+     */
+    public Long llen(final String key) {
+        try (Jedis jedis = getResource()) {
+            return jedis.llen(key);
+        }
+    }
+
+    /**
+     * Return the specified element of the list stored at the specified key. 0 is the first element, 1
+     * the second and so on. Negative indexes are supported, for example -1 is the last element, -2 the
+     * penultimate and so on.
+     * <p>
+     * If the value stored at key is not of list type an error is returned. If the index is out of range a
+     * 'nil' reply is returned.
+     * <p>
+     * Time complexity: O(n) (with n being the length of the list)
+     *
+     * @param key
+     * @param index
+     * @return Bulk reply, specifically the requested element
+     */
+    public String lindex(final String key, final long index) {
+        try (Jedis jedis = getResource()) {
+            return jedis.lindex(key, index);
+        }
+    }
+
+    /**
+     * Set a new value as the element at index position of the List at key.
+     * <p>
+     * Out of range indexes will generate an error.
+     * <p>
+     * Time complexity: O(N) (with N being the length of the list), setting the first or last elements of
+     * the list is O(1).
+     *
+     * @param key
+     * @param index
+     * @param value
+     * @return Status code reply
+     */
+    public String lset(final String key, final long index, final String value) {
+        try (Jedis jedis = getResource()) {
+            return jedis.lset(key, index, value);
+        }
+    }
+
+    /**
+     * Remove the first count occurrences of the value element from the list. If count
+     * is zero all the elements are removed. If count is negative elements are removed
+     * from tail to head, instead to go from head to tail that is the normal behaviour.
+     * So for example LREM with count -2 and hello as value to remove against the list
+     * (a,b,c,hello,x,hello,hello) will leave the list (a,b,c,hello,x). The number of
+     * removed elements is returned as an integer, see below for more information about
+     * the returned value. Note that non existing keys are considered like empty lists
+     * by LREM, so LREM against non existing keys will always return 0.
+     * <p>
+     * Time complexity: O(N) (with N being the length of the list)
+     *
+     * @param key
+     * @param count
+     * @param value
+     * @return Integer Reply, specifically: The number of removed elements if the
+     *         operation succeeded
+     */
+    public Long lrem(final String key, final long count, final String value) {
+        try (Jedis jedis = getResource()) {
+            return jedis.lrem(key, count, value);
+        }
+    }
+
     /**
      * Return the set cardinality (number of elements). If the key does not exist 0
      * is returned, like for empty sets.
@@ -1218,19 +1732,19 @@ public class Redis {
      *         the set as an integer.
      */
     public Long scard(final String key) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.scard(key);
         }
     }
 
     public Long zcount(final String key, final double min, final double max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zcount(key, min, max);
         }
     }
 
     public Long zcount(final String key, final String min, final String max) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zcount(key, min, max);
         }
     }
@@ -1294,9 +1808,38 @@ public class Redis {
      */
     public Set<String> zrangeByScore(final String key, final double min, final double max, final int offset,
             final int count) {
-        try (Jedis jedis = jedispool.getResource()) {
+        try (Jedis jedis = getResource()) {
             return jedis.zrangeByScore(key, min, max, offset, count);
         }
     }
 
+    /**
+     * Evaluate a lua script server side. The script is sent by its sha1 (EVALSHA)
+     * first, and the full body is sent with EVAL only when the server replies
+     * NOSCRIPT, so a hot script costs a single round trip carrying just the digest.
+     * <p>
+     * The whole script is executed atomically: no other command runs on the server
+     * while it is executing.
+     *
+     * @param script
+     * @param keys
+     * @param args
+     * @return the reply of the script converted by Jedis (Long, String, List or null)
+     */
+    public Object eval(final RedisScript script, final List<String> keys, final List<String> args) {
+        try (Jedis jedis = getResource()) {
+            return eval(jedis, script, keys, args);
+        }
+    }
+
+    /** 在指定的 Jedis 上执行脚本, 供已经持有连接的调用方复用 **/
+    public static Object eval(final Jedis jedis, final RedisScript script, final List<String> keys,
+            final List<String> args) {
+        try {
+            return jedis.evalsha(script.getSha1(), keys, args);
+        } catch (JedisNoScriptException e) {
+            return jedis.eval(script.getScript(), keys, args);
+        }
+    }
+
 }
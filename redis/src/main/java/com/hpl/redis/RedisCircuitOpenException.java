@@ -0,0 +1,18 @@
+package com.hpl.redis;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 熔断器处于打开状态, 命令没有发送到 redis 就直接失败
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 14:10
+ */
+public class RedisCircuitOpenException extends JedisException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisCircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package com.hpl.redis;
+
+/**
+ * 指标上报接口, 由使用方对接到自己的监控系统
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 19:15
+ */
+public interface RedisMetrics {
+
+    /** 不上报任何指标 **/
+    RedisMetrics NOOP = new RedisMetrics() {
+        @Override
+        public void count(String name, long delta) {
+        }
+
+        @Override
+        public void gauge(String name, double value) {
+        }
+    };
+
+    /** 计数类指标累加 delta **/
+    void count(String name, long delta);
+
+    /** 瞬时值类指标 **/
+    void gauge(String name, double value);
+}
@@ -0,0 +1,52 @@
+package com.hpl.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 预先计算好 sha1 的 lua 脚本
+ * 执行时优先走 EVALSHA, 只有服务端缓存里没有该脚本(NOSCRIPT)时才回退到 EVAL 发送脚本全文
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/18 21:30
+ */
+public final class RedisScript {
+
+    private final String script;
+    private final String sha1;
+
+    private RedisScript(String script) {
+        this.script = script;
+        this.sha1 = sha1Hex(script);
+    }
+
+    /** 根据脚本内容创建 **/
+    public static final RedisScript of(String script){
+        return new RedisScript(script);
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    /* EVALSHA 要求的是 SHA-1, 只能用 MessageDigest 计算 */
+    private static String sha1Hex(String script) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // 每个 JVM 都必须支持 SHA-1, 不会发生
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.hpl.redis;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 事务在最大尝试次数内每次 EXEC 都因为 watch 的 key 被修改而失败
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/23 14:15
+ */
+public class RedisTransactionConflictException extends JedisException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisTransactionConflictException(String message) {
+        super(message);
+    }
+}
@@ -12,26 +12,39 @@ import redis.clients.jedis.exceptions.JedisConnectionException;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * 消息订阅者
  * 只能接收到订阅后发布的消息, 离线的消息无法接收
+ * <p>
+ * 订阅在 threadFactory 创建的线程上运行, 使用一个不属于 jedispool 的独立连接, 不会长期占用连接池;
+ * 在 java 21 上可以传入 {@code Thread.ofVirtual().factory()} 让订阅跑在虚拟线程上
  *
  * @Author: huangpenglong
  * @Date: 2022/8/23 15:16
  */
-public class Subscriber extends Thread {
+public class Subscriber implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(Subscriber.class);
 
-    private final Jedis jedis;
+    private final Redis redis;
     private final JedisPubSub jedisPubSub;
+    private final ThreadFactory threadFactory;
+
+    /* 订阅线程, 调用 start() 之后才有值 */
+    private volatile Thread thread;
 
     /* 频道对应的消息处理器 */
     private ListMultimap<String, MessageHandler> handlersMap;
 
     public Subscriber(Redis redis, final ExecutorService threadPool) {
-        this.jedis = redis.getJedis();
+        this(redis, threadPool, Thread::new);
+    }
+
+    public Subscriber(Redis redis, final ExecutorService threadPool, ThreadFactory threadFactory) {
+        this.redis = redis;
+        this.threadFactory = threadFactory;
 
         // 当频道消息到达之后，系统自动调用监听器的onMessage方法
         this.jedisPubSub = new JedisPubSub() {
@@ -47,25 +60,40 @@ public class Subscriber extends Thread {
         this.handlersMap = LinkedListMultimap.create(4);
     }
 
-    /* 添加一个消息处理器，如果已经启动该线程会抛出异常 */
+    /* 添加一个消息处理器，如果已经启动会抛出异常 */
     public void addMessageHandler(String channel, MessageHandler messageHandler){
-        if(isAlive()){
+        if(thread != null){
             throw new UnsupportedOperationException("can't add message handler after subscribe already started.");
         }
         handlersMap.put(channel, messageHandler);
     }
 
+    /* 在新线程上开启所有订阅, 只能调用一次 */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalThreadStateException("subscriber already started.");
+        }
+        Thread subscribeThread = threadFactory.newThread(this);
+        thread = subscribeThread;
+        subscribeThread.start();
+    }
+
+    /* 订阅线程是否还在运行 */
+    public boolean isAlive() {
+        Thread subscribeThread = thread;
+        return subscribeThread != null && subscribeThread.isAlive();
+    }
+
     @Override
-    /* 开启所有订阅 */
+    /* 开启所有订阅, 阻塞直到取消订阅或连接断开 */
     public void run() {
         handlersMap = ImmutableListMultimap.copyOf(handlersMap);
 
-        try {
+        try (Jedis jedis = redis.newDedicatedJedis()) {
             jedis.subscribe(jedisPubSub, handlersMap.keySet().toArray(new String[0]));
         }catch (JedisConnectionException e) {
             log.warn("{}", new StringBuilder(64).append("ex=").append(e.getClass().getSimpleName()).append(", errmsg=")
                     .append(e.getMessage()));
-            jedis.close();
         }
     }
 
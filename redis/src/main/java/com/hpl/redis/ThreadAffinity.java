@@ -0,0 +1,245 @@
+package com.hpl.redis;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程亲和的连接模式, 让固定的一批高 QPS 线程绕过 jedispool 的借还开销(锁、空闲队列、驱逐统计)
+ * <p>
+ * 1. {@link #perThread(int)}: 前 maxThreads 个调用 redis 的线程各自持有一个长连接, 之后的线程仍走 jedispool.
+ *    适合固定大小的工作线程池, 线程退出前应调用 {@link Redis#unbindCurrentThread()} 释放连接;
+ *    没有调用就退出的线程, 它的连接和名额在之后有新线程绑定连接时被回收
+ * 2. {@link #striped(int)}: 固定 stripes 个连接, 线程按 id 哈希到其中一个, 每个连接由一把 ReentrantLock 保护.
+ *    适合线程数远多于连接数的场景, 比如大量虚拟线程
+ * <p>
+ * 拿不到亲和连接时(超过线程上限, 或在同一线程上重入)自动退回 jedispool, 语义不变
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/20 10:20
+ */
+public abstract class ThreadAffinity {
+
+    Redis redis;
+
+    /** 每个线程一个长连接, 最多 maxThreads 个 **/
+    public static final ThreadAffinity perThread(int maxThreads){
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be positive");
+        }
+        return new PerThread(maxThreads);
+    }
+
+    /** stripes 个共享长连接, 每个连接同一时刻只被一个线程使用 **/
+    public static final ThreadAffinity striped(int stripes){
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        return new Striped(stripes);
+    }
+
+    void attach(Redis redis) {
+        if (this.redis != null) {
+            throw new IllegalStateException("thread affinity already attached to a redis.");
+        }
+        this.redis = redis;
+    }
+
+    /** 拿到当前线程的亲和连接, 拿不到时返回null **/
+    abstract AffineJedis acquire();
+
+    abstract void release(AffineJedis jedis);
+
+    /** 释放当前线程绑定的连接 **/
+    abstract void unbindCurrentThread();
+
+    /** 关闭全部亲和连接 **/
+    abstract void close();
+
+    private static final class PerThread extends ThreadAffinity {
+
+        /* 新线程绑定连接时, 最多每隔这么久清理一次已退出线程的连接 */
+        private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+        private final int maxThreads;
+        private final AtomicInteger bound = new AtomicInteger();
+        private final ThreadLocal<AffineJedis> local = new ThreadLocal<>();
+        /* 连接 -> 绑定它的线程, 弱引用不阻止线程对象被回收 */
+        private final ConcurrentHashMap<AffineJedis, WeakReference<Thread>> owners = new ConcurrentHashMap<>();
+        private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+        private volatile boolean closed;
+
+        private PerThread(int maxThreads) {
+            this.maxThreads = maxThreads;
+        }
+
+        @Override
+        AffineJedis acquire() {
+            if (closed) {
+                return null;
+            }
+            AffineJedis jedis = local.get();
+            if (jedis == null) {
+                sweepIfDue();
+                if (bound.incrementAndGet() > maxThreads) {
+                    bound.decrementAndGet();
+                    return null;
+                }
+                try {
+                    jedis = redis.newAffineJedis(this, -1);
+                } catch (RuntimeException e) {
+                    bound.decrementAndGet();
+                    throw e;
+                }
+                local.set(jedis);
+                owners.put(jedis, new WeakReference<>(Thread.currentThread()));
+                // 与 close() 并发时, close() 可能已经遍历完 owners, 由这里断开
+                if (closed) {
+                    jedis.state.set(AffineJedis.CLOSED);
+                    discard(jedis);
+                    return null;
+                }
+            }
+            if (!jedis.state.compareAndSet(AffineJedis.IDLE, AffineJedis.IN_USE)) {
+                // IN_USE 是同一线程重入; CLOSED 是连接已被 close() 断开
+                if (jedis.state.get() == AffineJedis.CLOSED) {
+                    local.remove();
+                }
+                return null;
+            }
+            return jedis;
+        }
+
+        @Override
+        void release(AffineJedis jedis) {
+            if (!jedis.state.compareAndSet(AffineJedis.IN_USE, AffineJedis.IDLE)) {
+                // 使用期间被 close() 标记为 CLOSED
+                discard(jedis);
+            } else if (jedis.isBroken() && jedis.state.compareAndSet(AffineJedis.IDLE, AffineJedis.CLOSED)) {
+                discard(jedis);
+            }
+        }
+
+        @Override
+        void unbindCurrentThread() {
+            AffineJedis jedis = local.get();
+            if (jedis == null) {
+                return;
+            }
+            if (jedis.state.compareAndSet(AffineJedis.IDLE, AffineJedis.CLOSED)) {
+                discard(jedis);
+            } else if (jedis.state.get() == AffineJedis.CLOSED) {
+                local.remove();
+            }
+        }
+
+        /** 空闲的连接直接断开, 正在使用的只标记为 CLOSED, 由使用它的线程在归还时断开 **/
+        @Override
+        void close() {
+            closed = true;
+            for (AffineJedis jedis : owners.keySet()) {
+                if (jedis.state.getAndSet(AffineJedis.CLOSED) == AffineJedis.IDLE) {
+                    forget(jedis);
+                }
+            }
+        }
+
+        /*
+         * 线程没有调用 unbindCurrentThread() 就退出时, 它的连接只有它自己的 ThreadLocal 能释放,
+         * 这里按 owners 里的弱引用找出已退出的线程, 断开连接并让出名额. 线程池替换线程、扩缩容时不会永久占满名额
+         */
+        private void sweepIfDue() {
+            long now = System.nanoTime();
+            long next = nextSweep.get();
+            if (now - next < 0L || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+                return;
+            }
+            for (Map.Entry<AffineJedis, WeakReference<Thread>> entry : owners.entrySet()) {
+                Thread thread = entry.getValue().get();
+                if ((thread == null || !thread.isAlive())
+                        && entry.getKey().state.compareAndSet(AffineJedis.IDLE, AffineJedis.CLOSED)) {
+                    forget(entry.getKey());
+                }
+            }
+        }
+
+        /* 由绑定连接的线程调用 */
+        private void discard(AffineJedis jedis) {
+            local.remove();
+            forget(jedis);
+        }
+
+        private void forget(AffineJedis jedis) {
+            if (owners.remove(jedis) != null) {
+                bound.decrementAndGet();
+            }
+            jedis.destroy();
+        }
+    }
+
+    private static final class Striped extends ThreadAffinity {
+
+        private final AffineJedis[] connections;
+        private final ReentrantLock[] locks;
+
+        private Striped(int stripes) {
+            this.connections = new AffineJedis[stripes];
+            this.locks = new ReentrantLock[stripes];
+            for (int i = 0; i < stripes; i++) {
+                locks[i] = new ReentrantLock();
+            }
+        }
+
+        @Override
+        AffineJedis acquire() {
+            int stripe = (int) (Thread.currentThread().getId() % locks.length);
+            ReentrantLock lock = locks[stripe];
+            if (lock.isHeldByCurrentThread()) {
+                return null;
+            }
+            lock.lock();
+            try {
+                if (connections[stripe] == null) {
+                    connections[stripe] = redis.newAffineJedis(this, stripe);
+                }
+                return connections[stripe];
+            } catch (RuntimeException e) {
+                lock.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        void release(AffineJedis jedis) {
+            int stripe = jedis.getStripe();
+            if (jedis.isBroken()) {
+                connections[stripe] = null;
+                jedis.destroy();
+            }
+            locks[stripe].unlock();
+        }
+
+        @Override
+        void unbindCurrentThread() {
+        }
+
+        @Override
+        void close() {
+            for (int i = 0; i < locks.length; i++) {
+                locks[i].lock();
+                try {
+                    if (connections[i] != null) {
+                        connections[i].destroy();
+                        connections[i] = null;
+                    }
+                } finally {
+                    locks[i].unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.hpl.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.util.function.Consumer;
+
+/**
+ * {@link Redis#transaction} 的事务体, 冲突重试时会被再次调用, 不能有除了读 redis 以外的副作用
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/23 14:10
+ */
+public interface TransactionBody {
+
+    /**
+     * 在 WATCH 之后执行: 用 jedis 读取当前值, 返回要在 MULTI 里执行的写命令
+     * 写命令只需要调用 pipeline 上的方法, 不要调用 sync / multi / exec
+     *
+     * @return 写命令; 返回null表示不需要写入, 放弃本次事务
+     */
+    Consumer<Pipeline> prepare(Jedis jedis);
+}
@@ -0,0 +1,61 @@
+package com.hpl.redis;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 可以在运行时调整大小的 JedisPool
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/19 19:10
+ */
+class TunableJedisPool extends JedisPool {
+
+    /* 连接归还时通知 owner, 用于熔断统计和恢复超时设置 */
+    private final Redis owner;
+
+    private final GenericObjectPool<Jedis> pool;
+    /* 创建时配置的 maxIdle, 放大时恢复到它 */
+    private final int configuredMaxIdle;
+
+    /* jedis 3.x 只能通过已废弃的 internalPool 拿到内部的对象池, 这里只取一次, 之后用自己的引用 */
+    @SuppressWarnings("deprecation")
+    TunableJedisPool(GenericObjectPoolConfig<Jedis> poolConfig, String host, int port, int timeout, String password,
+                     Redis owner) {
+        super(poolConfig, host, port, timeout, password);
+        this.owner = owner;
+        this.pool = internalPool;
+        this.configuredMaxIdle = poolConfig.getMaxIdle();
+    }
+
+    @Override
+    public void returnResource(Jedis resource) {
+        owner.afterCommand(resource, false);
+        super.returnResource(resource);
+    }
+
+    @Override
+    public void returnBrokenResource(Jedis resource) {
+        owner.afterCommand(resource, true);
+        super.returnBrokenResource(resource);
+    }
+
+    int getMaxTotal() {
+        return pool.getMaxTotal();
+    }
+
+    int getMinIdle() {
+        return pool.getMinIdle();
+    }
+
+    /**
+     * 缩小时已经借出的连接不受影响, 归还时超出 maxIdle 的部分会被销毁;
+     * maxIdle 随之调整为 min(配置的 maxIdle, maxTotal), 放大后不会停留在缩小时的值
+     */
+    void setMaxTotal(int maxTotal) {
+        pool.setMaxTotal(maxTotal);
+        pool.setMaxIdle(Math.min(configuredMaxIdle, maxTotal));
+    }
+}
@@ -0,0 +1,81 @@
+package com.hpl.snapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次导入的结果
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 10:20
+ */
+public final class RestoreResult {
+
+    private final long restored;
+    private final long expired;
+    private final long failed;
+    private final List<RestoreError> errors;
+    private final long elapsedNanos;
+
+    RestoreResult(long restored, long expired, long failed, List<RestoreError> errors, long elapsedNanos) {
+        this.restored = restored;
+        this.expired = expired;
+        this.failed = failed;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRestored() {
+        return restored;
+    }
+
+    /** 导入时已经过期而跳过的 key 数 **/
+    public long getExpired() {
+        return expired;
+    }
+
+    /** RESTORE 收到错误回复的 key 数, 如不覆盖时 key 已存在 **/
+    public long getFailed() {
+        return failed;
+    }
+
+    /** 错误回复的明细, 最多保留 maxErrors 条 **/
+    public List<RestoreError> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    @Override
+    public String toString() {
+        return "RestoreResult{restored=" + restored + ", expired=" + expired + ", failed=" + failed
+                + ", elapsedMillis=" + getElapsedMillis() + '}';
+    }
+
+    /** 一个 key 的错误回复 **/
+    public static final class RestoreError {
+
+        private final String key;
+        private final String message;
+
+        RestoreError(String key, String message) {
+            this.key = key;
+            this.message = message;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return key + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.hpl.snapshot;
+
+/**
+ * 导入因为连接断开等原因中止, 已经提交的批次是否写入未知, 可以用 replace 重新导入
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 10:25
+ */
+public class SnapshotException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SnapshotException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
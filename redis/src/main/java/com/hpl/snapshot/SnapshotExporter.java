@@ -0,0 +1,117 @@
+package com.hpl.snapshot;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 把匹配 pattern 的 key 导出成快照文件, 用 {@link SnapshotImporter} 导入
+ * <p>
+ * 1. 用 SCAN 遍历 key, 每一轮往返在同一个 pipeline 里发出下一页的 SCAN 和上一页 key 的 DUMP + PTTL,
+ *    遍历和导出重叠, 每页只需要一次往返;
+ * 2. DUMP 的结果原样写入文件, 不在客户端解析, 所有数据类型都能导出;
+ * 3. 剩余时间按导出时刻换算成绝对过期时间保存, 导入时再换算回剩余时间, 快照放置期间过期的 key 不会被导入;
+ * 4. 文件通过 FileChannel 和直接内存缓冲区顺序写出, 内存占用与 key 的总数无关.
+ * <p>
+ * 导出不是某一时刻的一致快照: 遍历期间被修改的 key 导出的是 DUMP 时的值, 被删除的 key 会跳过;
+ * SCAN 在 rehash 时可能返回重复的 key, 导入时用 replace 即可覆盖
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 10:00
+ */
+public class SnapshotExporter {
+
+    private static final byte[] MATCH = SafeEncoder.encode("MATCH");
+    private static final byte[] COUNT = SafeEncoder.encode("COUNT");
+    private static final String START = "0";
+
+    private final Redis redis;
+    private final int count;
+    private final int bufferSize;
+
+    private SnapshotExporter(Redis redis, int count, int bufferSize) {
+        if (count <= 0 || bufferSize < 1024) {
+            throw new IllegalArgumentException("illegal snapshot exporter parameters");
+        }
+        this.redis = redis;
+        this.count = count;
+        this.bufferSize = bufferSize;
+    }
+
+    /** 每次 SCAN 1000 个 key, 1MB 写缓冲区 **/
+    public static final SnapshotExporter of(Redis redis){
+        return new SnapshotExporter(redis, 1000, 1024 * 1024);
+    }
+
+    /**
+     * @param count      SCAN 的 COUNT 参数, 也就是每次往返大约导出的 key 数
+     * @param bufferSize 写文件的缓冲区字节数
+     */
+    public static final SnapshotExporter of(Redis redis, int count, int bufferSize){
+        return new SnapshotExporter(redis, count, bufferSize);
+    }
+
+    /**
+     * 导出匹配 pattern 的 key 到 file, file 已存在时覆盖
+     *
+     * @return 导出的 key 数
+     */
+    @SuppressWarnings("unchecked")
+    public long export(final String pattern, final Path file) throws IOException {
+        byte[] rawPattern = SafeEncoder.encode(pattern);
+        try (Jedis jedis = redis.getJedis();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotWriter writer = new SnapshotWriter(channel, bufferSize);
+            String cursor = START;
+            List<byte[]> keys = Collections.emptyList();
+            boolean scanning = true;
+            while (scanning || !keys.isEmpty()) {
+                Pipeline pipeline = jedis.pipelined();
+                Response<Object> scan = scanning
+                        ? pipeline.sendCommand(Protocol.Command.SCAN, SafeEncoder.encode(cursor), MATCH, rawPattern,
+                        COUNT, Protocol.toByteArray(count))
+                        : null;
+                List<Response<byte[]>> dumps = new ArrayList<>(keys.size());
+                List<Response<Long>> ttls = new ArrayList<>(keys.size());
+                for (byte[] key : keys) {
+                    dumps.add(pipeline.dump(key));
+                    ttls.add(pipeline.pttl(key));
+                }
+                pipeline.sync();
+
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < keys.size(); i++) {
+                    byte[] dump = dumps.get(i).get();
+                    long ttl = ttls.get(i).get();
+                    // DUMP 之后到 PTTL 之前 key 被删除或过期
+                    if (dump == null || ttl == -2L) {
+                        continue;
+                    }
+                    writer.write(keys.get(i), ttl < 0L ? 0L : now + ttl, dump);
+                }
+
+                keys = Collections.emptyList();
+                if (scanning) {
+                    List<Object> page = (List<Object>) scan.get();
+                    cursor = SafeEncoder.encode((byte[]) page.get(0));
+                    keys = (List<byte[]>) page.get(1);
+                    scanning = !START.equals(cursor);
+                }
+            }
+            writer.finish();
+            return writer.getCount();
+        }
+    }
+}
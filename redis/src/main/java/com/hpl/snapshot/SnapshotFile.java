@@ -0,0 +1,41 @@
+package com.hpl.snapshot;
+
+/**
+ * 快照文件格式, 所有整数都是大端:
+ * <pre>
+ * 文件头: magic(8) version(4)
+ * 记录:   keyLength(4) key expireAt(8) dumpLength(4) dump
+ * 结尾:   -1(4) count(8)
+ * </pre>
+ * expireAt 是绝对过期时间(毫秒), 0 表示不过期; dump 是 DUMP 命令返回的原始字节.
+ * 没有结尾的文件说明导出中途失败, 导入时拒绝
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 09:30
+ */
+final class SnapshotFile {
+
+    /** "HPLSNAP1" **/
+    static final long MAGIC = 0x48504C534E415031L;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    /* 代替 keyLength 表示记录结束 */
+    static final int END = -1;
+
+    private SnapshotFile() {
+    }
+
+    /** 一条记录 **/
+    static final class Record {
+
+        final byte[] key;
+        final long expireAt;
+        final byte[] dump;
+
+        Record(byte[] key, long expireAt, byte[] dump) {
+            this.key = key;
+            this.expireAt = expireAt;
+            this.dump = dump;
+        }
+    }
+}
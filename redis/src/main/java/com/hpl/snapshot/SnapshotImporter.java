@@ -0,0 +1,200 @@
+package com.hpl.snapshot;
+
+import com.hpl.redis.Redis;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把 {@link SnapshotExporter} 导出的快照文件并行导入 redis
+ * <p>
+ * 1. 调用线程通过 FileChannel 顺序读文件, 每 batchSize 条记录组成一批交给 writers 个线程;
+ * 2. 每个线程用连接池里的连接把一批 RESTORE 放在一个 pipeline 里发出, 各线程之间互不等待;
+ * 3. 正在处理和排队的批次不超过 writers 的两倍, 读文件比写 redis 快时调用线程阻塞, 内存占用有上限;
+ * 4. 绝对过期时间在发出前换算成剩余时间, 已经过期的 key 跳过.
+ * <p>
+ * RESTORE 的错误回复(如不覆盖时 key 已存在)不会中止导入, 计数并保留前 maxErrors 条明细;
+ * 连接断开时中止并抛出 {@link SnapshotException}. writers 不应超过连接池的最大连接数
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 10:30
+ */
+public class SnapshotImporter {
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private final Redis redis;
+    private final int writers;
+    private final int batchSize;
+    private final int maxErrors;
+
+    private SnapshotImporter(Redis redis, int writers, int batchSize, int maxErrors) {
+        if (writers <= 0 || batchSize <= 0 || maxErrors < 0) {
+            throw new IllegalArgumentException("illegal snapshot importer parameters");
+        }
+        this.redis = redis;
+        this.writers = writers;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /** 4个线程, 每批500个 key, 保留1000条错误 **/
+    public static final SnapshotImporter of(Redis redis){
+        return new SnapshotImporter(redis, 4, 500, 1000);
+    }
+
+    /**
+     * @param writers   并行导入的线程数, 每个线程同时占用一个连接
+     * @param batchSize 每个 pipeline 里的 RESTORE 条数
+     * @param maxErrors 保留的错误明细条数
+     */
+    public static final SnapshotImporter of(Redis redis, int writers, int batchSize, int maxErrors){
+        return new SnapshotImporter(redis, writers, batchSize, maxErrors);
+    }
+
+    /**
+     * 导入 file 里的全部 key, 返回时所有 RESTORE 都已经收到回复
+     *
+     * @param replace 为true时覆盖已存在的 key, 否则已存在的 key 记为失败
+     * @throws IOException       文件不是快照、被截断或损坏; 此时前面的批次可能已经写入
+     * @throws SnapshotException 连接断开等原因导致导入中止
+     */
+    public RestoreResult restore(final Path file, final boolean replace) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Restore restore = new Restore(replace);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            SnapshotReader reader = new SnapshotReader(channel, READ_BUFFER_SIZE);
+            List<SnapshotFile.Record> batch = new ArrayList<>(batchSize);
+            SnapshotFile.Record record;
+            while ((record = reader.next()) != null) {
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    restore.submit(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                restore.submit(batch);
+            }
+            restore.await();
+            synchronized (restore.errors) {
+                return new RestoreResult(restore.restored.get(), restore.expired.get(), restore.failed.get(),
+                        new ArrayList<>(restore.errors), System.nanoTime() - start);
+            }
+        } finally {
+            restore.close();
+        }
+    }
+
+    /* 一次导入的状态 */
+    private final class Restore {
+
+        final boolean replace;
+        final ExecutorService pool;
+        final Semaphore pending;
+        final AtomicLong restored = new AtomicLong();
+        final AtomicLong expired = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final List<RestoreResult.RestoreError> errors = new ArrayList<>();
+        volatile Throwable failure;
+
+        Restore(boolean replace) {
+            this.replace = replace;
+            this.pool = Executors.newFixedThreadPool(writers, runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-restore-" + THREAD_ID.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.pending = new Semaphore(writers * 2);
+        }
+
+        void submit(List<SnapshotFile.Record> batch) throws InterruptedException {
+            checkFailure();
+            pending.acquire();
+            pool.execute(() -> {
+                try {
+                    if (failure == null) {
+                        write(batch);
+                    }
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } finally {
+                    pending.release();
+                }
+            });
+        }
+
+        /* 等待所有批次完成 */
+        void await() throws InterruptedException {
+            pending.acquire(writers * 2);
+            pending.release(writers * 2);
+            checkFailure();
+        }
+
+        void close() {
+            pool.shutdownNow();
+        }
+
+        private void checkFailure() {
+            Throwable cause = failure;
+            if (cause != null) {
+                throw new SnapshotException("snapshot restore aborted after " + restored.get() + " keys", cause);
+            }
+        }
+
+        private void write(List<SnapshotFile.Record> batch) {
+            List<byte[]> keys = new ArrayList<>(batch.size());
+            try (Jedis jedis = redis.getJedis()) {
+                Pipeline pipeline = jedis.pipelined();
+                long now = System.currentTimeMillis();
+                for (SnapshotFile.Record record : batch) {
+                    long ttl = 0L;
+                    if (record.expireAt != 0L) {
+                        ttl = record.expireAt - now;
+                        if (ttl <= 0L) {
+                            expired.incrementAndGet();
+                            continue;
+                        }
+                    }
+                    if (replace) {
+                        pipeline.restoreReplace(record.key, ttl, record.dump);
+                    } else {
+                        pipeline.restore(record.key, ttl, record.dump);
+                    }
+                    keys.add(record.key);
+                }
+                List<Object> replies = pipeline.syncAndReturnAll();
+                for (int i = 0; i < replies.size(); i++) {
+                    Object reply = replies.get(i);
+                    if (!(reply instanceof JedisDataException)) {
+                        restored.incrementAndGet();
+                        continue;
+                    }
+                    failed.incrementAndGet();
+                    synchronized (errors) {
+                        if (errors.size() < maxErrors) {
+                            errors.add(new RestoreResult.RestoreError(SafeEncoder.encode(keys.get(i)),
+                                    ((JedisDataException) reply).getMessage()));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
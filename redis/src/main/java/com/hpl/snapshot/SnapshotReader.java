@@ -0,0 +1,94 @@
+package com.hpl.snapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 通过 FileChannel 顺序读快照文件, 校验文件头和结尾的记录数
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 09:50
+ */
+final class SnapshotReader {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long count;
+
+    SnapshotReader(FileChannel channel, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.flip();
+        require(SnapshotFile.HEADER_SIZE);
+        long magic = buffer.getLong();
+        int version = buffer.getInt();
+        if (magic != SnapshotFile.MAGIC) {
+            throw new IOException("not a snapshot file");
+        }
+        if (version != SnapshotFile.VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+    }
+
+    /** 读下一条记录, 读到结尾返回null **/
+    SnapshotFile.Record next() throws IOException {
+        require(4);
+        int keyLength = buffer.getInt();
+        if (keyLength == SnapshotFile.END) {
+            require(8);
+            long expected = buffer.getLong();
+            if (expected != count) {
+                throw new IOException("snapshot is corrupted, expected " + expected + " records but read " + count);
+            }
+            return null;
+        }
+        if (keyLength < 0) {
+            throw new IOException("snapshot is corrupted, negative key length " + keyLength);
+        }
+        byte[] key = get(keyLength);
+        require(12);
+        long expireAt = buffer.getLong();
+        int dumpLength = buffer.getInt();
+        if (dumpLength < 0) {
+            throw new IOException("snapshot is corrupted, negative dump length " + dumpLength);
+        }
+        byte[] dump = get(dumpLength);
+        count++;
+        return new SnapshotFile.Record(key, expireAt, dump);
+    }
+
+    private byte[] get(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        if (length <= buffer.capacity()) {
+            require(length);
+            buffer.get(bytes);
+            return bytes;
+        }
+        // 比缓冲区大的 value 先取走缓冲区里剩下的部分, 其余直接从文件读
+        int buffered = buffer.remaining();
+        buffer.get(bytes, 0, buffered);
+        ByteBuffer wrapped = ByteBuffer.wrap(bytes, buffered, length - buffered);
+        while (wrapped.hasRemaining()) {
+            if (channel.read(wrapped) < 0) {
+                throw new EOFException("snapshot is truncated");
+            }
+        }
+        return bytes;
+    }
+
+    /* 保证缓冲区里至少有 bytes 个字节可读 */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("snapshot is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
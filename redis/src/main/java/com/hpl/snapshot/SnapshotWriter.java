@@ -0,0 +1,73 @@
+package com.hpl.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 通过 FileChannel 顺序写快照文件, 记录先攒到直接内存缓冲区里, 满了再整块写出
+ *
+ * @Author: huangpenglong
+ * @Date: 2026/10/25 09:40
+ */
+final class SnapshotWriter {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long count;
+
+    SnapshotWriter(FileChannel channel, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.putLong(SnapshotFile.MAGIC).putInt(SnapshotFile.VERSION);
+    }
+
+    void write(byte[] key, long expireAt, byte[] dump) throws IOException {
+        ensure(16);
+        buffer.putInt(key.length);
+        put(key);
+        ensure(12);
+        buffer.putLong(expireAt).putInt(dump.length);
+        put(dump);
+        count++;
+    }
+
+    /** 写结尾并把数据刷到磁盘 **/
+    void finish() throws IOException {
+        ensure(12);
+        buffer.putInt(SnapshotFile.END).putLong(count);
+        flush();
+        channel.force(false);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+            return;
+        }
+        // 比缓冲区剩余空间大的 value 直接写到文件, 不拷贝进缓冲区
+        flush();
+        ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+        while (wrapped.hasRemaining()) {
+            channel.write(wrapped);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}